@@ -1,12 +1,20 @@
 package com.netcetera.trema.maven;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.sonatype.plexus.build.incremental.BuildContext;
 
+import com.netcetera.trema.core.exporting.ExportException;
+
 
 /**
  * Superclass for trema export mojos. Reads and validates configuration
@@ -14,6 +22,10 @@ import org.sonatype.plexus.build.incremental.BuildContext;
  */
 public abstract class AbstractExportMojo extends AbstractMojo {
 
+  /** Extensions of the scanned source files if no keySourceExtensions are configured. */
+  private static final String[] DEFAULT_KEY_SOURCE_EXTENSIONS = {
+    "java", "kt", "groovy", "js", "jsx", "ts", "tsx", "vue", "html", "jsp", "ftl", "vm", "xml"};
+
   /**
    * Trema file. Path to the trema file to export.
    *
@@ -22,6 +34,16 @@ public abstract class AbstractExportMojo extends AbstractMojo {
    */
   private String tremaFile;
 
+  /**
+   * Trema files. Paths or glob patterns of several Trema files to export
+   * together instead of the tremaFile, eg. src/main/resources/texts/*.trm.
+   * The files are parsed concurrently and merged into one database, a key
+   * defined in more than one file fails the export.
+   *
+   * @parameter property="tremaFiles"
+   */
+  private String[] tremaFiles;
+
   /**
    * Languages. Languages to be exported. If not provided, all languages are
    * exported.
@@ -38,6 +60,183 @@ public abstract class AbstractExportMojo extends AbstractMojo {
    */
   private String[] states;
 
+  /**
+   * Include keys. Patterns of the keys to be exported, each a key or a key
+   * prefix followed by '*', eg. 'mobile.*'. If not provided, all keys are
+   * exported.
+   *
+   * @parameter property="includeKeys"
+   */
+  private String[] includeKeys;
+
+  /**
+   * Exclude keys. Patterns of the keys not to be exported, each a key or a
+   * key prefix followed by '*', eg. 'internal.*'. Takes precedence over the
+   * includeKeys.
+   *
+   * @parameter property="excludeKeys"
+   */
+  private String[] excludeKeys;
+
+  /**
+   * Key source roots. Directories of the sources using the texts, eg.
+   * src/main/java or src/main/webapp. If provided, only the keys referenced
+   * in these sources and the keepKeys are exported; a key counts as
+   * referenced if it occurs in a source file, eg. as string literal, and is
+   * not part of a longer key or identifier.
+   *
+   * @parameter property="keySourceRoots"
+   */
+  private String[] keySourceRoots;
+
+  /**
+   * Key source extensions. Extensions of the files scanned in the
+   * keySourceRoots. If not provided: java, kt, groovy, js, jsx, ts, tsx, vue,
+   * html, jsp, ftl, vm and xml.
+   *
+   * @parameter property="keySourceExtensions"
+   */
+  private String[] keySourceExtensions;
+
+  /**
+   * Keep keys. Patterns of keys exported even if they are not referenced in
+   * the keySourceRoots, eg. 'error.*' for keys built at runtime.
+   *
+   * @parameter property="keepKeys"
+   */
+  private String[] keepKeys;
+
+  /**
+   * Key source cache. File caching the keys referenced by every source file,
+   * so that only changed files are scanned again. A relative path is
+   * resolved against the project directory, like the keySourceRoots.
+   *
+   * @parameter property="keySourceCache"
+   * default-value="${project.build.directory}/trema-key-sources.properties"
+   */
+  private String keySourceCache;
+
+  /**
+   * Resolve fallbacks. If enabled, texts missing in a language are taken from
+   * its fallback languages at export time, so every exported file is complete
+   * and the application does not depend on parent bundles at runtime. A
+   * language falls back to its parent languages (eg. de_CH to de) or the
+   * languages configured in fallbackChains, then to the default language and
+   * finally to the master language of the Trema file.
+   *
+   * @parameter property="resolveFallbacks" default-value="false"
+   */
+  private boolean resolveFallbacks;
+
+  /**
+   * Fallback chains. Fallback languages replacing the parent languages of a
+   * language when resolving fallbacks, eg. 'de_CH:fr_CH,de'.
+   *
+   * @parameter property="fallbackChains"
+   */
+  private String[] fallbackChains;
+
+  /**
+   * Delta bundles. If enabled, a language file only contains the texts
+   * differing from the ones inherited at runtime from the exported parent
+   * languages (eg. de for de_CH) and the default file, which reduces the size
+   * of regional files considerably. Can not be combined with resolveFallbacks.
+   *
+   * @parameter property="deltaBundles" default-value="false"
+   */
+  private boolean deltaBundles;
+
+  /**
+   * Export cache. If enabled, the exported files are kept in a cache shared by
+   * all projects on this machine, keyed by the content of the Trema file and
+   * the export configuration. Exporting the same Trema file with the same
+   * configuration again, eg. in another project depending on the same text
+   * artifact, restores the files from the cache instead.
+   *
+   * @parameter property="exportCache" default-value="false"
+   */
+  private boolean exportCache;
+
+  /**
+   * Export cache directory.
+   *
+   * @parameter property="exportCacheDirectory" default-value="${user.home}/.m2/trema-cache"
+   */
+  private String exportCacheDirectory;
+
+  /**
+   * Export cache size. Size budget of the export cache in megabytes, the least
+   * recently used exports are removed when it is exceeded.
+   *
+   * @parameter property="exportCacheSize" default-value="256"
+   */
+  private int exportCacheSize;
+
+  /**
+   * Export cache hard links. If enabled, files restored from the export cache
+   * are hard links to the cached files instead of copies, falling back to
+   * copies where links are not supported. Only safe as long as no later build
+   * step modifies the exported files in place.
+   *
+   * @parameter property="exportCacheHardLinks" default-value="false"
+   */
+  private boolean exportCacheHardLinks;
+
+  /**
+   * Incremental export. If enabled, a fingerprint of the exported texts of
+   * every file is kept between builds and only the files of the languages
+   * whose texts changed are written again. Not supported with shards, content
+   * hash file names and message tables, which are always exported completely.
+   *
+   * @parameter property="incremental" default-value="false"
+   */
+  private boolean incremental;
+
+  /**
+   * Incremental directory. Directory of the fingerprints of incremental
+   * exports.
+   *
+   * @parameter property="incrementalDirectory"
+   * default-value="${project.build.directory}/trema-incremental"
+   */
+  private String incrementalDirectory;
+
+  /**
+   * Key hash manifest. If enabled, a manifest with a hash of every exported
+   * text by language and key is written next to the exported files, eg.
+   * text.keys.json, so that deployment tools can find the changed keys of two
+   * builds without reading the exported files.
+   *
+   * @parameter property="keyHashManifest" default-value="false"
+   */
+  private boolean keyHashManifest;
+
+  /**
+   * Value storage: 'heap' or 'mapped'. Mapped values are held off the heap in
+   * a memory-mapped file in the valueStorageDirectory, for very large Trema
+   * files.
+   *
+   * @parameter property="valueStorage" default-value="heap"
+   */
+  private String valueStorage;
+
+  /**
+   * Value storage directory. Directory of the memory-mapped files of the
+   * mapped valueStorage.
+   *
+   * @parameter property="valueStorageDirectory"
+   * default-value="${project.build.directory}/trema-values"
+   */
+  private String valueStorageDirectory;
+
+  /**
+   * Base directory of the project, relative tremaFiles are resolved against.
+   *
+   * @parameter default-value="${project.basedir}"
+   * @readonly
+   */
+  private File basedir;
+
   /**
    * Inject build context to be used to create file output streams that
    * eclipse/m2eclipse is aware of.
@@ -56,6 +255,15 @@ public abstract class AbstractExportMojo extends AbstractMojo {
     this.tremaFile = tremaFile;
   }
 
+  /**
+   * Sets the tremaFiles.
+   *
+   * @param tremaFiles the tremaFiles to set
+   */
+  public void setTremaFiles(String[] tremaFiles) {
+    this.tremaFiles = tremaFiles;
+  }
+
   /**
    * Sets the languages.
    *
@@ -75,6 +283,168 @@ public abstract class AbstractExportMojo extends AbstractMojo {
   }
 
 
+  /**
+   * Sets the includeKeys.
+   *
+   * @param includeKeys the includeKeys to set
+   */
+  public void setIncludeKeys(String[] includeKeys) {
+    this.includeKeys = includeKeys;
+  }
+
+  /**
+   * Sets the excludeKeys.
+   *
+   * @param excludeKeys the excludeKeys to set
+   */
+  public void setExcludeKeys(String[] excludeKeys) {
+    this.excludeKeys = excludeKeys;
+  }
+
+  /**
+   * Sets the keySourceRoots.
+   *
+   * @param keySourceRoots the keySourceRoots to set
+   */
+  public void setKeySourceRoots(String[] keySourceRoots) {
+    this.keySourceRoots = keySourceRoots;
+  }
+
+  /**
+   * Sets the keySourceExtensions.
+   *
+   * @param keySourceExtensions the keySourceExtensions to set
+   */
+  public void setKeySourceExtensions(String[] keySourceExtensions) {
+    this.keySourceExtensions = keySourceExtensions;
+  }
+
+  /**
+   * Sets the keepKeys.
+   *
+   * @param keepKeys the keepKeys to set
+   */
+  public void setKeepKeys(String[] keepKeys) {
+    this.keepKeys = keepKeys;
+  }
+
+  /**
+   * Sets the keySourceCache.
+   *
+   * @param keySourceCache the keySourceCache to set
+   */
+  public void setKeySourceCache(String keySourceCache) {
+    this.keySourceCache = keySourceCache;
+  }
+
+  /**
+   * Sets the resolveFallbacks.
+   *
+   * @param resolveFallbacks the resolveFallbacks to set
+   */
+  public void setResolveFallbacks(boolean resolveFallbacks) {
+    this.resolveFallbacks = resolveFallbacks;
+  }
+
+  /**
+   * Sets the fallbackChains.
+   *
+   * @param fallbackChains the fallbackChains to set
+   */
+  public void setFallbackChains(String[] fallbackChains) {
+    this.fallbackChains = fallbackChains;
+  }
+
+  /**
+   * Sets the deltaBundles.
+   *
+   * @param deltaBundles the deltaBundles to set
+   */
+  public void setDeltaBundles(boolean deltaBundles) {
+    this.deltaBundles = deltaBundles;
+  }
+
+  /**
+   * Sets the exportCache.
+   *
+   * @param exportCache the exportCache to set
+   */
+  public void setExportCache(boolean exportCache) {
+    this.exportCache = exportCache;
+  }
+
+  /**
+   * Sets the exportCacheDirectory.
+   *
+   * @param exportCacheDirectory the exportCacheDirectory to set
+   */
+  public void setExportCacheDirectory(String exportCacheDirectory) {
+    this.exportCacheDirectory = exportCacheDirectory;
+  }
+
+  /**
+   * Sets the exportCacheSize.
+   *
+   * @param exportCacheSize the exportCacheSize to set
+   */
+  public void setExportCacheSize(int exportCacheSize) {
+    this.exportCacheSize = exportCacheSize;
+  }
+
+  /**
+   * Sets the exportCacheHardLinks.
+   *
+   * @param exportCacheHardLinks the exportCacheHardLinks to set
+   */
+  public void setExportCacheHardLinks(boolean exportCacheHardLinks) {
+    this.exportCacheHardLinks = exportCacheHardLinks;
+  }
+
+  /**
+   * Sets the incremental.
+   *
+   * @param incremental the incremental to set
+   */
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  /**
+   * Sets the incrementalDirectory.
+   *
+   * @param incrementalDirectory the incrementalDirectory to set
+   */
+  public void setIncrementalDirectory(String incrementalDirectory) {
+    this.incrementalDirectory = incrementalDirectory;
+  }
+
+  /**
+   * Sets the keyHashManifest.
+   *
+   * @param keyHashManifest the keyHashManifest to set
+   */
+  public void setKeyHashManifest(boolean keyHashManifest) {
+    this.keyHashManifest = keyHashManifest;
+  }
+
+  /**
+   * Sets the valueStorage.
+   *
+   * @param valueStorage the valueStorage to set
+   */
+  public void setValueStorage(String valueStorage) {
+    this.valueStorage = valueStorage;
+  }
+
+  /**
+   * Sets the valueStorageDirectory.
+   *
+   * @param valueStorageDirectory the valueStorageDirectory to set
+   */
+  public void setValueStorageDirectory(String valueStorageDirectory) {
+    this.valueStorageDirectory = valueStorageDirectory;
+  }
+
   // used only in testcases
   protected void setBuildContext(BuildContext buildContext) {
     this.buildContext = buildContext;
@@ -85,6 +455,24 @@ public abstract class AbstractExportMojo extends AbstractMojo {
    */
   @Override
   public void execute() throws MojoExecutionException {
+    final TremaExport exporter = createExport(createExportContext());
+    try {
+      exporter.execute();
+    } catch (final Exception e) {
+      throw new MojoExecutionException("Failed to export: " + e.getMessage(), e);
+    }
+    for (File outputFile : exporter.getOutputFiles()) {
+      getLog().debug("Output file: " + outputFile.getPath());
+    }
+  }
+
+  /**
+   * Validates the configuration and creates the export context from it.
+   *
+   * @return the export context
+   * @throws MojoExecutionException in case the configuration is invalid
+   */
+  protected TremaExportContext createExportContext() throws MojoExecutionException {
 
     // debug logging
     String basename = getBasename();
@@ -93,14 +481,18 @@ public abstract class AbstractExportMojo extends AbstractMojo {
     Log log = getLog();
     log.debug("Executing " + this.getClass().getSimpleName() + " with parameters: "
         + "tremaFile = " + tremaFile
+        + ", tremaFiles = " + Arrays.toString(tremaFiles)
         + ", basename = " + basename
         + ", languages = " + Arrays.toString(languages)
         + ", defaultlanguage = " + defaultlanguage
         + ", states = " + Arrays.toString(states)
+        + ", includeKeys = " + Arrays.toString(includeKeys)
+        + ", excludeKeys = " + Arrays.toString(excludeKeys)
         + ", filters = " + Arrays.toString(filters));
 
     // validate
-    if (tremaFile == null || tremaFile.length() == 0) {
+    String[] xmlPathNames = resolveTremaFiles();
+    if (xmlPathNames == null && (tremaFile == null || tremaFile.length() == 0)) {
       final String msg = "tremaFile must not be empty";
       log.error(msg);
       throw new MojoExecutionException(msg);
@@ -113,7 +505,11 @@ public abstract class AbstractExportMojo extends AbstractMojo {
 
     // prepare the export configuration
     final TremaExportContext exportContext = new TremaExportContext();
-    exportContext.setXmlPathName(tremaFile);
+    if (xmlPathNames == null) {
+      exportContext.setXmlPathName(tremaFile);
+    } else {
+      exportContext.setXmlPathNames(xmlPathNames);
+    }
     exportContext.setBaseName(basename);
     exportContext.setType(getExportType());
     if (languages != null && languages.length > 0) {
@@ -140,7 +536,66 @@ public abstract class AbstractExportMojo extends AbstractMojo {
       }
     }
 
-    // export the property files
+    try {
+      exportContext.setKeyPatterns(includeKeys, excludeKeys);
+      if (keySourceRoots != null && keySourceRoots.length > 0) {
+        List<File> sourceRoots = new ArrayList<File>();
+        for (String keySourceRoot : keySourceRoots) {
+          sourceRoots.add(resolveFile(keySourceRoot));
+        }
+        String[] extensions = keySourceExtensions == null || keySourceExtensions.length == 0
+            ? DEFAULT_KEY_SOURCE_EXTENSIONS : keySourceExtensions;
+        File cacheFile = keySourceCache == null || keySourceCache.length() == 0 ? null : resolveFile(keySourceCache);
+        exportContext.setSourceKeyScan(sourceRoots, Arrays.asList(extensions), cacheFile);
+        exportContext.setKeptKeys(keepKeys);
+      }
+      exportContext.setResolveFallbacks(resolveFallbacks);
+      exportContext.setFallbackChains(fallbackChains);
+      if (resolveFallbacks && deltaBundles) {
+        throw new IllegalArgumentException("resolveFallbacks and deltaBundles can not be combined");
+      }
+      exportContext.setDeltaBundles(deltaBundles);
+      if (exportCache) {
+        if (exportCacheDirectory == null || exportCacheDirectory.length() == 0) {
+          throw new IllegalArgumentException("exportCacheDirectory must not be empty");
+        }
+        if (exportCacheSize <= 0) {
+          throw new IllegalArgumentException("exportCacheSize must be positive: " + exportCacheSize);
+        }
+        exportContext.setExportCache(new ExportCache(new File(exportCacheDirectory),
+            exportCacheSize * 1024L * 1024L, exportCacheHardLinks));
+      }
+      exportContext.setKeyHashManifest(keyHashManifest);
+      if (incremental) {
+        if (incrementalDirectory == null || incrementalDirectory.length() == 0) {
+          throw new IllegalArgumentException("incrementalDirectory must not be empty");
+        }
+        exportContext.setIncrementalDirectory(new File(incrementalDirectory));
+      }
+      if ("mapped".equals(valueStorage)) {
+        if (valueStorageDirectory == null || valueStorageDirectory.length() == 0) {
+          throw new IllegalArgumentException("valueStorageDirectory must not be empty");
+        }
+        exportContext.setMappedValueDirectory(resolveFile(valueStorageDirectory));
+      } else if (valueStorage != null && valueStorage.length() > 0 && !"heap".equals(valueStorage)) {
+        throw new IllegalArgumentException("Invalid valueStorage: " + valueStorage + " (expected heap or mapped)");
+      }
+      configureExportContext(exportContext);
+    } catch (IllegalArgumentException e) {
+      log.error(e.getMessage());
+      throw new MojoExecutionException("Invalid configuration: " + e.getMessage(), e);
+    }
+
+    return exportContext;
+  }
+
+  /**
+   * Creates the export writing through the build context if available.
+   *
+   * @param exportContext the export context
+   * @return the export
+   */
+  protected TremaExport createExport(TremaExportContext exportContext) {
     final TremaExport exporter = new TremaExport(exportContext, getLog());
 
     // buildContext not available in test cases
@@ -149,14 +604,99 @@ public abstract class AbstractExportMojo extends AbstractMojo {
           buildContext);
       exporter.setOutputStreamFactory(outputStreamFactory);
     }
+    return exporter;
+  }
 
+  /**
+   * Resolves the paths and glob patterns of the tremaFiles.
+   *
+   * @return the paths of the Trema files or <code>null</code> if no
+   * tremaFiles are configured
+   * @throws MojoExecutionException if a pattern matches no file
+   */
+  private String[] resolveTremaFiles() throws MojoExecutionException {
+    if (tremaFiles == null || tremaFiles.length == 0) {
+      return null;
+    }
+    Set<String> paths = new LinkedHashSet<String>();
+    for (String pattern : tremaFiles) {
+      List<File> files;
+      try {
+        files = TremaFiles.resolve(basedir, pattern);
+      } catch (IOException e) {
+        throw new MojoExecutionException("Could not resolve tremaFiles " + pattern + ": " + e.getMessage(), e);
+      }
+      if (files.isEmpty()) {
+        final String msg = "No Trema file matches " + pattern;
+        getLog().error(msg);
+        throw new MojoExecutionException(msg);
+      }
+      for (File file : files) {
+        paths.add(file.getPath());
+      }
+    }
+    return paths.toArray(new String[paths.size()]);
+  }
+
+  /**
+   * Resolves a path relative to the project directory.
+   *
+   * @param path the path
+   * @return the file
+   */
+  protected File resolveFile(String path) {
+    File file = new File(path);
+    return file.isAbsolute() || basedir == null ? file : new File(basedir, path);
+  }
+
+  /**
+   * Gets the Trema files of an export.
+   *
+   * @param exportContext the export context
+   * @return the Trema files
+   */
+  protected static List<File> getTremaFiles(TremaExportContext exportContext) {
+    List<File> files = new ArrayList<File>();
+    for (String xmlPathName : exportContext.getXmlPathNames()) {
+      files.add(new File(xmlPathName));
+    }
+    return files;
+  }
+
+  /**
+   * Parses the Trema files and merges them into one compact database, for
+   * goals keeping the database in memory. Only the values of the languages
+   * needed by the export are parsed, into the value storage of the export.
+   *
+   * @param tremaFiles the Trema files
+   * @param exportContext the export context
+   * @return the database
+   * @throws MojoExecutionException if a file could not be read or parsed, or
+   * the files could not be merged
+   */
+  protected CompactDatabase parseTremaFiles(List<File> tremaFiles, TremaExportContext exportContext)
+      throws MojoExecutionException {
     try {
-      exporter.execute();
-    } catch (final Exception e) {
-      throw new MojoExecutionException("Failed to export: " + e.getMessage(), e);
+      return TremaFiles.parse(tremaFiles, exportContext.getLanguageProjection(),
+          exportContext.getMappedValueDirectory());
+    } catch (IOException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    } catch (ExportException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
     }
   }
 
+  /**
+   * Hook for goals to set their specific options on the export context. The
+   * default implementation does nothing.
+   *
+   * @param exportContext the export context to configure
+   * @throws IllegalArgumentException in case an option has an invalid value
+   */
+  protected void configureExportContext(TremaExportContext exportContext)
+      throws IllegalArgumentException {
+  }
+
   /**
    * Gets the specific export type for the goal.
    *
@@ -0,0 +1,70 @@
+package com.netcetera.trema.maven;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.IExporter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.exporting.ExportException;
+import com.netcetera.trema.core.exporting.OutputStreamFactory;
+import com.netcetera.trema.runtime.BinaryCatalog;
+import com.netcetera.trema.runtime.BinaryCatalogWriter;
+
+
+/**
+ * Exports the texts of one language as binary message catalog, to be read
+ * with {@link BinaryCatalog}.
+ */
+public class BinaryCatalogExporter implements IExporter {
+
+  private final File file;
+  private final OutputStreamFactory outputStreamFactory;
+  private IExportFilter[] exportFilters;
+
+
+  /**
+   * Constructor.
+   *
+   * @param file the output file
+   * @param outputStreamFactory factory for providing the output stream
+   */
+  public BinaryCatalogExporter(File file, OutputStreamFactory outputStreamFactory) {
+    this.file = file;
+    this.outputStreamFactory = outputStreamFactory;
+  }
+
+  /**
+   * Sets the filters to be applied to the values.
+   *
+   * @param exportFilters the filters
+   */
+  public void setExportFilter(IExportFilter[] exportFilters) {
+    this.exportFilters = exportFilters;
+  }
+
+  @Override
+  public void export(ITextNode[] nodes, String masterlanguage, String language, Status[] states)
+      throws ExportException {
+    BinaryCatalogWriter writer = new BinaryCatalogWriter();
+    for (ITextNode node : nodes) {
+      String value = ExportValues.getValue(node, language, states, exportFilters);
+      if (value != null) {
+        writer.put(node.getKey(), value);
+      }
+    }
+    try {
+      OutputStream outputStream = new BufferedOutputStream(outputStreamFactory.createOutputStream(file));
+      try {
+        writer.writeTo(outputStream);
+      } finally {
+        outputStream.close();
+      }
+    } catch (IOException e) {
+      throw new ExportException("Could not write " + file + ": " + e.getMessage());
+    }
+  }
+}
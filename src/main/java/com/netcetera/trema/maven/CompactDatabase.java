@@ -0,0 +1,420 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.XMLTextNode;
+import com.netcetera.trema.core.XMLValueNode;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+
+
+/**
+ * Compact form of a database, built by the parser while it reads a Trema
+ * file. Instead of objects per text, value and string, the texts are held in
+ * parallel arrays: keys, contexts and values as ids of a {@link StringArena},
+ * which stores equal values once, and languages and status as indexes into
+ * small tables of the distinct ones. For an export, {@link #toXMLDatabase(Collection)}
+ * creates one small text node per key which decodes its values from the
+ * arena only when an exporter reads them.
+ *
+ * <p>The values can be kept in a mapped {@link StringArena} for databases too
+ * large for the heap. Only the keys, contexts and the small arrays indexing
+ * the values stay on the heap then, and the values are decoded from the
+ * mapped file when an export needs them.
+ */
+final class CompactDatabase {
+
+  /** Id of a missing string, eg. a text without context. */
+  private static final int NO_STRING = -1;
+
+  private final String masterLanguage;
+  private final String[] languages;
+  private final Status[] statuses;
+  // keys and contexts, always on the heap
+  private final StringArena strings;
+  private final StringArena valueStrings;
+  private final DatabaseStatistics statistics;
+
+  private final int[] keys;
+  private final int[] contexts;
+  // the values of text i are the ones from valueOffsets[i] to valueOffsets[i + 1]
+  private final int[] valueOffsets;
+  private final short[] valueLanguages;
+  private final byte[] valueStatuses;
+  private final int[] values;
+
+
+  private CompactDatabase(Builder builder) throws IOException {
+    masterLanguage = builder.masterLanguage;
+    languages = builder.languageTable.toArray(new String[builder.languageTable.size()]);
+    statuses = builder.statusTable.toArray(new Status[builder.statusTable.size()]);
+    strings = builder.strings;
+    valueStrings = builder.valueStrings;
+    statistics = builder.statistics;
+    keys = Arrays.copyOf(builder.keys, builder.textCount);
+    contexts = Arrays.copyOf(builder.contexts, builder.textCount);
+    valueOffsets = Arrays.copyOf(builder.valueOffsets, builder.textCount + 1);
+    valueLanguages = Arrays.copyOf(builder.valueLanguages, builder.valueCount);
+    valueStatuses = Arrays.copyOf(builder.valueStatuses, builder.valueCount);
+    values = Arrays.copyOf(builder.values, builder.valueCount);
+    strings.freeze();
+    valueStrings.freeze();
+  }
+
+  /**
+   * Creates the compact copy of a database.
+   *
+   * @param xmlDb the database
+   * @param mappedDirectory the directory of the file holding the values off
+   * the heap, <code>null</code> to keep them on the heap
+   * @return the compact database
+   * @throws IOException if the values could not be written to the mapped file
+   */
+  static CompactDatabase of(XMLDatabase xmlDb, File mappedDirectory) throws IOException {
+    Builder builder = new Builder(mappedDirectory);
+    builder.setMasterLanguage(xmlDb.getMasterLanguage());
+    for (ITextNode node : xmlDb.getTextNodes()) {
+      for (IValueNode valueNode : node.getValueNodes()) {
+        builder.addValue(valueNode.getLanguage(), valueNode.getStatus(), valueNode.getValue());
+      }
+      builder.addText(node.getKey(), node.getContext());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the master language.
+   *
+   * @return the master language
+   */
+  String getMasterLanguage() {
+    return masterLanguage;
+  }
+
+  /**
+   * Gets the statistics of the database.
+   *
+   * @return the statistics
+   */
+  DatabaseStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Gets the statistics of the database created by {@link #toXMLDatabase(Collection)}.
+   *
+   * @param projectedLanguages the languages, <code>null</code> for all
+   * @return the statistics
+   */
+  DatabaseStatistics getStatistics(Collection<String> projectedLanguages) {
+    return projectedLanguages == null ? statistics : statistics.project(projectedLanguages);
+  }
+
+  /**
+   * Gets the number of texts.
+   *
+   * @return the number of texts
+   */
+  int size() {
+    return keys.length;
+  }
+
+  /**
+   * Gets the key of a text.
+   *
+   * @param text the index of the text
+   * @return the key
+   */
+  String getKey(int text) {
+    return strings.get(keys[text]);
+  }
+
+  /**
+   * Gets the heap memory held by the texts, for logging.
+   *
+   * @return the approximate size in bytes
+   */
+  long getBytes() {
+    return strings.getBytes() + valueStrings.getBytes()
+        + (keys.length + contexts.length + valueOffsets.length + values.length) * 4L
+        + valueLanguages.length * 2L + valueStatuses.length;
+  }
+
+  /**
+   * Gets the size of the values held off the heap, for logging.
+   *
+   * @return the size in bytes, 0 if the values are kept on the heap
+   */
+  long getMappedBytes() {
+    return valueStrings.getMappedBytes();
+  }
+
+  /**
+   * Creates a database with the texts, only with the values of the given
+   * languages. All texts are contained, even those without a value in these
+   * languages. The text nodes are read-only and decode their contexts and
+   * values on every access, so the database takes little more memory than
+   * its keys.
+   *
+   * @param projectedLanguages the languages, <code>null</code> for all
+   * @return the database
+   */
+  XMLDatabase toXMLDatabase(Collection<String> projectedLanguages) {
+    boolean[] projected = new boolean[languages.length];
+    for (int l = 0; l < languages.length; l++) {
+      projected[l] = projectedLanguages == null || projectedLanguages.contains(languages[l]);
+    }
+    XMLDatabase xmlDb = new XMLDatabase();
+    xmlDb.setMasterLanguage(masterLanguage);
+    for (int i = 0; i < keys.length; i++) {
+      xmlDb.addTextNode(new CompactTextNode(i, projected));
+    }
+    return xmlDb;
+  }
+
+  private static int add(StringArena arena, String s) throws IOException {
+    return s == null ? NO_STRING : arena.add(s);
+  }
+
+  private static String get(StringArena arena, int id) {
+    return id == NO_STRING ? null : arena.get(id);
+  }
+
+  /**
+   * A text of the database, its values are the ones of the projected languages.
+   */
+  private final class CompactTextNode extends XMLTextNode {
+
+    private final int text;
+    private final boolean[] projected;
+
+    CompactTextNode(int text, boolean[] projected) {
+      super(strings.get(keys[text]), null);
+      this.text = text;
+      this.projected = projected;
+    }
+
+    @Override
+    public String getContext() {
+      return get(strings, contexts[text]);
+    }
+
+    @Override
+    public IValueNode getValueNode(String language) {
+      for (int v = valueOffsets[text]; v < valueOffsets[text + 1]; v++) {
+        if (projected[valueLanguages[v]] && languages[valueLanguages[v]].equals(language)) {
+          return new CompactValueNode(v);
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public IValueNode[] getValueNodes() {
+      List<IValueNode> valueNodes = new ArrayList<IValueNode>(valueOffsets[text + 1] - valueOffsets[text]);
+      for (int v = valueOffsets[text]; v < valueOffsets[text + 1]; v++) {
+        if (projected[valueLanguages[v]]) {
+          valueNodes.add(new CompactValueNode(v));
+        }
+      }
+      return valueNodes.toArray(new IValueNode[valueNodes.size()]);
+    }
+
+    @Override
+    public String[] getLanguages() {
+      List<String> valueLanguageList = new ArrayList<String>();
+      for (int v = valueOffsets[text]; v < valueOffsets[text + 1]; v++) {
+        if (projected[valueLanguages[v]]) {
+          valueLanguageList.add(languages[valueLanguages[v]]);
+        }
+      }
+      return valueLanguageList.toArray(new String[valueLanguageList.size()]);
+    }
+
+    @Override
+    public boolean hasLanguage(String language) {
+      return getValueNode(language) != null;
+    }
+
+    @Override
+    public void addValueNode(IValueNode valueNode) {
+      throw new UnsupportedOperationException("Texts of a compact database are read-only");
+    }
+  }
+
+  /**
+   * A value of the database, decoded from the arena when read.
+   */
+  private final class CompactValueNode extends XMLValueNode {
+
+    private final int value;
+
+    CompactValueNode(int value) {
+      super(languages[valueLanguages[value]], statuses[valueStatuses[value]], null);
+      this.value = value;
+    }
+
+    @Override
+    public String getValue() {
+      return get(valueStrings, values[value]);
+    }
+  }
+
+  /**
+   * Collects the texts of a database one by one, eg. while parsing a Trema
+   * file: first the values of a text with {@link #addValue(String, Status, String)},
+   * then the text itself with {@link #addText(String, String)}.
+   */
+  static final class Builder {
+
+    private final StringArena strings = new StringArena();
+    private final StringArena valueStrings;
+    private final DatabaseStatistics statistics = new DatabaseStatistics();
+    private final Map<String, Integer> languageIndexes = new HashMap<String, Integer>();
+    private final List<String> languageTable = new ArrayList<String>();
+    private final Map<Status, Integer> statusIndexes = new HashMap<Status, Integer>();
+    private final List<Status> statusTable = new ArrayList<Status>();
+    // the ids of the added keys in the strings, which also hold the contexts
+    private final BitSet keyIds = new BitSet();
+    private String masterLanguage;
+
+    private int textCount;
+    private int[] keys = new int[1024];
+    private int[] contexts = new int[1024];
+    private int[] valueOffsets = new int[1025];
+    private int valueCount;
+    private short[] valueLanguages = new short[4096];
+    private byte[] valueStatuses = new byte[4096];
+    private int[] values = new int[4096];
+
+
+    /**
+     * Constructor.
+     *
+     * @param mappedDirectory the directory of the file holding the values off
+     * the heap, <code>null</code> to keep them on the heap
+     */
+    Builder(File mappedDirectory) {
+      valueStrings = new StringArena(mappedDirectory);
+    }
+
+    /**
+     * Sets the master language.
+     *
+     * @param masterLanguage the master language
+     */
+    void setMasterLanguage(String masterLanguage) {
+      this.masterLanguage = masterLanguage;
+    }
+
+    /**
+     * Gets the master language.
+     *
+     * @return the master language
+     */
+    String getMasterLanguage() {
+      return masterLanguage;
+    }
+
+    /**
+     * Adds a value of the next text.
+     *
+     * @param language the language
+     * @param status the status
+     * @param value the value
+     * @throws IOException if the value could not be written to the mapped file
+     */
+    void addValue(String language, Status status, String value) throws IOException {
+      if (valueCount == values.length) {
+        int capacity = valueCount * 2;
+        valueLanguages = Arrays.copyOf(valueLanguages, capacity);
+        valueStatuses = Arrays.copyOf(valueStatuses, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      valueLanguages[valueCount] = (short) index(language, languageIndexes, languageTable);
+      valueStatuses[valueCount] = (byte) index(status, statusIndexes, statusTable);
+      values[valueCount] = add(valueStrings, value);
+      valueCount++;
+      statistics.addValue(language, status.getName(), value);
+    }
+
+    /**
+     * Adds a text with the values added since the previous text.
+     *
+     * @param key the key
+     * @param context the context, <code>null</code> if none
+     * @return <code>false</code> if the key was added before, the text is not
+     * added then
+     * @throws IOException never, the keys are kept on the heap
+     */
+    boolean addText(String key, String context) throws IOException {
+      int keyId = strings.add(key);
+      if (keyIds.get(keyId)) {
+        return false;
+      }
+      keyIds.set(keyId);
+      if (textCount == keys.length) {
+        int capacity = textCount * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        contexts = Arrays.copyOf(contexts, capacity);
+        valueOffsets = Arrays.copyOf(valueOffsets, capacity + 1);
+      }
+      keys[textCount] = keyId;
+      contexts[textCount] = add(strings, context);
+      textCount++;
+      valueOffsets[textCount] = valueCount;
+      statistics.addKey(key);
+      return true;
+    }
+
+    /**
+     * Adds a text of another compact database with its values.
+     *
+     * @param compactDb the database
+     * @param text the index of the text
+     * @return <code>false</code> if the key was added before, the text is not
+     * added then
+     * @throws IOException if the values could not be written to the mapped file
+     */
+    boolean addText(CompactDatabase compactDb, int text) throws IOException {
+      if (keyIds.get(strings.add(compactDb.getKey(text)))) {
+        return false;
+      }
+      for (int v = compactDb.valueOffsets[text]; v < compactDb.valueOffsets[text + 1]; v++) {
+        addValue(compactDb.languages[compactDb.valueLanguages[v]], compactDb.statuses[compactDb.valueStatuses[v]],
+            get(compactDb.valueStrings, compactDb.values[v]));
+      }
+      return addText(compactDb.getKey(text), get(compactDb.strings, compactDb.contexts[text]));
+    }
+
+    /**
+     * Creates the database. The builder can not be used afterwards.
+     *
+     * @return the database
+     * @throws IOException if the last values could not be written to the mapped file
+     */
+    CompactDatabase build() throws IOException {
+      return new CompactDatabase(this);
+    }
+
+    private static <T> int index(T value, Map<T, Integer> indexes, List<T> table) {
+      Integer index = indexes.get(value);
+      if (index == null) {
+        index = table.size();
+        indexes.put(value, index);
+        table.add(value);
+      }
+      return index;
+    }
+  }
+}
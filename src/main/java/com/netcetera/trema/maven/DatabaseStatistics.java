@@ -0,0 +1,256 @@
+package com.netcetera.trema.maven;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+
+
+/**
+ * Statistics of a database collected in one pass over its values: the
+ * languages, the number of values and their UTF-8 size per language and the
+ * number of values per status. The statistics are collected while the
+ * database is parsed and handed to the exports with it, eg. the repeated
+ * exports of the watch goal, and are used to find the languages, report
+ * progress and size output buffers.
+ */
+final class DatabaseStatistics {
+
+  private int keyCount;
+  private long keyBytes;
+  private long valueBytes;
+  // value count and UTF-8 size of the values by language, sorted by language
+  private final Map<String, long[]> languages = new TreeMap<String, long[]>();
+  // value count by status name by language
+  private final Map<String, Map<String, Integer>> statusCounts = new TreeMap<String, Map<String, Integer>>();
+
+
+  /**
+   * Constructor for statistics collected while reading a database, see
+   * {@link #addKey(String)} and {@link #addValue(String, String, String)}.
+   */
+  DatabaseStatistics() {
+  }
+
+  /**
+   * Computes the statistics of text nodes.
+   *
+   * @param nodes the text nodes
+   * @return the statistics
+   */
+  static DatabaseStatistics compute(ITextNode[] nodes) {
+    DatabaseStatistics statistics = new DatabaseStatistics();
+    for (ITextNode node : nodes) {
+      statistics.addKey(node.getKey());
+      for (IValueNode valueNode : node.getValueNodes()) {
+        statistics.addValue(valueNode.getLanguage(), valueNode.getStatus().getName(), valueNode.getValue());
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Counts a key.
+   *
+   * @param key the key
+   */
+  void addKey(String key) {
+    keyCount++;
+    keyBytes += utf8Length(key);
+  }
+
+  /**
+   * Counts a value.
+   *
+   * @param language the language of the value
+   * @param statusName the name of the status of the value
+   * @param value the value
+   */
+  void addValue(String language, String statusName, String value) {
+    long bytes = utf8Length(value);
+    add(language, 1, bytes);
+    addStatus(language, statusName, 1);
+    valueBytes += bytes;
+  }
+
+  /**
+   * Gets the statistics of the same keys with the values of some languages
+   * only, eg. of a database restricted to the languages an export needs.
+   *
+   * @param projectedLanguages the languages
+   * @return the statistics
+   */
+  DatabaseStatistics project(Collection<String> projectedLanguages) {
+    DatabaseStatistics statistics = new DatabaseStatistics();
+    statistics.keyCount = keyCount;
+    statistics.keyBytes = keyBytes;
+    for (String language : projectedLanguages) {
+      long[] counts = languages.get(language);
+      if (counts != null) {
+        statistics.add(language, counts[0], counts[1]);
+        statistics.valueBytes += counts[1];
+        for (Map.Entry<String, Integer> status : statusCounts.get(language).entrySet()) {
+          statistics.addStatus(language, status.getKey(), status.getValue());
+        }
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Gets the languages with at least one value.
+   *
+   * @return the languages, sorted
+   */
+  String[] getLanguages() {
+    return languages.keySet().toArray(new String[languages.size()]);
+  }
+
+  /**
+   * Gets the number of keys.
+   *
+   * @return the number of keys
+   */
+  int getKeyCount() {
+    return keyCount;
+  }
+
+  /**
+   * Gets the number of values of a language.
+   *
+   * @param language the language
+   * @return the number of values
+   */
+  int getValueCount(String language) {
+    long[] counts = languages.get(language);
+    return counts == null ? 0 : (int) counts[0];
+  }
+
+  /**
+   * Gets the number of values with a status.
+   *
+   * @param statusName the name of the status, eg. verified
+   * @return the number of values
+   */
+  int getStatusCount(String statusName) {
+    Integer count = getStatusCounts().get(statusName);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Gets the UTF-8 size of all values.
+   *
+   * @return the size in bytes
+   */
+  long getValueBytes() {
+    return valueBytes;
+  }
+
+  /**
+   * Estimates the size of a file with the texts of a language, the values
+   * with their keys plus some bytes of syntax per text, to size buffers.
+   *
+   * @param language the language
+   * @return the estimated size in bytes
+   */
+  int estimateFileSize(String language) {
+    long[] counts = languages.get(language);
+    if (counts == null || keyCount == 0) {
+      return 0;
+    }
+    long size = counts[1] + counts[0] * (keyBytes / keyCount + 8);
+    return (int) Math.min(size, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Estimates the size of a file with a line of syntax, the key and a fixed
+   * size entry for every key and language, eg. hashes of the values.
+   *
+   * @param languageCount the number of languages
+   * @param entryBytes the size of an entry
+   * @return the estimated size in bytes
+   */
+  int estimateKeyFileSize(int languageCount, int entryBytes) {
+    long size = languageCount * (keyBytes + keyCount * (long) (entryBytes + 8));
+    return (int) Math.min(size, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Describes the statistics, eg. "2 keys, 4 values in 2 languages (de: 2,
+   * en: 2), 3 verified, 1 translated, 62 bytes".
+   *
+   * @return the statistics
+   */
+  @Override
+  public String toString() {
+    StringBuilder description = new StringBuilder();
+    long values = 0;
+    StringBuilder languageCounts = new StringBuilder();
+    for (Map.Entry<String, long[]> language : languages.entrySet()) {
+      values += language.getValue()[0];
+      languageCounts.append(languageCounts.length() == 0 ? "" : ", ")
+          .append(language.getKey()).append(": ").append(language.getValue()[0]);
+    }
+    description.append(keyCount).append(" keys, ").append(values).append(" values in ")
+        .append(languages.size()).append(" languages (").append(languageCounts).append(')');
+    for (Map.Entry<String, Integer> status : getStatusCounts().entrySet()) {
+      description.append(", ").append(status.getValue()).append(' ').append(status.getKey());
+    }
+    return description.append(", ").append(valueBytes).append(" bytes").toString();
+  }
+
+  private void add(String language, long count, long bytes) {
+    long[] counts = languages.get(language);
+    if (counts == null) {
+      counts = new long[2];
+      languages.put(language, counts);
+    }
+    counts[0] += count;
+    counts[1] += bytes;
+  }
+
+  private void addStatus(String language, String statusName, int count) {
+    Map<String, Integer> languageStatusCounts = statusCounts.get(language);
+    if (languageStatusCounts == null) {
+      languageStatusCounts = new TreeMap<String, Integer>();
+      statusCounts.put(language, languageStatusCounts);
+    }
+    Integer previous = languageStatusCounts.get(statusName);
+    languageStatusCounts.put(statusName, previous == null ? count : previous + count);
+  }
+
+  /**
+   * Sums the value counts by status of all languages.
+   */
+  private Map<String, Integer> getStatusCounts() {
+    Map<String, Integer> counts = new TreeMap<String, Integer>();
+    for (Map<String, Integer> languageStatusCounts : statusCounts.values()) {
+      for (Map.Entry<String, Integer> status : languageStatusCounts.entrySet()) {
+        Integer previous = counts.get(status.getKey());
+        counts.put(status.getKey(), previous == null ? status.getValue() : previous + status.getValue());
+      }
+    }
+    return counts;
+  }
+
+  private static long utf8Length(String s) {
+    if (s == null) {
+      return 0;
+    }
+    long length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800 || Character.isSurrogate(c)) {
+        // a surrogate pair is encoded in four bytes
+        length += 2;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
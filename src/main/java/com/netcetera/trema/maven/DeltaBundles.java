@@ -0,0 +1,116 @@
+package com.netcetera.trema.maven;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+
+
+/**
+ * Reduces the exported language files to the texts differing from what the
+ * runtime would inherit anyway. Like resource bundles and Android resources,
+ * a language inherits from its exported parent languages (de_CH from de) and
+ * finally from the default file, so a text equal to the inherited one can be
+ * omitted.
+ *
+ * <p>The values of all exported languages are indexed per key once, each
+ * language file then only compares against the index.
+ */
+public class DeltaBundles {
+
+  private final List<String> columns;
+  private final String defaultLanguage;
+  private final Map<String, String[]> valuesByKey;
+
+
+  /**
+   * Builds the value index.
+   *
+   * @param nodes all text nodes of the database
+   * @param languages the exported languages
+   * @param defaultLanguage the language of the default file, <code>null</code> if
+   * no default file is exported, as texts can then not be inherited from it
+   * @param status the status to export, <code>null</code> for all
+   */
+  public DeltaBundles(ITextNode[] nodes, String[] languages, String defaultLanguage, Status[] status) {
+    columns = new ArrayList<String>(Arrays.asList(languages));
+    if (defaultLanguage != null && !columns.contains(defaultLanguage)) {
+      columns.add(defaultLanguage);
+    }
+    this.defaultLanguage = defaultLanguage;
+    valuesByKey = new HashMap<String, String[]>(nodes.length * 4 / 3 + 1);
+    for (ITextNode node : nodes) {
+      String[] values = new String[columns.size()];
+      for (int i = 0; i < values.length; i++) {
+        IValueNode valueNode = node.getValueNode(columns.get(i));
+        if (valueNode != null && ExportValues.matchesStatus(valueNode.getStatus(), status)) {
+          values[i] = valueNode.getValue();
+        }
+      }
+      valuesByKey.put(node.getKey(), values);
+    }
+  }
+
+  /**
+   * Gets the languages a language file inherits from, in lookup order: the
+   * exported parent languages and the language of the default file, if
+   * there is one.
+   *
+   * @param language the language
+   * @return the inherited languages
+   */
+  public List<String> getInheritedLanguages(String language) {
+    List<String> inherited = new ArrayList<String>();
+    for (String parent = FallbackChains.getParent(language); parent != null;
+        parent = FallbackChains.getParent(parent)) {
+      if (columns.contains(parent)) {
+        inherited.add(parent);
+      }
+    }
+    if (defaultLanguage != null && !inherited.contains(defaultLanguage)) {
+      inherited.add(defaultLanguage);
+    }
+    return inherited;
+  }
+
+  /**
+   * Removes the nodes whose text in a language equals the inherited text.
+   *
+   * @param nodes the text nodes to export
+   * @param language the language of the file, not of the default file
+   * @return the nodes to export, in the same order
+   */
+  public ITextNode[] omitInherited(ITextNode[] nodes, String language) {
+    List<String> inheritedLanguages = getInheritedLanguages(language);
+    int column = columns.indexOf(language);
+    if (inheritedLanguages.isEmpty() || column < 0) {
+      return nodes;
+    }
+    int[] inheritedColumns = new int[inheritedLanguages.size()];
+    for (int i = 0; i < inheritedColumns.length; i++) {
+      inheritedColumns[i] = columns.indexOf(inheritedLanguages.get(i));
+    }
+    List<ITextNode> result = new ArrayList<ITextNode>(nodes.length);
+    for (ITextNode node : nodes) {
+      String[] values = valuesByKey.get(node.getKey());
+      if (values == null || values[column] == null || !values[column].equals(inherited(values, inheritedColumns))) {
+        result.add(node);
+      }
+    }
+    return result.toArray(new ITextNode[result.size()]);
+  }
+
+  private static String inherited(String[] values, int[] inheritedColumns) {
+    for (int column : inheritedColumns) {
+      if (values[column] != null) {
+        return values[column];
+      }
+    }
+    return null;
+  }
+}
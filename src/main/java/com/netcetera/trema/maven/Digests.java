@@ -0,0 +1,55 @@
+package com.netcetera.trema.maven;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Content digest helpers used for cache keys and content-addressed file names.
+ */
+final class Digests {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private Digests() {
+  }
+
+  /**
+   * Creates a new SHA-256 message digest.
+   *
+   * @return the digest
+   */
+  static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Computes the SHA-256 digest of the given bytes as lower case hex string.
+   *
+   * @param bytes the bytes
+   * @return the hex encoded digest
+   */
+  static String sha256Hex(byte[] bytes) {
+    return toHex(newSha256().digest(bytes));
+  }
+
+  /**
+   * Encodes bytes as lower case hex string.
+   *
+   * @param bytes the bytes
+   * @return the hex string
+   */
+  static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+      chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+}
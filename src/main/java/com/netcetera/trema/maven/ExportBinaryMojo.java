@@ -0,0 +1,92 @@
+package com.netcetera.trema.maven;
+
+
+/**
+ * Export data from a Trema file into binary message catalogs, one file per
+ * language. The catalogs are read with
+ * {@link com.netcetera.trema.runtime.BinaryCatalog}, which memory maps
+ * the file and looks up keys without allocating, so all processes on a host
+ * share one copy of the texts in the page cache.
+ *
+ * @goal exportBinary
+ * @phase process-sources
+ * @threadSafe
+ */
+public class ExportBinaryMojo extends AbstractExportMojo {
+
+  /**
+   * Basename for the export. Path and beginning of the filename to be used for
+   * the catalogs, eg. text results in text_de.bin, text_en.bin etc.
+   *
+   * @parameter property="basename"
+   * default-value="${project.build.directory}/classes/text"
+   */
+  private String basename;
+
+  /**
+   * Defaultlanguage. If specified, this language will be exported into a
+   * default catalog without the language in the filename, eg. text.bin.
+   *
+   * @parameter property="defaultlanguage"
+   */
+  private String defaultlanguage;
+
+  /**
+   * Export filters. Filters to be applied for transformation of the text values
+   * during exporting. Possible values are: 'messageformat' (converts one
+   * singlequote into two singlequotes) 'addkeytovalue' (appends the key to each
+   * value for debugging purposes, resulting in: key=value [key])
+   *
+   * @parameter property="filters"
+   */
+  private String[] filters;
+
+
+  /**
+   * Sets the basename.
+   *
+   * @param basename the basename to set
+   */
+  public void setBasename(String basename) {
+    this.basename = basename;
+  }
+
+  /**
+   * Sets the defaultlanguage.
+   *
+   * @param defaultlanguage the defaultlanguage to set
+   */
+  public void setDefaultlanguage(String defaultlanguage) {
+    this.defaultlanguage = defaultlanguage;
+  }
+
+  /**
+   * Sets the filters.
+   *
+   * @param filters the filters to set
+   */
+  public void setFilters(String[] filters) {
+    this.filters = filters;
+  }
+
+  @Override
+  protected ExportType getExportType() {
+    return ExportType.BINARY;
+  }
+
+  @Override
+  protected String getBasename() {
+    return basename;
+  }
+
+  @Override
+  protected String getDefaultlanguage() {
+    return defaultlanguage;
+  }
+
+  @Override
+  protected String[] getFilters() {
+    return filters;
+  }
+
+}
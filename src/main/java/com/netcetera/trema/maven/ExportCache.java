@@ -0,0 +1,345 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.exporting.OutputStreamFactory;
+
+
+/**
+ * Content addressed cache of exported files, shared by all projects of a
+ * machine. An entry is keyed by the digest of the Trema file and the
+ * normalized export configuration and holds the exported files relative to
+ * the directory of the base name, so projects exporting the same Trema file
+ * with the same configuration reuse each other's files.
+ *
+ * <p>Entries are written to a temporary directory and renamed when complete,
+ * so concurrent builds never see partial entries. Using an entry updates its
+ * modification time, and when the cache grows beyond its size budget the
+ * least recently used entries are removed.
+ *
+ * <p>The versions of the plugin and of the Trema core are part of every key,
+ * so a project never restores files exported by another version, whose
+ * output may differ. Snapshot versions are qualified by the build time of
+ * their classes.
+ */
+public class ExportCache {
+
+  /** Version of the entry layout, part of every key. */
+  private static final String LAYOUT_VERSION = "2";
+
+  /** Group id of the plugin and of the Trema core. */
+  private static final String GROUP_ID = "com.netcetera.trema";
+
+  /** Suffix of entries being written. */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /** Age after which left over temporary entries of aborted builds are removed. */
+  private static final long TEMP_EXPIRY_MILLIS = 60L * 60L * 1000L;
+
+  private final File directory;
+  private final long maxSize;
+  private final boolean hardLinks;
+  private final String toolVersions;
+
+
+  /**
+   * Constructor.
+   *
+   * @param directory the cache directory, created if necessary
+   * @param maxSize the size budget in bytes
+   * @param hardLinks <code>true</code> to hard link restored files instead of copying them
+   */
+  public ExportCache(File directory, long maxSize, boolean hardLinks) {
+    this(directory, maxSize, hardLinks, getVersion(ExportCache.class, "trema-maven-plugin") + ","
+        + getVersion(XMLDatabase.class, "trema-core"));
+  }
+
+  /**
+   * Constructor with the versions of the exporting code.
+   *
+   * @param directory the cache directory, created if necessary
+   * @param maxSize the size budget in bytes
+   * @param hardLinks <code>true</code> to hard link restored files instead of copying them
+   * @param toolVersions the versions of the plugin and the Trema core, part of every key
+   */
+  // visible for testing
+  ExportCache(File directory, long maxSize, boolean hardLinks, String toolVersions) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.hardLinks = hardLinks;
+    this.toolVersions = toolVersions;
+  }
+
+  /**
+   * Gets the version of the artifact containing a class, from the Maven
+   * metadata of its jar or else the manifest. Snapshot and unknown versions
+   * are qualified by the modification time of the class, which changes with
+   * every build of the artifact.
+   *
+   * @param type a class of the artifact
+   * @param artifactId the artifact id
+   * @return the version
+   */
+  static String getVersion(Class<?> type, String artifactId) {
+    String version = null;
+    ClassLoader classLoader = type.getClassLoader();
+    InputStream inputStream = classLoader == null ? null
+        : classLoader.getResourceAsStream("META-INF/maven/" + GROUP_ID + "/" + artifactId + "/pom.properties");
+    if (inputStream != null) {
+      try {
+        try {
+          Properties properties = new Properties();
+          properties.load(inputStream);
+          version = properties.getProperty("version");
+        } finally {
+          inputStream.close();
+        }
+      } catch (IOException e) {
+        // fall back to the manifest
+      }
+    }
+    if (version == null && type.getPackage() != null) {
+      version = type.getPackage().getImplementationVersion();
+    }
+    if (version == null || version.endsWith("-SNAPSHOT")) {
+      long modified = 0;
+      URL classFile = type.getResource(type.getSimpleName() + ".class");
+      if (classFile != null) {
+        try {
+          modified = classFile.openConnection().getLastModified();
+        } catch (IOException e) {
+          // keep the version unqualified
+        }
+      }
+      version = (version == null ? "unknown" : version) + "@" + modified;
+    }
+    return artifactId + ":" + version;
+  }
+
+  /**
+   * Computes the key of an export.
+   *
+   * @param tremaFile the exported Trema file
+   * @param exportContext the export configuration
+   * @return the key, a hex encoded SHA-256 digest
+   * @throws IOException if the Trema file could not be read
+   */
+  public String getKey(File tremaFile, TremaExportContext exportContext) throws IOException {
+    return getKey(Collections.singletonList(tremaFile), exportContext);
+  }
+
+  /**
+   * Computes the key of an export of several Trema files.
+   *
+   * @param tremaFiles the exported Trema files, in the order they are merged
+   * @param exportContext the export configuration
+   * @return the key, a hex encoded SHA-256 digest
+   * @throws IOException if a Trema file could not be read
+   */
+  public String getKey(List<File> tremaFiles, TremaExportContext exportContext) throws IOException {
+    MessageDigest digest = Digests.newSha256();
+    digest.update((LAYOUT_VERSION + "," + toolVersions).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    for (File tremaFile : tremaFiles) {
+      digest.update(Files.readAllBytes(tremaFile.toPath()));
+      digest.update((byte) 0);
+    }
+    digest.update(exportContext.getNormalizedConfiguration().getBytes(StandardCharsets.UTF_8));
+    return Digests.toHex(digest.digest());
+  }
+
+  /**
+   * Restores the files of an entry into an output directory.
+   *
+   * @param key the key of the export
+   * @param outputDirectory the directory of the base name, may be
+   * <code>null</code> for the current directory
+   * @param outputStreamFactory factory for providing the output streams of copied files
+   * @return the restored files or <code>null</code> if there is no entry
+   * @throws IOException if the files could not be restored
+   */
+  public List<File> restore(String key, File outputDirectory, OutputStreamFactory outputStreamFactory)
+      throws IOException {
+    File entry = new File(directory, key);
+    if (!entry.isDirectory()) {
+      return null;
+    }
+    entry.setLastModified(System.currentTimeMillis());
+    List<File> restored = new ArrayList<File>();
+    for (Path source : listFiles(entry.toPath())) {
+      File target = new File(outputDirectory, entry.toPath().relativize(source).toString());
+      File parent = target.getParentFile();
+      if (parent != null && !parent.exists() && !parent.mkdirs()) {
+        throw new IOException("Could not create directory: " + parent.getAbsolutePath());
+      }
+      if (!hardLinks || !link(source, target.toPath())) {
+        OutputStream outputStream = outputStreamFactory.createOutputStream(target);
+        try {
+          Files.copy(source, outputStream);
+        } finally {
+          outputStream.close();
+        }
+      }
+      restored.add(target);
+    }
+    return restored;
+  }
+
+  /**
+   * Stores exported files as entry and evicts the least recently used entries
+   * if the cache exceeds its size budget. Nothing is stored if a file is not
+   * located in the output directory.
+   *
+   * @param key the key of the export
+   * @param outputDirectory the directory of the base name, may be
+   * <code>null</code> for the current directory
+   * @param files the exported files
+   * @return <code>true</code> if the files were stored
+   * @throws IOException if the files could not be stored
+   */
+  public boolean store(String key, File outputDirectory, Collection<File> files) throws IOException {
+    File entry = new File(directory, key);
+    if (entry.isDirectory()) {
+      return true;
+    }
+    File rootDirectory = outputDirectory == null ? new File(".") : outputDirectory;
+    Path root = rootDirectory.toPath().toAbsolutePath().normalize();
+    List<Path> relativePaths = new ArrayList<Path>();
+    for (File file : files) {
+      Path path = file.toPath().toAbsolutePath().normalize();
+      if (!path.startsWith(root)) {
+        return false;
+      }
+      relativePaths.add(root.relativize(path));
+    }
+    Files.createDirectories(directory.toPath());
+    Path temp = Files.createDirectory(directory.toPath().resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX));
+    try {
+      for (Path relativePath : relativePaths) {
+        Path target = temp.resolve(relativePath.toString());
+        Files.createDirectories(target.getParent());
+        Files.copy(root.resolve(relativePath), target);
+      }
+      Files.move(temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+      // stored concurrently by another build
+    } finally {
+      delete(temp);
+    }
+    evict();
+    return true;
+  }
+
+  /**
+   * Removes the least recently used entries until the cache fits into its
+   * size budget, and temporary entries left over by aborted builds.
+   *
+   * @throws IOException if an entry could not be removed
+   */
+  void evict() throws IOException {
+    File[] entries = directory.listFiles();
+    if (entries == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    List<File> completeEntries = new ArrayList<File>();
+    for (File entry : entries) {
+      if (!entry.getName().endsWith(TEMP_SUFFIX)) {
+        completeEntries.add(entry);
+      } else if (now - entry.lastModified() > TEMP_EXPIRY_MILLIS) {
+        delete(entry.toPath());
+      }
+    }
+    final long[] lastUsed = new long[completeEntries.size()];
+    long[] sizes = new long[completeEntries.size()];
+    long totalSize = 0;
+    Integer[] order = new Integer[completeEntries.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      lastUsed[i] = completeEntries.get(i).lastModified();
+      sizes[i] = size(completeEntries.get(i).toPath());
+      totalSize += sizes[i];
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Long.compare(lastUsed[a], lastUsed[b]);
+      }
+    });
+    for (int i = 0; i < order.length && totalSize > maxSize; i++) {
+      delete(completeEntries.get(order[i]).toPath());
+      totalSize -= sizes[order[i]];
+    }
+  }
+
+  private static boolean link(Path source, Path target) {
+    try {
+      Files.deleteIfExists(target);
+      Files.createLink(target, source);
+      return true;
+    } catch (IOException e) {
+      // e.g. cache and project on different file systems
+      return false;
+    } catch (UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  private static List<Path> listFiles(Path entry) throws IOException {
+    Stream<Path> paths = Files.walk(entry);
+    try {
+      List<Path> files = paths.filter(Files::isRegularFile).collect(Collectors.<Path>toList());
+      Collections.sort(files);
+      return files;
+    } finally {
+      paths.close();
+    }
+  }
+
+  private static long size(Path entry) throws IOException {
+    long size = 0;
+    for (Path file : listFiles(entry)) {
+      size += Files.size(file);
+    }
+    return size;
+  }
+
+  private static void delete(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    Stream<Path> paths = Files.walk(path);
+    try {
+      List<Path> all = paths.collect(Collectors.<Path>toList());
+      // children before their parents
+      Collections.reverse(all);
+      for (Path p : all) {
+        Files.deleteIfExists(p);
+      }
+    } finally {
+      paths.close();
+    }
+  }
+}
@@ -40,6 +40,47 @@ public class ExportJsonMojo extends AbstractExportMojo {
    */
   private String[] filters;
 
+  /**
+   * Shards. Key prefix rules, eg. 'checkout.*', to split each language into
+   * several files which can be loaded independently. Every rule results in
+   * files &lt;basename&gt;_&lt;rule prefix&gt;_&lt;language&gt;.json, keys not
+   * matched by any rule are written to &lt;basename&gt;_common_&lt;language&gt;.json.
+   * Dots in the prefix are replaced by '_', eg. app.home.* results in
+   * text_app_home_de.json.
+   * An index &lt;basename&gt;.shards.json lists the files of all shards.
+   *
+   * @parameter property="shards"
+   */
+  private String[] shards;
+
+  /**
+   * Content hashed file names. If enabled, the files are named by a hash of
+   * their content, eg. text_de.3f9a1c2b.json, and a manifest
+   * &lt;basename&gt;.manifest.json mapping each language to its file name and
+   * size is written. Unchanged languages keep their file name across builds
+   * and can be cached forever by browsers and CDNs.
+   *
+   * @parameter property="hashFileNames" default-value="false"
+   */
+  private boolean hashFileNames;
+
+  /**
+   * Nested JSON. If enabled, the keys are split on '.' into nested objects,
+   * eg. the key 'a.b' is exported as {"a":{"b":"..."}}. Keys that are a prefix
+   * of other keys (eg. 'a' and 'a.b') cannot be nested and fail the export.
+   *
+   * @parameter property="nested" default-value="false"
+   */
+  private boolean nested;
+
+  /**
+   * Minified JSON. If enabled, the JSON is written without any whitespace
+   * between the tokens.
+   *
+   * @parameter property="minified" default-value="false"
+   */
+  private boolean minified;
+
 
   /**
    * Sets the basename.
@@ -68,6 +109,50 @@ public class ExportJsonMojo extends AbstractExportMojo {
     this.filters = filters;
   }
 
+  /**
+   * Sets the hashFileNames.
+   *
+   * @param hashFileNames the hashFileNames to set
+   */
+  public void setHashFileNames(boolean hashFileNames) {
+    this.hashFileNames = hashFileNames;
+  }
+
+  /**
+   * Sets the shards.
+   *
+   * @param shards the shards to set
+   */
+  public void setShards(String[] shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * Sets the nested.
+   *
+   * @param nested the nested to set
+   */
+  public void setNested(boolean nested) {
+    this.nested = nested;
+  }
+
+  /**
+   * Sets the minified.
+   *
+   * @param minified the minified to set
+   */
+  public void setMinified(boolean minified) {
+    this.minified = minified;
+  }
+
+  @Override
+  protected void configureExportContext(TremaExportContext exportContext) {
+    exportContext.setContentHashFileNames(hashFileNames);
+    exportContext.setShards(shards);
+    exportContext.setJsonNested(nested);
+    exportContext.setJsonMinified(minified);
+  }
+
   @Override
   protected ExportType getExportType() {
     return ExportType.JSON;
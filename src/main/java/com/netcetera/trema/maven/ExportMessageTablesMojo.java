@@ -0,0 +1,128 @@
+package com.netcetera.trema.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+
+/**
+ * Export data from a Trema file into Java sources of a key class with one int
+ * constant per text key and one message table class per language holding the
+ * texts in an array indexed by these constants. Texts are looked up by array
+ * access instead of hashing the key string. The generated sources are added
+ * to the compile source roots of the project.
+ *
+ * @goal exportMessageTables
+ * @phase generate-sources
+ * @threadSafe
+ */
+public class ExportMessageTablesMojo extends AbstractExportMojo {
+
+  /**
+   * Output directory for the generated Java sources.
+   *
+   * @parameter property="outputDirectory"
+   * default-value="${project.build.directory}/generated-sources/trema"
+   */
+  private String outputDirectory;
+
+  /**
+   * Class name. Fully qualified name of the generated key class, the message
+   * table classes get the language appended, eg. com.example.Texts results in
+   * the classes com.example.Texts, com.example.Texts_de, com.example.Texts_en
+   * etc. Languages must therefore be valid in Java class names (eg. de_CH, not
+   * de-CH).
+   *
+   * @parameter property="className" default-value="Texts"
+   */
+  private String className;
+
+  /**
+   * Export filters. Filters to be applied for transformation of the text values
+   * during exporting. Possible values are: 'messageformat' (converts one
+   * singlequote into two singlequotes) 'addkeytovalue' (appends the key to each
+   * value for debugging purposes, resulting in: key=value [key])
+   *
+   * @parameter property="filters"
+   */
+  private String[] filters;
+
+  /**
+   * The maven project to add the generated sources to.
+   *
+   * @parameter default-value="${project}"
+   * @readonly
+   */
+  private MavenProject project;
+
+
+  /**
+   * Sets the outputDirectory.
+   *
+   * @param outputDirectory the outputDirectory to set
+   */
+  public void setOutputDirectory(String outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  /**
+   * Sets the className.
+   *
+   * @param className the className to set
+   */
+  public void setClassName(String className) {
+    this.className = className;
+  }
+
+  /**
+   * Sets the filters.
+   *
+   * @param filters the filters to set
+   */
+  public void setFilters(String[] filters) {
+    this.filters = filters;
+  }
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (!JavaSourceWriter.isQualifiedIdentifier(className)) {
+      final String msg = "className must be a valid Java class name: " + className;
+      getLog().error(msg);
+      throw new MojoExecutionException(msg);
+    }
+    super.execute();
+    // project not available in test cases
+    if (project != null) {
+      project.addCompileSourceRoot(outputDirectory);
+    }
+  }
+
+  @Override
+  protected void configureExportContext(TremaExportContext exportContext) {
+    int lastDot = className.lastIndexOf('.');
+    exportContext.setJavaPackage(lastDot < 0 ? "" : className.substring(0, lastDot));
+  }
+
+  @Override
+  protected ExportType getExportType() {
+    return ExportType.MESSAGE_TABLES;
+  }
+
+  @Override
+  protected String getBasename() {
+    if (outputDirectory == null || outputDirectory.length() == 0) {
+      return null;
+    }
+    return outputDirectory + "/" + className.replace('.', '/');
+  }
+
+  @Override
+  protected String getDefaultlanguage() {
+    return null;
+  }
+
+  @Override
+  protected String[] getFilters() {
+    return filters;
+  }
+
+}
@@ -40,6 +40,30 @@ public class ExportPropertiesMojo extends AbstractExportMojo {
    */
   private String[] filters;
 
+  /**
+   * Shards. Key prefix rules, eg. 'checkout.*', to split each language into
+   * several files which can be loaded independently. Every rule results in
+   * files &lt;basename&gt;_&lt;rule prefix&gt;_&lt;language&gt;.properties, keys not
+   * matched by any rule are written to &lt;basename&gt;_common_&lt;language&gt;.properties.
+   * Dots in the prefix are replaced by '_', eg. app.home.* results in
+   * text_app_home_de.properties.
+   * An index &lt;basename&gt;.shards.json lists the files of all shards.
+   *
+   * @parameter property="shards"
+   */
+  private String[] shards;
+
+  /**
+   * Encoding of the properties files. ISO-8859-1 writes all other characters
+   * as unicode escapes, readable by all Java versions. UTF-8 writes them as
+   * they are, which makes files with non-latin texts considerably smaller and
+   * faster to read. UTF-8 properties files are read by ResourceBundle since
+   * Java 9.
+   *
+   * @parameter property="encoding" default-value="ISO-8859-1"
+   */
+  private String encoding;
+
 
   /**
    * Sets the basename.
@@ -68,6 +92,30 @@ public class ExportPropertiesMojo extends AbstractExportMojo {
     this.filters = filters;
   }
 
+  /**
+   * Sets the shards.
+   *
+   * @param shards the shards to set
+   */
+  public void setShards(String[] shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * Sets the encoding.
+   *
+   * @param encoding the encoding to set
+   */
+  public void setEncoding(String encoding) {
+    this.encoding = encoding;
+  }
+
+  @Override
+  protected void configureExportContext(TremaExportContext exportContext) {
+    exportContext.setShards(shards);
+    exportContext.setPropertiesEncoding(encoding);
+  }
+
   @Override
   protected ExportType getExportType() {
     return ExportType.PROPERTIES;
@@ -0,0 +1,144 @@
+package com.netcetera.trema.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+
+/**
+ * Export data from a Trema file into Java source files of
+ * java.util.ListResourceBundle subclasses. The generated sources are added to
+ * the compile source roots of the project.
+ *
+ * @goal exportResourceBundle
+ * @phase generate-sources
+ * @threadSafe
+ */
+public class ExportResourceBundleMojo extends AbstractExportMojo {
+
+  /**
+   * Output directory for the generated Java sources.
+   *
+   * @parameter property="outputDirectory"
+   * default-value="${project.build.directory}/generated-sources/trema"
+   */
+  private String outputDirectory;
+
+  /**
+   * Bundle name. Fully qualified name of the generated bundle classes, the
+   * language is appended as for properties files, eg. com.example.Texts
+   * results in the classes com.example.Texts_de, com.example.Texts_en etc.
+   * Languages must therefore be valid in Java class names (eg. de_CH, not
+   * de-CH). The bundles are loaded with ResourceBundle.getBundle("com.example.Texts").
+   *
+   * @parameter property="bundleName" default-value="text"
+   */
+  private String bundleName;
+
+  /**
+   * Defaultlanguage. If specified, this language will be exported into a
+   * default bundle class without the language in the class name, eg.
+   * com.example.Texts.
+   *
+   * @parameter property="defaultlanguage"
+   */
+  private String defaultlanguage;
+
+  /**
+   * Export filters. Filters to be applied for transformation of the text values
+   * during exporting. Possible values are: 'messageformat' (converts one
+   * singlequote into two singlequotes) 'addkeytovalue' (appends the key to each
+   * value for debugging purposes, resulting in: key=value [key])
+   *
+   * @parameter property="filters"
+   */
+  private String[] filters;
+
+  /**
+   * The maven project to add the generated sources to.
+   *
+   * @parameter default-value="${project}"
+   * @readonly
+   */
+  private MavenProject project;
+
+
+  /**
+   * Sets the outputDirectory.
+   *
+   * @param outputDirectory the outputDirectory to set
+   */
+  public void setOutputDirectory(String outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  /**
+   * Sets the bundleName.
+   *
+   * @param bundleName the bundleName to set
+   */
+  public void setBundleName(String bundleName) {
+    this.bundleName = bundleName;
+  }
+
+  /**
+   * Sets the defaultlanguage.
+   *
+   * @param defaultlanguage the defaultlanguage to set
+   */
+  public void setDefaultlanguage(String defaultlanguage) {
+    this.defaultlanguage = defaultlanguage;
+  }
+
+  /**
+   * Sets the filters.
+   *
+   * @param filters the filters to set
+   */
+  public void setFilters(String[] filters) {
+    this.filters = filters;
+  }
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (!JavaSourceWriter.isQualifiedIdentifier(bundleName)) {
+      final String msg = "bundleName must be a valid Java class name: " + bundleName;
+      getLog().error(msg);
+      throw new MojoExecutionException(msg);
+    }
+    super.execute();
+    // project not available in test cases
+    if (project != null) {
+      project.addCompileSourceRoot(outputDirectory);
+    }
+  }
+
+  @Override
+  protected void configureExportContext(TremaExportContext exportContext) {
+    int lastDot = bundleName.lastIndexOf('.');
+    exportContext.setJavaPackage(lastDot < 0 ? "" : bundleName.substring(0, lastDot));
+  }
+
+  @Override
+  protected ExportType getExportType() {
+    return ExportType.RESOURCE_BUNDLE;
+  }
+
+  @Override
+  protected String getBasename() {
+    if (outputDirectory == null || outputDirectory.length() == 0) {
+      return null;
+    }
+    return outputDirectory + "/" + bundleName.replace('.', '/');
+  }
+
+  @Override
+  protected String getDefaultlanguage() {
+    return defaultlanguage;
+  }
+
+  @Override
+  protected String[] getFilters() {
+    return filters;
+  }
+
+}
@@ -18,7 +18,16 @@ public enum ExportType {
   ANDROID("android xml"),
 
   /** JSON files for AngularJS. */
-  JSON("JSON");
+  JSON("JSON"),
+
+  /** Java sources of ListResourceBundle classes. */
+  RESOURCE_BUNDLE("java resource bundle"),
+
+  /** Java sources of key constants and indexed message tables. */
+  MESSAGE_TABLES("java message tables"),
+
+  /** Memory mappable binary message catalogs. */
+  BINARY("binary catalog");
 
   private String name;
   private ExportType(String name) {
@@ -0,0 +1,75 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import com.netcetera.trema.core.exporting.KeyValuePair;
+
+
+/**
+ * Resolves the values to be exported the same way the trema core exporters do:
+ * the value of the requested language, restricted to the requested status and
+ * transformed by the export filters.
+ */
+final class ExportValues {
+
+  private ExportValues() {
+  }
+
+  /**
+   * Gets the value to export for a node.
+   *
+   * @param node the text node
+   * @param language the language
+   * @param status the status to export, <code>null</code> for all
+   * @param filters the export filters, may be <code>null</code>
+   * @return the filtered value or <code>null</code> if the node has no value
+   * to export for the language
+   */
+  static String getValue(ITextNode node, String language, Status[] status, IExportFilter[] filters) {
+    IValueNode valueNode = node.getValueNode(language);
+    if (valueNode == null || !matchesStatus(valueNode.getStatus(), status)) {
+      return null;
+    }
+    return filter(node.getKey(), valueNode.getValue(), filters);
+  }
+
+  /**
+   * Applies the export filters to a value.
+   *
+   * @param key the text key
+   * @param value the raw value
+   * @param filters the export filters, may be <code>null</code>
+   * @return the filtered value
+   */
+  static String filter(String key, String value, IExportFilter[] filters) {
+    if (filters == null || filters.length == 0) {
+      return value;
+    }
+    KeyValuePair keyValuePair = new KeyValuePair(key, value);
+    for (IExportFilter filter : filters) {
+      filter.filter(keyValuePair);
+    }
+    return keyValuePair.getValue();
+  }
+
+  /**
+   * Checks whether a status is one of the status to export.
+   *
+   * @param valueStatus the status of a value
+   * @param status the status to export, <code>null</code> for all
+   * @return <code>true</code> if the value is to be exported
+   */
+  static boolean matchesStatus(Status valueStatus, Status[] status) {
+    if (status == null) {
+      return true;
+    }
+    for (Status s : status) {
+      if (s == valueStatus) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
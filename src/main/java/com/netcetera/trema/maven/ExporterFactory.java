@@ -10,7 +10,6 @@ import java.io.Writer;
 import com.netcetera.trema.core.api.IExporter;
 import com.netcetera.trema.core.exporting.AndroidExporter;
 import com.netcetera.trema.core.exporting.CSVExporter;
-import com.netcetera.trema.core.exporting.JsonExporter;
 import com.netcetera.trema.core.exporting.OutputStreamFactory;
 import com.netcetera.trema.core.exporting.PropertiesExporter;
 import com.netcetera.trema.core.exporting.TremaCSVPrinter;
@@ -39,7 +38,10 @@ public class ExporterFactory {
         return new PropertiesExporter(file, osFactory);
 
       case JSON:
-        return new JsonExporter(file, osFactory);
+        // the streaming exporter writes sorted keys, so the files are reproducible
+        return new StreamingJsonExporter(file, osFactory,
+            exportContext != null && exportContext.isJsonNested(),
+            exportContext != null && exportContext.isJsonMinified());
 
       case CSV:
         Writer writer = new OutputStreamWriter(new FileOutputStream(file),
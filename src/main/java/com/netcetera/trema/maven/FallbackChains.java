@@ -0,0 +1,167 @@
+package com.netcetera.trema.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.XMLTextNode;
+import com.netcetera.trema.core.XMLValueNode;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+
+
+/**
+ * Fallback chains of the exported languages. A missing text of a language is
+ * taken from the first language of its chain having one, so every exported
+ * file is complete and the runtime never has to consult parent bundles.
+ *
+ * <p>The chain of a language is the configured chain or else its parent
+ * languages (de_CH falls back to de), followed by the default language and
+ * the master language.
+ */
+public class FallbackChains {
+
+  private final Map<String, List<String>> configuredChains;
+  private final String defaultLanguage;
+  private final String masterLanguage;
+  private final Map<String, List<String>> chains = new LinkedHashMap<String, List<String>>();
+
+
+  /**
+   * Constructor.
+   *
+   * @param configuredChains the configured chains by language, may be empty
+   * @param defaultLanguage the default language, may be <code>null</code>
+   * @param masterLanguage the master language of the database
+   */
+  public FallbackChains(Map<String, List<String>> configuredChains, String defaultLanguage,
+      String masterLanguage) {
+    this.configuredChains = configuredChains;
+    this.defaultLanguage = defaultLanguage;
+    this.masterLanguage = masterLanguage;
+  }
+
+  /**
+   * Parses configured chains of the form
+   * &lt;language&gt;:&lt;fallback&gt;,&lt;fallback&gt;..., eg. de_CH:fr_CH,de.
+   *
+   * @param chains the chains
+   * @return the fallbacks by language
+   * @throws IllegalArgumentException if a chain is malformed
+   */
+  public static Map<String, List<String>> parse(String[] chains) throws IllegalArgumentException {
+    Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+    for (String chain : chains) {
+      int colon = chain.indexOf(':');
+      if (colon <= 0 || colon == chain.length() - 1) {
+        throw new IllegalArgumentException("Invalid fallback chain: " + chain
+            + " (expected <language>:<fallback>,...)");
+      }
+      String language = chain.substring(0, colon).trim();
+      List<String> fallbacks = new ArrayList<String>();
+      for (String fallback : chain.substring(colon + 1).split(",", -1)) {
+        if (fallback.trim().length() == 0) {
+          throw new IllegalArgumentException("Invalid fallback chain: " + chain
+              + " (expected <language>:<fallback>,...)");
+        }
+        fallbacks.add(fallback.trim());
+      }
+      if (result.put(language, fallbacks) != null) {
+        throw new IllegalArgumentException("Duplicate fallback chain for language: " + language);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the languages a language falls back to, in order.
+   *
+   * @param language the language
+   * @return the fallback languages, not containing the language itself
+   */
+  public List<String> getChain(String language) {
+    List<String> chain = chains.get(language);
+    if (chain == null) {
+      chain = new ArrayList<String>();
+      List<String> configured = configuredChains.get(language);
+      if (configured != null) {
+        for (String fallback : configured) {
+          add(chain, language, fallback);
+        }
+      } else {
+        for (String parent = getParent(language); parent != null; parent = getParent(parent)) {
+          add(chain, language, parent);
+        }
+      }
+      add(chain, language, defaultLanguage);
+      add(chain, language, masterLanguage);
+      chain = Collections.unmodifiableList(chain);
+      chains.put(language, chain);
+    }
+    return chain;
+  }
+
+  /**
+   * Resolves the texts of one language. Nodes without a text of the language
+   * in one of the exported states are replaced by copies holding the text of
+   * the first fallback language that has one.
+   *
+   * @param nodes the text nodes
+   * @param language the language
+   * @param status the status to export, <code>null</code> for all
+   * @return the resolved nodes, in the same order
+   */
+  public ITextNode[] resolve(ITextNode[] nodes, String language, Status[] status) {
+    List<String> chain = getChain(language);
+    ITextNode[] resolved = new ITextNode[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      resolved[i] = resolve(nodes[i], language, status, chain);
+    }
+    return resolved;
+  }
+
+  private ITextNode resolve(ITextNode node, String language, Status[] status, List<String> chain) {
+    if (hasValue(node.getValueNode(language), status)) {
+      return node;
+    }
+    for (String fallback : chain) {
+      IValueNode fallbackValue = node.getValueNode(fallback);
+      if (hasValue(fallbackValue, status)) {
+        XMLTextNode copy = new XMLTextNode(node.getKey(), node.getContext());
+        // keep the master text for exporters showing it next to the translation
+        IValueNode masterValue = masterLanguage == null ? null : node.getValueNode(masterLanguage);
+        if (masterValue != null && !language.equals(masterLanguage)) {
+          copy.addValueNode(new XMLValueNode(masterLanguage, masterValue.getStatus(), masterValue.getValue()));
+        }
+        copy.addValueNode(new XMLValueNode(language, fallbackValue.getStatus(), fallbackValue.getValue()));
+        return copy;
+      }
+    }
+    return node;
+  }
+
+  private static boolean hasValue(IValueNode valueNode, Status[] status) {
+    return valueNode != null && valueNode.getValue() != null
+        && ExportValues.matchesStatus(valueNode.getStatus(), status);
+  }
+
+  private static void add(List<String> chain, String language, String fallback) {
+    if (fallback != null && !fallback.equals(language) && !chain.contains(fallback)) {
+      chain.add(fallback);
+    }
+  }
+
+  /**
+   * Gets the parent of a language, eg. de for de_CH or de-CH.
+   *
+   * @param language the language
+   * @return the parent or <code>null</code> if the language has none
+   */
+  static String getParent(String language) {
+    int separator = Math.max(language.lastIndexOf('_'), language.lastIndexOf('-'));
+    return separator > 0 ? language.substring(0, separator) : null;
+  }
+}
@@ -0,0 +1,98 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+
+/**
+ * Fingerprints of the files of the previous export, kept between builds to
+ * write only the files whose content changed. The manifest holds a digest of
+ * the export configuration and one fingerprint per file entry (a language or
+ * the default file); when the configuration changed, all entries count as
+ * changed.
+ */
+final class FingerprintManifest {
+
+  /** Name of the entry holding the digest of the configuration. */
+  private static final String CONFIGURATION_ENTRY = "configuration";
+
+  private final File file;
+  private final String configuration;
+  private final Map<String, String> previous = new TreeMap<String, String>();
+
+
+  /**
+   * Constructor, reads the manifest of the previous export if there is one
+   * with the same configuration.
+   *
+   * @param file the manifest file
+   * @param configuration the digest of the export configuration
+   * @throws IOException if the manifest could not be read
+   */
+  FingerprintManifest(File file, String configuration) throws IOException {
+    this.file = file;
+    this.configuration = configuration;
+    if (file.isFile()) {
+      Properties properties = new Properties();
+      InputStream inputStream = new FileInputStream(file);
+      try {
+        properties.load(inputStream);
+      } finally {
+        inputStream.close();
+      }
+      if (configuration.equals(properties.getProperty(CONFIGURATION_ENTRY))) {
+        for (String entry : properties.stringPropertyNames()) {
+          previous.put(entry, properties.getProperty(entry));
+        }
+        previous.remove(CONFIGURATION_ENTRY);
+      }
+    }
+  }
+
+  /**
+   * Checks whether the fingerprint of an entry differs from the previous
+   * export.
+   *
+   * @param entry the language or default file entry
+   * @param fingerprint the current fingerprint
+   * @return <code>true</code> if the entry changed or was not exported before
+   */
+  boolean isChanged(String entry, String fingerprint) {
+    return !fingerprint.equals(previous.get(entry));
+  }
+
+  /**
+   * Writes the manifest after an export. Entries of the previous export that
+   * were not exported this time are kept.
+   *
+   * @param fingerprints the fingerprints of the exported entries
+   * @throws IOException if the manifest could not be written
+   */
+  void write(Map<String, String> fingerprints) throws IOException {
+    Map<String, String> entries = new TreeMap<String, String>(previous);
+    entries.putAll(fingerprints);
+    File parent = file.getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Could not create directory: " + parent.getAbsolutePath());
+    }
+    Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8);
+    try {
+      writer.write(CONFIGURATION_ENTRY + "=" + configuration + "\n");
+      for (Map.Entry<String, String> entry : entries.entrySet()) {
+        // entries are language codes and hex digests, no escaping needed
+        writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+}
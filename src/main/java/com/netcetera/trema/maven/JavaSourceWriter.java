@@ -0,0 +1,188 @@
+package com.netcetera.trema.maven;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Helpers for writing generated Java source files. The generated sources only
+ * contain ASCII characters, so they compile regardless of the configured
+ * source encoding.
+ */
+final class JavaSourceWriter {
+
+  /** Header comment of all generated source files. */
+  static final String GENERATED_HEADER = "// Generated by the trema-maven-plugin. Do not edit.\n";
+
+  /**
+   * Maximal number of characters of a single string literal. The class file
+   * format limits constants to 65535 bytes of modified UTF-8 with up to three
+   * bytes per character.
+   */
+  private static final int MAX_LITERAL_CHARS = 20000;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Writer out;
+
+
+  /**
+   * Constructor.
+   *
+   * @param out the writer to write the source to
+   */
+  JavaSourceWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes text.
+   *
+   * @param text the text
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JavaSourceWriter append(String text) throws IOException {
+    out.write(text);
+    return this;
+  }
+
+  /**
+   * Writes an int value.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JavaSourceWriter append(int value) throws IOException {
+    out.write(Integer.toString(value));
+    return this;
+  }
+
+  /**
+   * Writes a string expression for a value. Values too long for a single
+   * constant are joined from several literals at runtime, <code>null</code>
+   * is written as <code>null</code>.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JavaSourceWriter appendString(String value) throws IOException {
+    if (value == null) {
+      out.write("null");
+    } else if (value.length() <= MAX_LITERAL_CHARS) {
+      appendLiteral(value, 0, value.length());
+    } else {
+      out.write("String.join(\"\"");
+      for (int start = 0; start < value.length(); start += MAX_LITERAL_CHARS) {
+        out.write(", ");
+        appendLiteral(value, start, Math.min(value.length(), start + MAX_LITERAL_CHARS));
+      }
+      out.write(')');
+    }
+    return this;
+  }
+
+  /**
+   * Writes text into a doc comment. Characters that could end the comment,
+   * start a unicode escape or are not ASCII are written as HTML character
+   * references.
+   *
+   * @param text the text
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JavaSourceWriter appendComment(String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x20 || c >= 0x7f || c == '*' || c == '\\' || c == '<' || c == '>' || c == '&'
+          || c == '@') {
+        out.write("&#");
+        out.write(Integer.toString(c));
+        out.write(';');
+      } else {
+        out.write(c);
+      }
+    }
+    return this;
+  }
+
+  private void appendLiteral(String value, int start, int end) throws IOException {
+    out.write('"');
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          out.write("\\\"");
+          break;
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        case '\r':
+          out.write("\\r");
+          break;
+        case '\t':
+          out.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            // unicode escapes of line terminators would break the literal,
+            // three digits so that a following digit is not taken as part of it
+            out.write('\\');
+            out.write('0');
+            out.write('0' + (c >> 3));
+            out.write('0' + (c & 7));
+          } else if (c < 0x7f) {
+            out.write(c);
+          } else {
+            out.write("\\u");
+            out.write(HEX[(c >> 12) & 0xF]);
+            out.write(HEX[(c >> 8) & 0xF]);
+            out.write(HEX[(c >> 4) & 0xF]);
+            out.write(HEX[c & 0xF]);
+          }
+      }
+    }
+    out.write('"');
+  }
+
+  /**
+   * Checks whether a name is a valid, possibly qualified, Java identifier.
+   *
+   * @param name the name
+   * @return <code>true</code> if the name is valid
+   */
+  static boolean isQualifiedIdentifier(String name) {
+    if (name == null || name.isEmpty()) {
+      return false;
+    }
+    for (String part : name.split("\\.", -1)) {
+      if (!isIdentifier(part)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether a name is a valid Java identifier.
+   *
+   * @param name the name
+   * @return <code>true</code> if the name is valid
+   */
+  static boolean isIdentifier(String name) {
+    if (name == null || name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+      return false;
+    }
+    for (int i = 1; i < name.length(); i++) {
+      if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,192 @@
+package com.netcetera.trema.maven;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Minimal streaming JSON writer. Values are written straight to the
+ * underlying writer, nothing is buffered apart from the nesting state.
+ */
+final class JsonWriter {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static final int MAX_DEPTH = 256;
+
+  private final Writer out;
+  private final boolean minified;
+  private final boolean[] hasElements = new boolean[MAX_DEPTH];
+  private int depth = 0;
+  private boolean afterName = false;
+
+
+  /**
+   * Constructor.
+   *
+   * @param out the writer to write to
+   * @param minified <code>true</code> to omit all optional whitespace
+   */
+  JsonWriter(Writer out, boolean minified) {
+    this.out = out;
+    this.minified = minified;
+  }
+
+  /**
+   * Opens a JSON object.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JsonWriter beginObject() throws IOException {
+    beforeValue();
+    if (depth == MAX_DEPTH - 1) {
+      throw new IOException("JSON nesting deeper than " + (MAX_DEPTH - 1) + " levels");
+    }
+    out.write('{');
+    depth++;
+    hasElements[depth] = false;
+    return this;
+  }
+
+  /**
+   * Closes the current JSON object.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JsonWriter endObject() throws IOException {
+    if (depth == 0) {
+      throw new IllegalStateException("No open JSON object");
+    }
+    boolean empty = !hasElements[depth];
+    depth--;
+    if (!empty) {
+      newline();
+    }
+    out.write('}');
+    if (depth == 0) {
+      newline();
+    }
+    return this;
+  }
+
+  /**
+   * Writes the name of the next member of the current object.
+   *
+   * @param name the member name
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JsonWriter name(String name) throws IOException {
+    if (depth == 0 || afterName) {
+      throw new IllegalStateException("Member name not allowed here: " + name);
+    }
+    if (hasElements[depth]) {
+      out.write(',');
+    }
+    hasElements[depth] = true;
+    newline();
+    writeString(name);
+    out.write(minified ? ":" : " : ");
+    afterName = true;
+    return this;
+  }
+
+  /**
+   * Writes a string value, <code>null</code> is written as JSON null.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JsonWriter value(String value) throws IOException {
+    beforeValue();
+    if (value == null) {
+      out.write("null");
+    } else {
+      writeString(value);
+    }
+    return this;
+  }
+
+  /**
+   * Writes a numeric value.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  JsonWriter value(long value) throws IOException {
+    beforeValue();
+    out.write(Long.toString(value));
+    return this;
+  }
+
+  /**
+   * Flushes the underlying writer.
+   *
+   * @throws IOException if flushing fails
+   */
+  void flush() throws IOException {
+    out.flush();
+  }
+
+  private void beforeValue() throws IOException {
+    if (depth > 0 && !afterName) {
+      throw new IllegalStateException("Value inside an object needs a member name");
+    }
+    afterName = false;
+  }
+
+  private void newline() throws IOException {
+    if (minified) {
+      return;
+    }
+    out.write('\n');
+    for (int i = 0; i < depth; i++) {
+      out.write("  ");
+    }
+  }
+
+  private void writeString(String s) throws IOException {
+    out.write('"');
+    int length = s.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      String replacement;
+      if (c == '"') {
+        replacement = "\\\"";
+      } else if (c == '\\') {
+        replacement = "\\\\";
+      } else if (c == '\n') {
+        replacement = "\\n";
+      } else if (c == '\r') {
+        replacement = "\\r";
+      } else if (c == '\t') {
+        replacement = "\\t";
+      } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+        replacement = null;
+      } else {
+        continue;
+      }
+      if (start < i) {
+        out.write(s, start, i - start);
+      }
+      if (replacement != null) {
+        out.write(replacement);
+      } else {
+        out.write("\\u");
+        out.write(HEX[(c >> 12) & 0xF]);
+        out.write(HEX[(c >> 8) & 0xF]);
+        out.write(HEX[(c >> 4) & 0xF]);
+        out.write(HEX[c & 0xF]);
+      }
+      start = i + 1;
+    }
+    if (start < length) {
+      out.write(s, start, length - start);
+    }
+    out.write('"');
+  }
+}
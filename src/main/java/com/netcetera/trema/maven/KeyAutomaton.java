@@ -0,0 +1,157 @@
+package com.netcetera.trema.maven;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Finds occurrences of text keys in source code in one pass, with an
+ * Aho-Corasick automaton built from all keys. An occurrence only counts as a
+ * reference if it is not part of a longer identifier or key, eg. "home.title"
+ * is found in <code>getString("home.title")</code> but not in
+ * <code>"home.title.short"</code>.
+ */
+final class KeyAutomaton {
+
+  private final String[] keys;
+
+  // transitions of state s: labels and targets from offsets[s] to offsets[s + 1], sorted by label
+  private final int[] offsets;
+  private final char[] labels;
+  private final int[] targets;
+
+  private final int[] fail;
+  // the key ending in a state or -1
+  private final int[] output;
+  // the next state on the fail chain with an output or 0
+  private final int[] outputLink;
+
+
+  /**
+   * Constructor, builds the automaton.
+   *
+   * @param keys the keys to find
+   */
+  KeyAutomaton(String[] keys) {
+    this.keys = keys;
+    List<TreeMap<Character, Integer>> trie = new ArrayList<TreeMap<Character, Integer>>();
+    List<Integer> outputs = new ArrayList<Integer>();
+    trie.add(new TreeMap<Character, Integer>());
+    outputs.add(-1);
+    for (int k = 0; k < keys.length; k++) {
+      if (keys[k].length() == 0) {
+        // the root state has no output
+        continue;
+      }
+      int state = 0;
+      for (int i = 0; i < keys[k].length(); i++) {
+        Integer next = trie.get(state).get(keys[k].charAt(i));
+        if (next == null) {
+          next = trie.size();
+          trie.get(state).put(keys[k].charAt(i), next);
+          trie.add(new TreeMap<Character, Integer>());
+          outputs.add(-1);
+        }
+        state = next;
+      }
+      outputs.set(state, k);
+    }
+
+    int states = trie.size();
+    offsets = new int[states + 1];
+    for (int s = 0; s < states; s++) {
+      offsets[s + 1] = offsets[s] + trie.get(s).size();
+    }
+    labels = new char[offsets[states]];
+    targets = new int[offsets[states]];
+    output = new int[states];
+    for (int s = 0; s < states; s++) {
+      int t = offsets[s];
+      for (Map.Entry<Character, Integer> transition : trie.get(s).entrySet()) {
+        labels[t] = transition.getKey();
+        targets[t] = transition.getValue();
+        t++;
+      }
+      output[s] = outputs.get(s);
+    }
+
+    // fail links in breadth first order, the states of a level only depend on shorter ones
+    fail = new int[states];
+    outputLink = new int[states];
+    int[] queue = new int[states];
+    int head = 0;
+    int tail = 0;
+    for (int t = offsets[0]; t < offsets[1]; t++) {
+      queue[tail++] = targets[t];
+    }
+    while (head < tail) {
+      int state = queue[head++];
+      for (int t = offsets[state]; t < offsets[state + 1]; t++) {
+        int child = targets[t];
+        int f = fail[state];
+        int next = transition(f, labels[t]);
+        while (next < 0 && f != 0) {
+          f = fail[f];
+          next = transition(f, labels[t]);
+        }
+        fail[child] = next < 0 ? 0 : next;
+        outputLink[child] = output[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  /**
+   * Finds the keys referenced in a text.
+   *
+   * @param text the text, eg. the content of a source file
+   * @param found the set of the indexes of the found keys, in the order of
+   * the constructor argument
+   */
+  void find(CharSequence text, BitSet found) {
+    int state = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      int next = transition(state, c);
+      while (next < 0 && state != 0) {
+        state = fail[state];
+        next = transition(state, c);
+      }
+      state = next < 0 ? 0 : next;
+      for (int s = output[state] >= 0 ? state : outputLink[state]; s != 0; s = outputLink[s]) {
+        int key = output[s];
+        if (isBoundary(text, i - keys[key].length()) && isBoundary(text, i + 1)) {
+          found.set(key);
+        }
+      }
+    }
+  }
+
+  private int transition(int state, char c) {
+    int low = offsets[state];
+    int high = offsets[state + 1] - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (labels[middle] < c) {
+        low = middle + 1;
+      } else if (labels[middle] > c) {
+        high = middle - 1;
+      } else {
+        return targets[middle];
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isBoundary(CharSequence text, int index) {
+    if (index < 0 || index >= text.length()) {
+      return true;
+    }
+    char c = text.charAt(index);
+    return !Character.isLetterOrDigit(c) && c != '_' && c != '.' && c != '-';
+  }
+}
@@ -0,0 +1,205 @@
+package com.netcetera.trema.maven;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.api.ITextNode;
+
+
+/**
+ * Selects the keys to export by include and exclude patterns. A pattern is
+ * either a key or a key prefix followed by '*', eg. "mobile.*"; "*" alone
+ * matches every key. A key is exported if it matches an include pattern, or
+ * if there are none, and no exclude pattern.
+ *
+ * <p>The patterns are compiled into one prefix trie whose nodes are marked
+ * with the patterns ending there, so matching a key is a single walk along
+ * its characters, independent of the number of patterns.
+ */
+public class KeyPatterns {
+
+  private static final int INCLUDE_KEY = 1;
+  private static final int INCLUDE_PREFIX = 2;
+  private static final int EXCLUDE_KEY = 4;
+  private static final int EXCLUDE_PREFIX = 8;
+
+  private final Node root;
+  private final boolean includeAll;
+  private final List<String> includes;
+  private final List<String> excludes;
+
+
+  /**
+   * Constructor.
+   *
+   * @param includes the patterns of the keys to export, <code>null</code> or
+   * empty to export all keys not excluded
+   * @param excludes the patterns of the keys not to export, may be
+   * <code>null</code>
+   * @throws IllegalArgumentException in case a pattern is invalid
+   */
+  public KeyPatterns(String[] includes, String[] excludes) throws IllegalArgumentException {
+    this.includes = normalize(includes);
+    this.excludes = normalize(excludes);
+    this.includeAll = this.includes.isEmpty();
+    Builder builder = new Builder();
+    for (String include : this.includes) {
+      builder.add(include, INCLUDE_KEY, INCLUDE_PREFIX);
+    }
+    for (String exclude : this.excludes) {
+      builder.add(exclude, EXCLUDE_KEY, EXCLUDE_PREFIX);
+    }
+    this.root = builder.build();
+  }
+
+  /**
+   * Checks whether a key is exported.
+   *
+   * @param key the text key
+   * @return <code>true</code> if the key is included and not excluded
+   */
+  public boolean matches(String key) {
+    boolean included = includeAll;
+    Node node = root;
+    int length = key.length();
+    for (int i = 0; ; i++) {
+      if ((node.flags & EXCLUDE_PREFIX) != 0) {
+        return false;
+      }
+      if ((node.flags & INCLUDE_PREFIX) != 0) {
+        included = true;
+      }
+      if (i == length) {
+        if ((node.flags & EXCLUDE_KEY) != 0) {
+          return false;
+        }
+        return included || (node.flags & INCLUDE_KEY) != 0;
+      }
+      node = node.child(key.charAt(i));
+      if (node == null) {
+        // no pattern continues with this key, only the prefixes seen so far count
+        return included;
+      }
+    }
+  }
+
+  /**
+   * Selects the text nodes with exported keys, keeping their order.
+   *
+   * @param nodes the text nodes
+   * @return the selected text nodes
+   */
+  public ITextNode[] select(ITextNode[] nodes) {
+    List<ITextNode> selected = new ArrayList<ITextNode>(nodes.length);
+    for (ITextNode node : nodes) {
+      if (matches(node.getKey())) {
+        selected.add(node);
+      }
+    }
+    return selected.toArray(new ITextNode[selected.size()]);
+  }
+
+  /**
+   * Creates a database with the text nodes with exported keys.
+   *
+   * @param xmlDb the database
+   * @return the database of the selected text nodes
+   */
+  public XMLDatabase select(XMLDatabase xmlDb) {
+    XMLDatabase selected = new XMLDatabase();
+    selected.setMasterLanguage(xmlDb.getMasterLanguage());
+    for (ITextNode node : select(xmlDb.getTextNodes())) {
+      selected.addTextNode(node);
+    }
+    return selected;
+  }
+
+  /**
+   * Describes the patterns, eg. "include=[mobile.*],exclude=[mobile.debug.*]".
+   *
+   * @return the patterns
+   */
+  @Override
+  public String toString() {
+    return "include=" + includes + ",exclude=" + excludes;
+  }
+
+  private static List<String> normalize(String[] patterns) throws IllegalArgumentException {
+    List<String> normalized = new ArrayList<String>();
+    if (patterns == null) {
+      return normalized;
+    }
+    for (String pattern : patterns) {
+      String trimmed = pattern == null ? "" : pattern.trim();
+      int wildcard = trimmed.indexOf('*');
+      if (trimmed.length() == 0 || wildcard >= 0 && wildcard != trimmed.length() - 1) {
+        throw new IllegalArgumentException("Invalid key pattern: " + pattern + " (expected <key> or <prefix>*)");
+      }
+      normalized.add(trimmed);
+    }
+    return normalized;
+  }
+
+  /**
+   * A node of the trie, the children sorted by character for a binary search.
+   */
+  private static final class Node {
+
+    private final char[] chars;
+    private final Node[] children;
+    private final int flags;
+
+    Node(char[] chars, Node[] children, int flags) {
+      this.chars = chars;
+      this.children = children;
+      this.flags = flags;
+    }
+
+    Node child(char c) {
+      int index = Arrays.binarySearch(chars, c);
+      return index < 0 ? null : children[index];
+    }
+  }
+
+  /**
+   * Collects the patterns in a mutable trie, then freezes it into
+   * {@link Node}s.
+   */
+  private static final class Builder {
+
+    private final Map<Character, Builder> children = new TreeMap<Character, Builder>();
+    private int flags;
+
+    void add(String pattern, int keyFlag, int prefixFlag) {
+      boolean prefix = pattern.endsWith("*");
+      int length = prefix ? pattern.length() - 1 : pattern.length();
+      Builder node = this;
+      for (int i = 0; i < length; i++) {
+        Character c = pattern.charAt(i);
+        Builder child = node.children.get(c);
+        if (child == null) {
+          child = new Builder();
+          node.children.put(c, child);
+        }
+        node = child;
+      }
+      node.flags |= prefix ? prefixFlag : keyFlag;
+    }
+
+    Node build() {
+      char[] chars = new char[children.size()];
+      Node[] nodes = new Node[children.size()];
+      int i = 0;
+      for (Map.Entry<Character, Builder> child : children.entrySet()) {
+        chars[i] = child.getKey();
+        nodes[i] = child.getValue().build();
+        i++;
+      }
+      return new Node(chars, nodes, flags);
+    }
+  }
+}
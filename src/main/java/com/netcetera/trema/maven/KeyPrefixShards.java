@@ -0,0 +1,168 @@
+package com.netcetera.trema.maven;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netcetera.trema.core.api.ITextNode;
+
+
+/**
+ * Splits text nodes into shards by key prefix rules like "checkout.*". Keys
+ * not matched by any rule go into the {@link #COMMON_SHARD}. If several rules
+ * match a key, the one with the longest prefix wins.
+ *
+ * <p>The name of a shard is its prefix with '.' replaced by '_', eg.
+ * "app_home" for "app.home.*", as a dot in a file name would be taken for a
+ * package by ResourceBundle.
+ */
+public class KeyPrefixShards {
+
+  /** Name of the shard collecting all keys not matched by any rule. */
+  public static final String COMMON_SHARD = "common";
+
+  private final String[] names;
+  private final String[] prefixes;
+
+
+  /**
+   * Constructor.
+   *
+   * @param patterns the shard patterns, each a key prefix followed by ".*"
+   * @throws IllegalArgumentException in case a pattern is invalid, its
+   * prefix contains characters other than letters, digits, '.', '_' and '-',
+   * or two patterns result in the same shard name
+   */
+  public KeyPrefixShards(String[] patterns) throws IllegalArgumentException {
+    Map<String, String> shards = new LinkedHashMap<String, String>();
+    for (String pattern : patterns) {
+      String trimmed = pattern == null ? "" : pattern.trim();
+      if (!trimmed.endsWith(".*") || trimmed.length() < 3) {
+        throw new IllegalArgumentException("Invalid shard: " + pattern + " (expected <prefix>.*)");
+      }
+      String prefix = trimmed.substring(0, trimmed.length() - 1);
+      String name = toShardName(prefix.substring(0, prefix.length() - 1));
+      if (name == null) {
+        throw new IllegalArgumentException("Invalid shard: " + pattern
+            + " (expected letters, digits, '.', '_' or '-' before .*)");
+      }
+      if (COMMON_SHARD.equals(name) || shards.containsKey(name)) {
+        throw new IllegalArgumentException("Duplicate shard: " + name);
+      }
+      shards.put(name, prefix);
+    }
+    // longest prefix first so that the first match is the most specific one
+    List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>(shards.entrySet());
+    entries.sort(new Comparator<Map.Entry<String, String>>() {
+      @Override
+      public int compare(Map.Entry<String, String> a, Map.Entry<String, String> b) {
+        return b.getValue().length() - a.getValue().length();
+      }
+    });
+    names = new String[entries.size()];
+    prefixes = new String[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      names[i] = entries.get(i).getKey();
+      prefixes[i] = entries.get(i).getValue();
+    }
+  }
+
+  /**
+   * Gets the name of the shard of a prefix, usable in the name of a file and
+   * of a resource bundle.
+   *
+   * @param prefix the prefix without the trailing '.'
+   * @return the name or <code>null</code> if the prefix contains other
+   * characters than letters, digits, '.', '_' and '-'
+   */
+  private static String toShardName(String prefix) {
+    StringBuilder name = new StringBuilder(prefix.length());
+    for (int i = 0; i < prefix.length(); i++) {
+      char c = prefix.charAt(i);
+      if (c == '.') {
+        name.append('_');
+      } else if (Character.isLetterOrDigit(c) || c == '_' || c == '-') {
+        name.append(c);
+      } else {
+        return null;
+      }
+    }
+    return name.toString();
+  }
+
+  /**
+   * Gets the key prefix of a shard.
+   *
+   * @param shard the shard name
+   * @return the prefix or <code>null</code> for the common shard
+   */
+  public String getPrefix(String shard) {
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(shard)) {
+        return prefixes[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the name of the shard a key belongs to.
+   *
+   * @param key the text key
+   * @return the shard name
+   */
+  public String getShard(String key) {
+    for (int i = 0; i < prefixes.length; i++) {
+      if (key.startsWith(prefixes[i])) {
+        return names[i];
+      }
+    }
+    return COMMON_SHARD;
+  }
+
+  /**
+   * Partitions the nodes into the shards. Every configured shard and the
+   * common shard are contained in the result even if they are empty, the
+   * order of the nodes is preserved.
+   *
+   * @param nodes the text nodes
+   * @return the nodes by shard name, sorted by shard name
+   */
+  public Map<String, ITextNode[]> partition(ITextNode[] nodes) {
+    String[] sortedNames = Arrays.copyOf(names, names.length + 1);
+    sortedNames[names.length] = COMMON_SHARD;
+    Arrays.sort(sortedNames);
+    Map<String, List<ITextNode>> lists = new LinkedHashMap<String, List<ITextNode>>();
+    for (String name : sortedNames) {
+      lists.put(name, new ArrayList<ITextNode>());
+    }
+    for (ITextNode node : nodes) {
+      lists.get(getShard(node.getKey())).add(node);
+    }
+    Map<String, ITextNode[]> result = new LinkedHashMap<String, ITextNode[]>();
+    for (Map.Entry<String, List<ITextNode>> entry : lists.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().toArray(new ITextNode[entry.getValue().size()]));
+    }
+    return result;
+  }
+
+  /**
+   * Describes the rules in matching order, eg. "checkout=checkout.,account=account.".
+   *
+   * @return the rules
+   */
+  @Override
+  public String toString() {
+    StringBuilder rules = new StringBuilder();
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        rules.append(',');
+      }
+      rules.append(names[i]).append('=').append(prefixes[i]);
+    }
+    return rules.toString();
+  }
+}
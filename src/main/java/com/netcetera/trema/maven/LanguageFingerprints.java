@@ -0,0 +1,123 @@
+package com.netcetera.trema.maven;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+
+
+/**
+ * Fingerprints of the texts of each language, to find the languages whose
+ * texts changed between two versions of a Trema file. A fingerprint is a
+ * digest of the keys, status and exported values of a language in the order
+ * of the database, so reordering texts changes it too.
+ */
+public final class LanguageFingerprints {
+
+  private LanguageFingerprints() {
+  }
+
+  /**
+   * Computes the fingerprints of all languages of the given nodes.
+   *
+   * @param nodes the text nodes
+   * @param status the status to export, <code>null</code> for all
+   * @return the hex encoded fingerprints by language
+   */
+  public static Map<String, String> compute(ITextNode[] nodes, Status[] status) {
+    return compute(nodes, status, null);
+  }
+
+  /**
+   * Computes the fingerprints of all languages of the given nodes from the
+   * values with the export filters applied.
+   *
+   * @param nodes the text nodes
+   * @param status the status to export, <code>null</code> for all
+   * @param filters the export filters, may be <code>null</code>
+   * @return the hex encoded fingerprints by language
+   */
+  public static Map<String, String> compute(ITextNode[] nodes, Status[] status, IExportFilter[] filters) {
+    Map<String, MessageDigest> digests = new TreeMap<String, MessageDigest>();
+    for (ITextNode node : nodes) {
+      byte[] key = node.getKey().getBytes(StandardCharsets.UTF_8);
+      for (IValueNode valueNode : node.getValueNodes()) {
+        if (!ExportValues.matchesStatus(valueNode.getStatus(), status)) {
+          continue;
+        }
+        MessageDigest digest = digests.get(valueNode.getLanguage());
+        if (digest == null) {
+          digest = Digests.newSha256();
+          digests.put(valueNode.getLanguage(), digest);
+        }
+        update(digest, key);
+        update(digest, valueNode.getStatus().getName().getBytes(StandardCharsets.UTF_8));
+        String value = ExportValues.filter(node.getKey(), valueNode.getValue(), filters);
+        update(digest, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    Map<String, String> fingerprints = new TreeMap<String, String>();
+    for (Map.Entry<String, MessageDigest> entry : digests.entrySet()) {
+      fingerprints.put(entry.getKey(), Digests.toHex(entry.getValue().digest()));
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Combines the fingerprints of a language and the languages its file
+   * depends on, e.g. its fallback languages.
+   *
+   * @param fingerprints the fingerprints by language
+   * @param languages the language followed by the languages it depends on
+   * @return the hex encoded combined fingerprint
+   */
+  public static String combine(Map<String, String> fingerprints, List<String> languages) {
+    MessageDigest digest = Digests.newSha256();
+    for (String language : languages) {
+      update(digest, language.getBytes(StandardCharsets.UTF_8));
+      String fingerprint = fingerprints.get(language);
+      update(digest, (fingerprint == null ? "" : fingerprint).getBytes(StandardCharsets.UTF_8));
+    }
+    return Digests.toHex(digest.digest());
+  }
+
+  /**
+   * Gets the languages whose fingerprint differs, including the languages
+   * only present in one of the versions.
+   *
+   * @param previous the fingerprints of the previous version
+   * @param current the fingerprints of the current version
+   * @return the changed languages, sorted
+   */
+  public static Set<String> getChangedLanguages(Map<String, String> previous, Map<String, String> current) {
+    Set<String> changed = new TreeSet<String>();
+    for (Map.Entry<String, String> entry : current.entrySet()) {
+      if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (String language : previous.keySet()) {
+      if (!current.containsKey(language)) {
+        changed.add(language);
+      }
+    }
+    return changed;
+  }
+
+  private static void update(MessageDigest digest, byte[] bytes) {
+    // length prefixed, so that no two sequences of fields digest the same bytes
+    digest.update((byte) (bytes.length >>> 24));
+    digest.update((byte) (bytes.length >>> 16));
+    digest.update((byte) (bytes.length >>> 8));
+    digest.update((byte) bytes.length);
+    digest.update(bytes);
+  }
+}
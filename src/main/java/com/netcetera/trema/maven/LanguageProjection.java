@@ -0,0 +1,60 @@
+package com.netcetera.trema.maven;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * The languages whose values are kept when a Trema file is parsed, so that
+ * the database only holds the values an export needs. The values of the other
+ * languages are skipped by the parser while it streams the file, which saves
+ * memory and parse time roughly in proportion to the skipped languages and
+ * costs nothing if no language is skipped. The values of the master language
+ * are always kept.
+ */
+final class LanguageProjection {
+
+  private final Set<String> languages;
+
+
+  /**
+   * Constructor.
+   *
+   * @param languages the languages whose values are kept
+   */
+  LanguageProjection(Collection<String> languages) {
+    this.languages = Collections.unmodifiableSet(new TreeSet<String>(languages));
+  }
+
+  /**
+   * Gets the languages whose values are kept, besides the master language.
+   *
+   * @return the languages, sorted
+   */
+  Set<String> getLanguages() {
+    return languages;
+  }
+
+  /**
+   * Checks whether the values of a language are kept.
+   *
+   * @param language the language of a value
+   * @param masterLanguage the master language of the file, may be <code>null</code>
+   * @return <code>true</code> if the values are kept
+   */
+  boolean keeps(String language, String masterLanguage) {
+    return languages.contains(language) || language != null && language.equals(masterLanguage);
+  }
+
+  /**
+   * Describes the projection, eg. "[de, en, fr]".
+   *
+   * @return the kept languages
+   */
+  @Override
+  public String toString() {
+    return languages.toString();
+  }
+}
@@ -0,0 +1,123 @@
+package com.netcetera.trema.maven;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.IExporter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.exporting.ExportException;
+import com.netcetera.trema.core.exporting.OutputStreamFactory;
+
+
+/**
+ * Exports the texts of one language as Java source of a
+ * {@link java.util.ListResourceBundle} subclass. Loading such a bundle is
+ * plain class loading, no text needs to be parsed or unescaped at runtime.
+ */
+public class ListResourceBundleExporter implements IExporter {
+
+  /**
+   * Number of entries initialized per nested class. Keeps every method below
+   * the 64k bytecode limit and every class below the constant pool limit.
+   */
+  static final int ENTRIES_PER_PART = 1000;
+
+  private final File file;
+  private final OutputStreamFactory outputStreamFactory;
+  private final String packageName;
+  private final String className;
+  private IExportFilter[] exportFilters;
+
+
+  /**
+   * Constructor.
+   *
+   * @param file the output file
+   * @param outputStreamFactory factory for providing the output stream
+   * @param packageName the package of the generated class, may be empty
+   * @param className the simple name of the generated class
+   */
+  public ListResourceBundleExporter(File file, OutputStreamFactory outputStreamFactory,
+      String packageName, String className) {
+    this.file = file;
+    this.outputStreamFactory = outputStreamFactory;
+    this.packageName = packageName;
+    this.className = className;
+  }
+
+  /**
+   * Sets the filters to be applied to the values.
+   *
+   * @param exportFilters the filters
+   */
+  public void setExportFilter(IExportFilter[] exportFilters) {
+    this.exportFilters = exportFilters;
+  }
+
+  @Override
+  public void export(ITextNode[] nodes, String masterlanguage, String language, Status[] states)
+      throws ExportException {
+    if (!JavaSourceWriter.isIdentifier(className)) {
+      throw new ExportException("Invalid class name '" + className + "' for language " + language);
+    }
+    ITextNode[] sortedNodes = Arrays.copyOf(nodes, nodes.length);
+    Arrays.sort(sortedNodes, StreamingJsonExporter.NODE_ORDER);
+    List<String> keys = new ArrayList<String>(sortedNodes.length);
+    List<String> values = new ArrayList<String>(sortedNodes.length);
+    for (ITextNode node : sortedNodes) {
+      String value = ExportValues.getValue(node, language, states, exportFilters);
+      if (value != null) {
+        keys.add(node.getKey());
+        values.add(value);
+      }
+    }
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(
+          outputStreamFactory.createOutputStream(file), StandardCharsets.UTF_8));
+      try {
+        writeSource(new JavaSourceWriter(writer), language, keys, values);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      throw new ExportException("Could not write " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void writeSource(JavaSourceWriter out, String language, List<String> keys, List<String> values)
+      throws IOException {
+    out.append(JavaSourceWriter.GENERATED_HEADER);
+    if (packageName != null && packageName.length() > 0) {
+      out.append("package ").append(packageName).append(";\n");
+    }
+    out.append("\n/**\n * Texts for language ").append(language).append(".\n */\n");
+    out.append("public class ").append(className).append(" extends java.util.ListResourceBundle {\n\n");
+    out.append("  @Override\n  protected Object[][] getContents() {\n");
+    out.append("    Object[][] contents = new Object[").append(keys.size()).append("][];\n");
+    int parts = (keys.size() + ENTRIES_PER_PART - 1) / ENTRIES_PER_PART;
+    for (int part = 0; part < parts; part++) {
+      out.append("    Part").append(part).append(".fill(contents);\n");
+    }
+    out.append("    return contents;\n  }\n");
+    for (int part = 0; part < parts; part++) {
+      out.append("\n  private static final class Part").append(part).append(" {\n\n");
+      out.append("    static void fill(Object[][] contents) {\n");
+      int end = Math.min(keys.size(), (part + 1) * ENTRIES_PER_PART);
+      for (int i = part * ENTRIES_PER_PART; i < end; i++) {
+        out.append("      contents[").append(i).append("] = new Object[] {");
+        out.appendString(keys.get(i)).append(", ").appendString(values.get(i)).append("};\n");
+      }
+      out.append("    }\n  }\n");
+    }
+    out.append("}\n");
+  }
+}
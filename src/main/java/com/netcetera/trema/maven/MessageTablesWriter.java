@@ -0,0 +1,338 @@
+package com.netcetera.trema.maven;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.exporting.ExportException;
+
+
+/**
+ * Generates Java sources for indexed message tables: a key class with one int
+ * constant per text key and a minimal perfect hash for looking up the index
+ * of a key string, plus one class per language holding the values in a
+ * String[] indexed by these constants.
+ */
+final class MessageTablesWriter {
+
+  /**
+   * Names of the fields of the generated classes, which constants must not
+   * take. The Part holder classes can not collide, as constant names are
+   * upper case.
+   */
+  private static final Set<String> RESERVED_NAMES =
+      new HashSet<String>(Arrays.asList("SIZE", "KEYS", "SEEDS", "MESSAGES"));
+
+  /**
+   * Maximal number of key constants declared by a single class. Every
+   * constant takes two entries of the constant pool, which is limited to
+   * 65535 entries. Larger key sets are spread over package private
+   * interfaces implemented by the key class, so the constants are still
+   * accessed through the key class.
+   */
+  static final int CONSTANTS_PER_CLASS = 10000;
+
+  private final String packageName;
+  private final String className;
+  private final int[] slots;
+  private final String[] keysBySlot;
+  private final MinimalPerfectHash hash;
+
+
+  /**
+   * Constructor. Computes the index of every key.
+   *
+   * @param packageName the package of the generated classes, may be empty
+   * @param className the simple name of the key class
+   * @param nodes all text nodes of the database
+   * @throws ExportException if no perfect hash of the keys is found
+   */
+  MessageTablesWriter(String packageName, String className, ITextNode[] nodes) throws ExportException {
+    this.packageName = packageName;
+    this.className = className;
+    String[] keys = new String[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      keys[i] = nodes[i].getKey();
+    }
+    hash = new MinimalPerfectHash(keys);
+    keysBySlot = hash.keysBySlot(keys);
+    slots = new int[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      slots[i] = hash.getSlot(i);
+    }
+  }
+
+  /**
+   * Writes the key class.
+   *
+   * @param outputStream the stream to write to, is closed afterwards
+   * @throws IOException if writing fails
+   */
+  void writeKeyClass(OutputStream outputStream) throws IOException {
+    Writer writer = newWriter(outputStream);
+    try {
+      JavaSourceWriter out = new JavaSourceWriter(writer);
+      String[] constantNames = getConstantNames();
+      String[] sortedKeys = Arrays.copyOf(keysBySlot, keysBySlot.length);
+      Arrays.sort(sortedKeys);
+      Map<String, Integer> slotByKey = new HashMap<String, Integer>();
+      for (int slot = 0; slot < keysBySlot.length; slot++) {
+        slotByKey.put(keysBySlot[slot], slot);
+      }
+      int[] sortedSlots = new int[sortedKeys.length];
+      for (int i = 0; i < sortedKeys.length; i++) {
+        sortedSlots[i] = slotByKey.get(sortedKeys[i]);
+      }
+      int holders = sortedKeys.length > CONSTANTS_PER_CLASS
+          ? (sortedKeys.length + CONSTANTS_PER_CLASS - 1) / CONSTANTS_PER_CLASS : 0;
+      StringBuilder declaration = new StringBuilder(className);
+      for (int holder = 0; holder < holders; holder++) {
+        declaration.append(holder == 0 ? " implements " : ", ").append(getHolderName(holder));
+      }
+      writeClassStart(out, "Text keys. The constants are the indexes of the texts in the\n"
+          + " * message tables of the languages, e.g. " + className + "_en.get(" + className + ".SOME_KEY).",
+          declaration.toString());
+      out.append("  /** Number of keys. */\n");
+      out.append("  public static final int SIZE = ").append(keysBySlot.length).append(";\n\n");
+      if (holders == 0) {
+        writeConstants(out, sortedSlots, constantNames, 0, sortedSlots.length, "  public static final ");
+      }
+      out.append("  private static final String[] KEYS = new String[SIZE];\n");
+      out.append("  private static final int[] SEEDS = decode(");
+      out.appendString(encode(hash.getSeeds())).append(");\n\n");
+      writeFillCalls(out, "KEYS", keysBySlot.length);
+      out.append("  private ").append(className).append("() {\n  }\n\n");
+      out.append("  /**\n   * Gets the text key of an index.\n   *\n");
+      out.append("   * @param index the index\n   * @return the text key\n   */\n");
+      out.append("  public static String keyAt(int index) {\n    return KEYS[index];\n  }\n\n");
+      out.append("  /**\n   * Gets the index of a text key.\n   *\n");
+      out.append("   * @param key the text key\n   * @return the index or -1 for unknown keys\n   */\n");
+      out.append("  public static int indexOf(String key) {\n");
+      out.append("    if (key == null || SIZE == 0) {\n      return -1;\n    }\n");
+      out.append("    int seed = SEEDS[hash(0, key) % SIZE];\n");
+      out.append("    int index = seed < 0 ? -seed - 1 : hash(seed, key) % SIZE;\n");
+      out.append("    return KEYS[index].equals(key) ? index : -1;\n  }\n\n");
+      out.append("  private static int hash(int seed, String key) {\n");
+      out.append("    int h = seed == 0 ? 0x811c9dc5 : seed;\n");
+      out.append("    for (int i = 0; i < key.length(); i++) {\n");
+      out.append("      h ^= key.charAt(i);\n      h *= 0x01000193;\n    }\n");
+      out.append("    h ^= h >>> 16;\n    h *= 0x85ebca6b;\n    h ^= h >>> 13;\n");
+      out.append("    h *= 0xc2b2ae35;\n    h ^= h >>> 16;\n");
+      out.append("    return h & 0x7fffffff;\n  }\n\n");
+      out.append("  private static int[] decode(String data) {\n");
+      out.append("    int[] values = new int[data.length() / 2];\n");
+      out.append("    for (int i = 0; i < values.length; i++) {\n");
+      out.append("      values[i] = data.charAt(2 * i) << 16 | data.charAt(2 * i + 1);\n    }\n");
+      out.append("    return values;\n  }\n");
+      writeParts(out, keysBySlot);
+      out.append("}\n");
+      for (int holder = 0; holder < holders; holder++) {
+        out.append("\n/**\n * Text keys ").append(holder * CONSTANTS_PER_CLASS + 1).append(" to ")
+            .append(Math.min(sortedKeys.length, (holder + 1) * CONSTANTS_PER_CLASS)).append(", inherited by ")
+            .append(className).append(".\n */\n");
+        out.append("interface ").append(getHolderName(holder)).append(" {\n\n");
+        writeConstants(out, sortedSlots, constantNames, holder * CONSTANTS_PER_CLASS,
+            Math.min(sortedSlots.length, (holder + 1) * CONSTANTS_PER_CLASS), "  ");
+        out.append("}\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes the constants of a range of the keys in key order.
+   *
+   * @param out the writer
+   * @param sortedSlots the slots of all keys in key order
+   * @param constantNames the constant names by slot
+   * @param start the index of the first key
+   * @param end the index after the last key
+   * @param modifiers the indentation and modifiers of the constants
+   * @throws IOException if writing fails
+   */
+  private void writeConstants(JavaSourceWriter out, int[] sortedSlots, String[] constantNames, int start,
+      int end, String modifiers) throws IOException {
+    for (int i = start; i < end; i++) {
+      int slot = sortedSlots[i];
+      out.append("  /** Index of the text key ").appendComment(keysBySlot[slot]).append(". */\n");
+      out.append(modifiers).append("int ").append(constantNames[slot]).append(" = ").append(slot)
+          .append(";\n\n");
+    }
+  }
+
+  private String getHolderName(int holder) {
+    return className + "Keys" + holder;
+  }
+
+  /**
+   * Writes the message table class of a language.
+   *
+   * @param outputStream the stream to write to, is closed afterwards
+   * @param nodes the text nodes of the language, in the order passed to the constructor
+   * @param language the language
+   * @param status the status to export, <code>null</code> for all
+   * @param filters the export filters, may be <code>null</code>
+   * @throws IOException if writing fails
+   */
+  void writeLanguageClass(OutputStream outputStream, ITextNode[] nodes, String language,
+      Status[] status, IExportFilter[] filters) throws IOException {
+    String[] values = new String[slots.length];
+    for (int i = 0; i < slots.length; i++) {
+      values[slots[i]] = ExportValues.getValue(nodes[i], language, status, filters);
+    }
+    String languageClassName = getLanguageClassName(language);
+    Writer writer = newWriter(outputStream);
+    try {
+      JavaSourceWriter out = new JavaSourceWriter(writer);
+      writeClassStart(out, "Message table for language " + language + ", indexed by the constants of "
+          + className + ".", languageClassName);
+      out.append("  private static final String[] MESSAGES = new String[").append(values.length)
+          .append("];\n\n");
+      writeFillCalls(out, "MESSAGES", values.length);
+      out.append("  private ").append(languageClassName).append("() {\n  }\n\n");
+      out.append("  /**\n   * Gets a text by index.\n   *\n");
+      out.append("   * @param index the index, one of the constants of ").append(className).append("\n");
+      out.append("   * @return the text or null if there is none for the language\n   */\n");
+      out.append("  public static String get(int index) {\n    return MESSAGES[index];\n  }\n\n");
+      out.append("  /**\n   * Gets a text by key.\n   *\n");
+      out.append("   * @param key the text key\n");
+      out.append("   * @return the text or null if the key is unknown or there is no text for the language\n");
+      out.append("   */\n");
+      out.append("  public static String get(String key) {\n");
+      out.append("    int index = ").append(className).append(".indexOf(key);\n");
+      out.append("    return index < 0 ? null : MESSAGES[index];\n  }\n");
+      writeParts(out, values);
+      out.append("}\n");
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Gets the simple name of the message table class of a language.
+   *
+   * @param language the language
+   * @return the class name
+   */
+  String getLanguageClassName(String language) {
+    return className + "_" + language;
+  }
+
+  // Visible for testing
+  String[] getConstantNames() {
+    String[] names = new String[keysBySlot.length];
+    Set<String> used = new HashSet<String>(RESERVED_NAMES);
+    String[] sortedKeys = Arrays.copyOf(keysBySlot, keysBySlot.length);
+    Arrays.sort(sortedKeys);
+    Map<String, String> nameByKey = new HashMap<String, String>();
+    for (String key : sortedKeys) {
+      String base = toConstantName(key);
+      String name = base;
+      for (int i = 2; !used.add(name); i++) {
+        name = base + "_" + i;
+      }
+      nameByKey.put(key, name);
+    }
+    for (int slot = 0; slot < keysBySlot.length; slot++) {
+      names[slot] = nameByKey.get(keysBySlot[slot]);
+    }
+    return names;
+  }
+
+  /**
+   * Converts a text key into an upper case constant name, e.g.
+   * "checkout.payButton" into "CHECKOUT_PAY_BUTTON". Names starting with a
+   * digit are prefixed with "KEY_", keys without any ASCII letter or digit
+   * (e.g. "..." or CJK keys) become "KEY", as the name "_" is a keyword.
+   *
+   * @param key the text key
+   * @return the constant name
+   */
+  static String toConstantName(String key) {
+    StringBuilder name = new StringBuilder(key.length() + 8);
+    char previous = '_';
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c < 0x80 && Character.isLetterOrDigit(c)) {
+        if (Character.isUpperCase(c) && (Character.isLowerCase(previous) || Character.isDigit(previous))) {
+          name.append('_');
+        }
+        name.append(Character.toUpperCase(c));
+        previous = c;
+      } else if (previous != '_') {
+        name.append('_');
+        previous = '_';
+      }
+    }
+    if (name.length() > 0 && name.charAt(name.length() - 1) == '_') {
+      name.setLength(name.length() - 1);
+    }
+    if (name.length() == 0) {
+      name.append("KEY");
+    } else if (Character.isDigit(name.charAt(0))) {
+      name.insert(0, "KEY_");
+    }
+    return name.toString();
+  }
+
+  private void writeClassStart(JavaSourceWriter out, String comment, String name) throws IOException {
+    out.append(JavaSourceWriter.GENERATED_HEADER);
+    if (packageName != null && packageName.length() > 0) {
+      out.append("package ").append(packageName).append(";\n");
+    }
+    out.append("\n/**\n * ").append(comment).append("\n */\n");
+    out.append("public final class ").append(name).append(" {\n\n");
+  }
+
+  private static void writeFillCalls(JavaSourceWriter out, String field, int size) throws IOException {
+    int parts = (size + ListResourceBundleExporter.ENTRIES_PER_PART - 1)
+        / ListResourceBundleExporter.ENTRIES_PER_PART;
+    if (parts > 0) {
+      out.append("  static {\n");
+      for (int part = 0; part < parts; part++) {
+        out.append("    Part").append(part).append(".fill(").append(field).append(");\n");
+      }
+      out.append("  }\n\n");
+    }
+  }
+
+  private static void writeParts(JavaSourceWriter out, String[] values) throws IOException {
+    int perPart = ListResourceBundleExporter.ENTRIES_PER_PART;
+    for (int part = 0; part * perPart < values.length; part++) {
+      out.append("\n  private static final class Part").append(part).append(" {\n\n");
+      out.append("    static void fill(String[] values) {\n");
+      int end = Math.min(values.length, (part + 1) * perPart);
+      for (int i = part * perPart; i < end; i++) {
+        if (values[i] != null) {
+          out.append("      values[").append(i).append("] = ").appendString(values[i]).append(";\n");
+        }
+      }
+      out.append("    }\n  }\n");
+    }
+  }
+
+  private static String encode(int[] values) {
+    char[] chars = new char[values.length * 2];
+    for (int i = 0; i < values.length; i++) {
+      chars[2 * i] = (char) (values[i] >>> 16);
+      chars[2 * i + 1] = (char) values[i];
+    }
+    return new String(chars);
+  }
+
+  private static Writer newWriter(OutputStream outputStream) {
+    return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,206 @@
+package com.netcetera.trema.maven;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.netcetera.trema.core.exporting.ExportException;
+
+
+/**
+ * Minimal perfect hash over a fixed set of keys ("hash, displace and
+ * compress"). Every key is mapped to a distinct slot in 0..size-1 with two
+ * hash computations and one table lookup:
+ *
+ * <pre>
+ * seed = seeds[hash(0, key) % size]
+ * slot = seed &lt; 0 ? -seed - 1 : hash(seed, key) % size
+ * </pre>
+ *
+ * The same hash function is emitted into generated lookup code, so it must
+ * never change.
+ */
+final class MinimalPerfectHash {
+
+  private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  /**
+   * Highest seed tried for a bucket. Buckets usually find a seed within a few
+   * hundred tries, the bound keeps seeds positive as negative seeds encode
+   * the slots of single key buckets.
+   */
+  static final int MAX_SEED = 1 << 24;
+
+  private final int[] seeds;
+  private final int[] slots;
+
+
+  /**
+   * Builds the hash for distinct keys.
+   *
+   * @param keys the keys, must not contain duplicates
+   * @throws ExportException if no seed places the keys of a bucket
+   */
+  MinimalPerfectHash(String[] keys) throws ExportException {
+    this(keys, MAX_SEED);
+  }
+
+  /**
+   * Builds the hash for distinct keys with a bounded seed search.
+   *
+   * @param keys the keys, must not contain duplicates
+   * @param maxSeed the highest seed tried for a bucket
+   * @throws ExportException if no seed up to maxSeed places the keys of a bucket
+   */
+  // Visible for testing
+  MinimalPerfectHash(String[] keys, int maxSeed) throws ExportException {
+    int size = keys.length;
+    seeds = new int[size];
+    slots = new int[size];
+    if (size == 0) {
+      return;
+    }
+
+    // group the keys into buckets by the first hash, handle big buckets first
+    List<List<Integer>> buckets = new ArrayList<List<Integer>>(size);
+    for (int i = 0; i < size; i++) {
+      buckets.add(new ArrayList<Integer>(1));
+    }
+    for (int i = 0; i < size; i++) {
+      buckets.get(hash(0, keys[i]) % size).add(i);
+    }
+    Integer[] bucketOrder = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      bucketOrder[i] = i;
+    }
+    final List<List<Integer>> bucketList = buckets;
+    Arrays.sort(bucketOrder, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        int bySize = bucketList.get(b).size() - bucketList.get(a).size();
+        return bySize != 0 ? bySize : a - b;
+      }
+    });
+
+    boolean[] taken = new boolean[size];
+    int next = 0;
+    // buckets with several keys: search a seed placing all keys in free slots
+    for (; next < size && buckets.get(bucketOrder[next]).size() > 1; next++) {
+      int bucket = bucketOrder[next];
+      List<Integer> members = buckets.get(bucket);
+      int[] candidate = new int[members.size()];
+      int seed = 1;
+      while (!place(keys, members, seed, taken, candidate)) {
+        if (seed == maxSeed) {
+          throw new ExportException("Could not build a perfect hash of " + size + " keys: no seed up to "
+              + maxSeed + " places the " + members.size() + " keys of a bucket, e.g. '"
+              + keys[members.get(0)] + "'");
+        }
+        seed++;
+      }
+      seeds[bucket] = seed;
+      for (int i = 0; i < candidate.length; i++) {
+        taken[candidate[i]] = true;
+        slots[members.get(i)] = candidate[i];
+      }
+    }
+    // buckets with a single key: point directly to a free slot
+    int free = 0;
+    for (; next < size && buckets.get(bucketOrder[next]).size() == 1; next++) {
+      int bucket = bucketOrder[next];
+      while (taken[free]) {
+        free++;
+      }
+      taken[free] = true;
+      seeds[bucket] = -free - 1;
+      slots[buckets.get(bucket).get(0)] = free;
+    }
+  }
+
+  private static boolean place(String[] keys, List<Integer> members, int seed, boolean[] taken,
+      int[] candidate) {
+    for (int i = 0; i < candidate.length; i++) {
+      int slot = hash(seed, keys[members.get(i)]) % taken.length;
+      if (taken[slot]) {
+        return false;
+      }
+      for (int j = 0; j < i; j++) {
+        if (candidate[j] == slot) {
+          return false;
+        }
+      }
+      candidate[i] = slot;
+    }
+    return true;
+  }
+
+  /**
+   * The hash function, 32 bit FNV-1a over the UTF-16 chars of the key with
+   * the finalizer of MurmurHash3. Without it the low bits of the hash only
+   * depend on the low bits of the seed and the chars, so the slots modulo a
+   * power of two would repeat for every seed.
+   *
+   * @param seed the seed, 0 for the first level hash
+   * @param key the key
+   * @return a non-negative hash
+   */
+  static int hash(int seed, String key) {
+    int h = seed == 0 ? FNV_OFFSET_BASIS : seed;
+    for (int i = 0; i < key.length(); i++) {
+      h ^= key.charAt(i);
+      h *= FNV_PRIME;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h & 0x7fffffff;
+  }
+
+  /**
+   * Gets the seed table.
+   *
+   * @return the seeds, one per first level bucket
+   */
+  int[] getSeeds() {
+    return seeds;
+  }
+
+  /**
+   * Gets the slot assigned to a key.
+   *
+   * @param keyIndex the index of the key in the array passed to the constructor
+   * @return the slot
+   */
+  int getSlot(int keyIndex) {
+    return slots[keyIndex];
+  }
+
+  /**
+   * Looks up the slot of a key, only meaningful for keys of the set.
+   *
+   * @param key the key
+   * @return the slot
+   */
+  int lookup(String key) {
+    int seed = seeds[hash(0, key) % seeds.length];
+    return seed < 0 ? -seed - 1 : hash(seed, key) % seeds.length;
+  }
+
+  /**
+   * Gets the keys ordered by their slots.
+   *
+   * @param keys the keys passed to the constructor
+   * @return the keys by slot
+   */
+  String[] keysBySlot(String[] keys) {
+    String[] result = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      result[slots[i]] = keys[i];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,166 @@
+package com.netcetera.trema.maven;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.IExporter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.exporting.ExportException;
+import com.netcetera.trema.core.exporting.OutputStreamFactory;
+
+
+/**
+ * Exports the texts of one language as properties file. Unlike
+ * java.util.Properties#store, the output only depends on the texts: the keys
+ * are sorted, there is no timestamp comment and lines always end with '\n',
+ * so identical databases result in identical files on every platform.
+ *
+ * <p>Files are encoded in ISO-8859-1 with all non-ASCII characters written
+ * as unicode escapes, or in UTF-8 as read by PropertyResourceBundle since
+ * Java 9, where only the characters with a special meaning in properties
+ * files are escaped.
+ */
+public class PropertiesFileExporter implements IExporter {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private final File file;
+  private final OutputStreamFactory outputStreamFactory;
+  private final boolean utf8;
+  private IExportFilter[] exportFilters;
+
+
+  /**
+   * Constructor.
+   *
+   * @param file the output file
+   * @param outputStreamFactory factory for providing the output stream
+   * @param utf8 <code>true</code> for UTF-8, <code>false</code> for ISO-8859-1
+   */
+  public PropertiesFileExporter(File file, OutputStreamFactory outputStreamFactory, boolean utf8) {
+    this.file = file;
+    this.outputStreamFactory = outputStreamFactory;
+    this.utf8 = utf8;
+  }
+
+  /**
+   * Sets the filters to be applied to the values.
+   *
+   * @param exportFilters the filters
+   */
+  public void setExportFilter(IExportFilter[] exportFilters) {
+    this.exportFilters = exportFilters;
+  }
+
+  @Override
+  public void export(ITextNode[] nodes, String masterlanguage, String language, Status[] states)
+      throws ExportException {
+    ITextNode[] sortedNodes = Arrays.copyOf(nodes, nodes.length);
+    Arrays.sort(sortedNodes, StreamingJsonExporter.NODE_ORDER);
+    try {
+      Charset charset = utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+      Writer writer = new BufferedWriter(new OutputStreamWriter(
+          outputStreamFactory.createOutputStream(file), charset));
+      try {
+        for (ITextNode node : sortedNodes) {
+          String value = ExportValues.getValue(node, language, states, exportFilters);
+          if (value != null) {
+            writeEscaped(writer, node.getKey(), true, utf8);
+            writer.write('=');
+            writeEscaped(writer, value, false, utf8);
+            writer.write('\n');
+          }
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      throw new ExportException("Could not write " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes a key or value escaped for a properties file, char by char without
+   * intermediate strings. Escapes the same characters as
+   * java.util.Properties#store, except that for UTF-8 non-ASCII characters are
+   * only escaped if they are unpaired surrogates and cannot be encoded.
+   *
+   * @param writer the writer
+   * @param text the key or value
+   * @param key <code>true</code> for a key, where all spaces are escaped
+   * @param utf8 <code>true</code> to write non-ASCII characters unescaped
+   * @throws IOException if writing fails
+   */
+  static void writeEscaped(Writer writer, String text, boolean key, boolean utf8) throws IOException {
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case ' ':
+          if (key || i == 0) {
+            writer.write('\\');
+          }
+          writer.write(' ');
+          break;
+        case '\\':
+        case '=':
+        case ':':
+        case '#':
+        case '!':
+          writer.write('\\');
+          writer.write(c);
+          break;
+        case '\t':
+          writer.write('\\');
+          writer.write('t');
+          break;
+        case '\n':
+          writer.write('\\');
+          writer.write('n');
+          break;
+        case '\r':
+          writer.write('\\');
+          writer.write('r');
+          break;
+        case '\f':
+          writer.write('\\');
+          writer.write('f');
+          break;
+        default:
+          if (c < 0x20 || (utf8 ? c == 0x7f || isUnpairedSurrogate(text, i) : c > 0x7e)) {
+            writeUnicodeEscape(writer, c);
+          } else {
+            writer.write(c);
+          }
+      }
+    }
+  }
+
+  private static boolean isUnpairedSurrogate(String text, int index) {
+    char c = text.charAt(index);
+    if (Character.isHighSurrogate(c)) {
+      return index + 1 >= text.length() || !Character.isLowSurrogate(text.charAt(index + 1));
+    }
+    if (Character.isLowSurrogate(c)) {
+      return index == 0 || !Character.isHighSurrogate(text.charAt(index - 1));
+    }
+    return false;
+  }
+
+  private static void writeUnicodeEscape(Writer writer, char c) throws IOException {
+    writer.write('\\');
+    writer.write('u');
+    writer.write(HEX[(c >> 12) & 0xF]);
+    writer.write(HEX[(c >> 8) & 0xF]);
+    writer.write(HEX[(c >> 4) & 0xF]);
+    writer.write(HEX[c & 0xF]);
+  }
+}
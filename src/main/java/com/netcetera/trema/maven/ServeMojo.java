@@ -0,0 +1,200 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+
+/**
+ * Serves the JSON and properties files of a Trema file from an HTTP server on
+ * the local machine until the build is stopped (Ctrl+C), e.g.
+ * http://localhost:8090/text_de.json. The files are rendered from the parsed
+ * database in memory and reloaded whenever the Trema file changes, so no
+ * files are written.
+ *
+ * <p>Responses carry strong ETags and are served gzip compressed to clients
+ * accepting it, so a browser revalidating a file gets a 304 until its texts
+ * change.
+ *
+ * @goal serve
+ */
+public class ServeMojo extends AbstractExportMojo {
+
+  /**
+   * Basename for the served files. Only the file name is used, eg. text
+   * results in /text_de.json, /text_en.properties etc.
+   *
+   * @parameter property="basename" default-value="text"
+   */
+  private String basename;
+
+  /**
+   * Defaultlanguage. If specified, this language will be served as default
+   * file without the language in the name, eg. /text.json.
+   *
+   * @parameter property="defaultlanguage"
+   */
+  private String defaultlanguage;
+
+  /**
+   * Export filters. Filters to be applied for transformation of the text values
+   * during exporting. Possible values are: 'messageformat' (converts one
+   * singlequote into two singlequotes) 'addkeytovalue' (appends the key to each
+   * value for debugging purposes, resulting in: key=value [key])
+   *
+   * @parameter property="filters"
+   */
+  private String[] filters;
+
+  /**
+   * Host name or address the server binds to. The default only accepts
+   * connections from the local machine.
+   *
+   * @parameter property="host" default-value="localhost"
+   */
+  private String host;
+
+  /**
+   * Port of the server.
+   *
+   * @parameter property="port" default-value="8090"
+   */
+  private int port;
+
+  /**
+   * Debounce time in milliseconds. The Trema file is reloaded once it has not
+   * changed for this time.
+   *
+   * @parameter property="debounce" default-value="300"
+   */
+  private int debounce;
+
+
+  /**
+   * Sets the basename.
+   *
+   * @param basename the basename to set
+   */
+  public void setBasename(String basename) {
+    this.basename = basename;
+  }
+
+  /**
+   * Sets the defaultlanguage.
+   *
+   * @param defaultlanguage the defaultlanguage to set
+   */
+  public void setDefaultlanguage(String defaultlanguage) {
+    this.defaultlanguage = defaultlanguage;
+  }
+
+  /**
+   * Sets the filters.
+   *
+   * @param filters the filters to set
+   */
+  public void setFilters(String[] filters) {
+    this.filters = filters;
+  }
+
+  /**
+   * Sets the host.
+   *
+   * @param host the host to set
+   */
+  public void setHost(String host) {
+    this.host = host;
+  }
+
+  /**
+   * Sets the port.
+   *
+   * @param port the port to set
+   */
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Sets the debounce.
+   *
+   * @param debounce the debounce to set
+   */
+  public void setDebounce(int debounce) {
+    this.debounce = debounce;
+  }
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    final TremaExportContext exportContext = createExportContext();
+    final List<File> tremaFiles = getTremaFiles(exportContext);
+    final TranslationServer server = new TranslationServer(new InetSocketAddress(host, port),
+        new File(basename).getName(), exportContext, getLog());
+    try {
+      server.start(parseTremaFiles(tremaFiles, exportContext));
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not start server on " + host + ":" + port + ": "
+          + e.getMessage(), e);
+    }
+    try {
+      getLog().info("Serving " + tremaFiles + " on http://" + host + ":" + server.getPort()
+          + "/, press Ctrl+C to stop.");
+      new TremaWatcher(tremaFiles, debounce).watch(new TremaWatcher.Listener() {
+        @Override
+        public void filesChanged(Set<File> changedFiles) {
+          reload(server, tremaFiles, exportContext);
+        }
+      });
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not watch " + tremaFiles + ": " + e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Serves the changed Trema files. Parse errors are only logged and the
+   * previous version is served until the files are fixed.
+   *
+   * @param server the server
+   * @param tremaFiles the Trema files
+   * @param exportContext the export context
+   */
+  private void reload(TranslationServer server, List<File> tremaFiles, TremaExportContext exportContext) {
+    try {
+      server.update(parseTremaFiles(tremaFiles, exportContext));
+      getLog().info("Reloaded " + tremaFiles);
+    } catch (MojoExecutionException e) {
+      getLog().error(e.getMessage());
+    } catch (IOException e) {
+      getLog().error("Could not store the texts of " + tremaFiles + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  protected ExportType getExportType() {
+    return ExportType.JSON;
+  }
+
+  @Override
+  protected String getBasename() {
+    return basename;
+  }
+
+  @Override
+  protected String getDefaultlanguage() {
+    return defaultlanguage;
+  }
+
+  @Override
+  protected String[] getFilters() {
+    return filters;
+  }
+
+}
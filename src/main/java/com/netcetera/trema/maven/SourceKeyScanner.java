@@ -0,0 +1,365 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+
+
+/**
+ * Finds the text keys referenced in source files, eg. Java classes,
+ * TypeScript files and templates. The files are scanned concurrently with a
+ * {@link KeyAutomaton}. The keys found in every file are kept in a cache
+ * together with its modification time, size and content hash, so that a
+ * later scan only reads the files which changed and only searches the ones
+ * whose content changed. When keys are added, the unchanged files are only
+ * searched for the added keys, removed keys are just dropped from the cache.
+ */
+final class SourceKeyScanner {
+
+  /** Name of the cache entry holding the searched keys. */
+  private static final String KEYS_ENTRY = "keys";
+
+  private final List<File> sourceRoots;
+  private final Set<String> extensions;
+  private final File cacheFile;
+
+
+  /**
+   * Constructor.
+   *
+   * @param sourceRoots the directories to scan
+   * @param extensions the extensions of the files to scan, eg. java or ts
+   * @param cacheFile the file caching the keys found in every source file,
+   * <code>null</code> to scan all files every time
+   */
+  SourceKeyScanner(List<File> sourceRoots, List<String> extensions, File cacheFile) {
+    this.sourceRoots = sourceRoots;
+    this.extensions = new TreeSet<String>();
+    for (String extension : extensions) {
+      this.extensions.add(extension.trim().toLowerCase(Locale.ENGLISH));
+    }
+    this.cacheFile = cacheFile;
+  }
+
+  /**
+   * Finds the keys referenced in the source files.
+   *
+   * @param keys the keys to search
+   * @param log the log
+   * @return the referenced keys
+   * @throws IOException if a source file could not be read
+   */
+  Set<String> scan(String[] keys, Log log) throws IOException {
+    Set<String> searchedKeys = new HashSet<String>();
+    Map<String, Entry> cache = readCache(searchedKeys);
+    Set<String> keySet = new HashSet<String>(Arrays.asList(keys));
+    List<String> addedKeys = new ArrayList<String>();
+    for (String key : keys) {
+      if (!searchedKeys.contains(key)) {
+        addedKeys.add(key);
+      }
+    }
+    boolean keysChanged = !addedKeys.isEmpty() || !keySet.containsAll(searchedKeys);
+    List<File> sourceFiles = getSourceFiles();
+    int threads = Math.max(1, Math.min(sourceFiles.size(), Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    int scanned = 0;
+    try {
+      // built on first use, as every file may be a hit of the cache
+      final LazyAutomaton automaton = new LazyAutomaton(keys);
+      final LazyAutomaton addedAutomaton = new LazyAutomaton(addedKeys.toArray(new String[addedKeys.size()]));
+      Map<String, Future<Entry>> futures = new HashMap<String, Future<Entry>>();
+      for (final File sourceFile : sourceFiles) {
+        Entry cachedEntry = cache.get(sourceFile.getPath());
+        final Entry cached = cachedEntry == null ? null : cachedEntry.retain(keySet);
+        if (cached != null && cached.modified == sourceFile.lastModified() && cached.size == sourceFile.length()
+            && addedKeys.isEmpty()) {
+          entries.put(sourceFile.getPath(), cached);
+          continue;
+        }
+        futures.put(sourceFile.getPath(), executor.submit(new Callable<Entry>() {
+          @Override
+          public Entry call() throws IOException {
+            return scan(sourceFile, cached, automaton, addedAutomaton);
+          }
+        }));
+      }
+      for (Map.Entry<String, Future<Entry>> future : futures.entrySet()) {
+        try {
+          entries.put(future.getKey(), future.getValue().get());
+          scanned++;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while scanning " + sourceRoots);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Set<String> referenced = new TreeSet<String>();
+    for (Entry entry : entries.values()) {
+      referenced.addAll(entry.keys);
+    }
+    log.debug("Read " + scanned + " of " + sourceFiles.size() + " source files, found " + referenced.size()
+        + " of " + keys.length + " keys.");
+    if (cacheFile != null && (scanned > 0 || entries.size() != cache.size() || keysChanged)) {
+      writeCache(keys, entries);
+    }
+    return referenced;
+  }
+
+  /**
+   * Describes the scanned sources, eg. "[src/main/java, src/main/ts] [java, ts]".
+   *
+   * @return the source roots and extensions
+   */
+  @Override
+  public String toString() {
+    return sourceRoots + " " + extensions;
+  }
+
+  private List<File> getSourceFiles() throws IOException {
+    Set<Path> files = new LinkedHashSet<Path>();
+    for (File sourceRoot : sourceRoots) {
+      Stream<Path> paths = Files.walk(sourceRoot.toPath());
+      try {
+        files.addAll(paths
+            .filter(path -> Files.isRegularFile(path) && extensions.contains(getExtension(path)))
+            .sorted()
+            .collect(Collectors.<Path>toList()));
+      } finally {
+        paths.close();
+      }
+    }
+    List<File> sourceFiles = new ArrayList<File>();
+    for (Path file : files) {
+      sourceFiles.add(file.toFile());
+    }
+    return sourceFiles;
+  }
+
+  private static String getExtension(Path path) {
+    String name = path.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Scans a changed source file, or an unchanged one for the added keys. The
+   * keys of the cache are reused if the content did not change.
+   */
+  private static Entry scan(File sourceFile, Entry cached, LazyAutomaton automaton, LazyAutomaton addedAutomaton)
+      throws IOException {
+    // the modification time first, a file changing while it is read is scanned again next time
+    long modified = sourceFile.lastModified();
+    byte[] content = Files.readAllBytes(sourceFile.toPath());
+    String hash = Digests.sha256Hex(content);
+    if (cached != null && cached.hash.equals(hash)) {
+      if (addedAutomaton.keys.length == 0) {
+        return new Entry(modified, content.length, hash, cached.keys);
+      }
+      Set<String> foundKeys = new LinkedHashSet<String>(cached.keys);
+      foundKeys.addAll(find(content, addedAutomaton));
+      return new Entry(modified, content.length, hash, new ArrayList<String>(foundKeys));
+    }
+    return new Entry(modified, content.length, hash, find(content, automaton));
+  }
+
+  private static List<String> find(byte[] content, LazyAutomaton automaton) {
+    // decoding sources in other encodings only garbles non ASCII characters, which keys rarely contain
+    BitSet found = new BitSet(automaton.keys.length);
+    automaton.get().find(new String(content, StandardCharsets.UTF_8), found);
+    List<String> foundKeys = new ArrayList<String>(found.cardinality());
+    for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+      foundKeys.add(automaton.keys[i]);
+    }
+    return foundKeys;
+  }
+
+  /**
+   * Reads the cache.
+   *
+   * @param searchedKeys receives the keys the cached files were searched for
+   * @return the cache entries by path, empty if there is no valid cache
+   */
+  private Map<String, Entry> readCache(Set<String> searchedKeys) {
+    Map<String, Entry> cache = new HashMap<String, Entry>();
+    if (cacheFile == null || !cacheFile.isFile()) {
+      return cache;
+    }
+    Properties properties = new Properties();
+    try {
+      InputStream inputStream = Files.newInputStream(cacheFile.toPath());
+      try {
+        properties.load(inputStream);
+      } finally {
+        inputStream.close();
+      }
+    } catch (IOException e) {
+      // the cache is rebuilt
+      return cache;
+    }
+    String keys = properties.getProperty(KEYS_ENTRY);
+    if (keys == null) {
+      return cache;
+    }
+    if (keys.length() > 0) {
+      searchedKeys.addAll(Arrays.asList(keys.split("\n", -1)));
+    }
+    for (String path : properties.stringPropertyNames()) {
+      Entry entry = Entry.parse(properties.getProperty(path));
+      if (!KEYS_ENTRY.equals(path) && entry != null) {
+        cache.put(path, entry);
+      }
+    }
+    return cache;
+  }
+
+  private void writeCache(String[] keys, Map<String, Entry> entries) throws IOException {
+    Properties properties = new Properties();
+    String[] sortedKeys = keys.clone();
+    Arrays.sort(sortedKeys);
+    StringBuilder searchedKeys = new StringBuilder();
+    for (String key : sortedKeys) {
+      if (searchedKeys.length() > 0) {
+        searchedKeys.append('\n');
+      }
+      searchedKeys.append(key);
+    }
+    properties.setProperty(KEYS_ENTRY, searchedKeys.toString());
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      properties.setProperty(entry.getKey(), entry.getValue().toString());
+    }
+    File parent = cacheFile.getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Could not create directory: " + parent.getAbsolutePath());
+    }
+    OutputStream outputStream = Files.newOutputStream(cacheFile.toPath());
+    try {
+      properties.store(outputStream, "Trema keys referenced in source files");
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  /**
+   * The keys found in a source file with the state of the file.
+   */
+  private static final class Entry {
+
+    private final long modified;
+    private final long size;
+    private final String hash;
+    private final List<String> keys;
+
+    Entry(long modified, long size, String hash, List<String> keys) {
+      this.modified = modified;
+      this.size = size;
+      this.hash = hash;
+      this.keys = keys;
+    }
+
+    /**
+     * Parses an entry of the cache, the fields and keys on separate lines.
+     *
+     * @param value the cache value
+     * @return the entry or <code>null</code> if the value is malformed
+     */
+    static Entry parse(String value) {
+      String[] lines = value.split("\n", -1);
+      if (lines.length < 3) {
+        return null;
+      }
+      try {
+        List<String> keys = lines.length == 3 ? Collections.<String>emptyList()
+            : Arrays.asList(Arrays.copyOfRange(lines, 3, lines.length));
+        return new Entry(Long.parseLong(lines[0]), Long.parseLong(lines[1]), lines[2], keys);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Drops the keys which are no longer searched.
+     *
+     * @param searchedKeys the searched keys
+     * @return the entry without the other keys
+     */
+    Entry retain(Set<String> searchedKeys) {
+      if (searchedKeys.containsAll(keys)) {
+        return this;
+      }
+      List<String> retained = new ArrayList<String>(keys.size());
+      for (String key : keys) {
+        if (searchedKeys.contains(key)) {
+          retained.add(key);
+        }
+      }
+      return new Entry(modified, size, hash, retained);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder value = new StringBuilder();
+      value.append(modified).append('\n').append(size).append('\n').append(hash);
+      for (String key : keys) {
+        value.append('\n').append(key);
+      }
+      return value.toString();
+    }
+  }
+
+  /**
+   * A key automaton built on first use.
+   */
+  private static final class LazyAutomaton {
+
+    private final String[] keys;
+    private KeyAutomaton automaton;
+
+    LazyAutomaton(String[] keys) {
+      this.keys = keys;
+    }
+
+    synchronized KeyAutomaton get() {
+      if (automaton == null) {
+        automaton = new KeyAutomaton(keys);
+      }
+      return automaton;
+    }
+  }
+}
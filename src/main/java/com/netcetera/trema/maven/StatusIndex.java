@@ -0,0 +1,92 @@
+package com.netcetera.trema.maven;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+
+
+/**
+ * Index of the text nodes by language and status of their values, built in
+ * one pass over the nodes. Selecting the nodes to export for a language then
+ * only touches the nodes with a value in one of the exported status instead
+ * of checking the status of every node for every language.
+ */
+final class StatusIndex {
+
+  private final ITextNode[] nodes;
+  private final Map<String, Map<Status, BitSet>> index = new HashMap<String, Map<Status, BitSet>>();
+
+
+  /**
+   * Constructor, builds the index.
+   *
+   * @param nodes the text nodes
+   */
+  StatusIndex(ITextNode[] nodes) {
+    this.nodes = nodes;
+    for (int i = 0; i < nodes.length; i++) {
+      for (IValueNode valueNode : nodes[i].getValueNodes()) {
+        Map<Status, BitSet> languageIndex = index.get(valueNode.getLanguage());
+        if (languageIndex == null) {
+          languageIndex = new HashMap<Status, BitSet>();
+          index.put(valueNode.getLanguage(), languageIndex);
+        }
+        BitSet statusNodes = languageIndex.get(valueNode.getStatus());
+        if (statusNodes == null) {
+          statusNodes = new BitSet(nodes.length);
+          languageIndex.put(valueNode.getStatus(), statusNodes);
+        }
+        statusNodes.set(i);
+      }
+    }
+  }
+
+  /**
+   * Gets the indexes of the nodes with a value in a language and status.
+   *
+   * @param language the language
+   * @param status the status to export, <code>null</code> for all
+   * @return the indexes of the nodes in the order of the constructor argument
+   */
+  BitSet get(String language, Status[] status) {
+    BitSet result = new BitSet(nodes.length);
+    Map<Status, BitSet> languageIndex = index.get(language);
+    if (languageIndex == null) {
+      return result;
+    }
+    if (status == null) {
+      for (BitSet statusNodes : languageIndex.values()) {
+        result.or(statusNodes);
+      }
+    } else {
+      for (Status s : status) {
+        BitSet statusNodes = languageIndex.get(s);
+        if (statusNodes != null) {
+          result.or(statusNodes);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Selects the nodes with a value in a language and status.
+   *
+   * @param language the language
+   * @param status the status to export, <code>null</code> for all
+   * @return the nodes, in their original order
+   */
+  ITextNode[] select(String language, Status[] status) {
+    BitSet selected = get(language, status);
+    ITextNode[] result = new ITextNode[selected.cardinality()];
+    int j = 0;
+    for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+      result[j++] = nodes[i];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,185 @@
+package com.netcetera.trema.maven;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.IExportFilter;
+import com.netcetera.trema.core.api.IExporter;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.exporting.ExportException;
+import com.netcetera.trema.core.exporting.OutputStreamFactory;
+
+
+/**
+ * JSON exporter writing the values straight to the output stream. Optionally
+ * the keys are split on '.' into nested objects and all optional whitespace
+ * is omitted.
+ */
+public class StreamingJsonExporter implements IExporter {
+
+  /**
+   * Orders keys like strings but with '.' sorting before any other character,
+   * so that all keys below the same key path are adjacent.
+   */
+  static final Comparator<String> KEY_PATH_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String a, String b) {
+      int length = Math.min(a.length(), b.length());
+      for (int i = 0; i < length; i++) {
+        char ca = a.charAt(i);
+        char cb = b.charAt(i);
+        if (ca != cb) {
+          if (ca == '.') {
+            return -1;
+          }
+          if (cb == '.') {
+            return 1;
+          }
+          return ca - cb;
+        }
+      }
+      return a.length() - b.length();
+    }
+  };
+
+  /** Orders text nodes by {@link #KEY_PATH_ORDER} of their keys. */
+  static final Comparator<ITextNode> NODE_ORDER = new Comparator<ITextNode>() {
+    @Override
+    public int compare(ITextNode a, ITextNode b) {
+      return KEY_PATH_ORDER.compare(a.getKey(), b.getKey());
+    }
+  };
+
+  private final File file;
+  private final OutputStreamFactory outputStreamFactory;
+  private final boolean nested;
+  private final boolean minified;
+  private IExportFilter[] exportFilters;
+
+
+  /**
+   * Constructor.
+   *
+   * @param file the output file
+   * @param outputStreamFactory factory for providing the output stream
+   * @param nested <code>true</code> to split the keys on '.' into nested objects
+   * @param minified <code>true</code> to omit all optional whitespace
+   */
+  public StreamingJsonExporter(File file, OutputStreamFactory outputStreamFactory, boolean nested,
+      boolean minified) {
+    this.file = file;
+    this.outputStreamFactory = outputStreamFactory;
+    this.nested = nested;
+    this.minified = minified;
+  }
+
+  /**
+   * Sets the filters to be applied to the values.
+   *
+   * @param exportFilters the filters
+   */
+  public void setExportFilter(IExportFilter[] exportFilters) {
+    this.exportFilters = exportFilters;
+  }
+
+  @Override
+  public void export(ITextNode[] nodes, String masterlanguage, String language, Status[] states)
+      throws ExportException {
+    ITextNode[] sortedNodes = Arrays.copyOf(nodes, nodes.length);
+    Arrays.sort(sortedNodes, NODE_ORDER);
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(
+          outputStreamFactory.createOutputStream(file), StandardCharsets.UTF_8));
+      try {
+        JsonWriter json = new JsonWriter(writer, minified);
+        json.beginObject();
+        if (nested) {
+          writeNested(json, sortedNodes, language, states);
+        } else {
+          for (ITextNode node : sortedNodes) {
+            String value = ExportValues.getValue(node, language, states, exportFilters);
+            if (value != null) {
+              json.name(node.getKey()).value(value);
+            }
+          }
+        }
+        json.endObject();
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      throw new ExportException("Could not write " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void writeNested(JsonWriter json, ITextNode[] sortedNodes, String language, Status[] states)
+      throws IOException, ExportException {
+    // path of the currently open objects and the last member name per depth
+    String[] openPath = new String[0];
+    String[] lastNames = new String[1];
+    for (ITextNode node : sortedNodes) {
+      String value = ExportValues.getValue(node, language, states, exportFilters);
+      if (value == null) {
+        continue;
+      }
+      String key = node.getKey();
+      String[] segments = split(key);
+      int common = 0;
+      while (common < openPath.length && common < segments.length - 1
+          && openPath[common].equals(segments[common])) {
+        common++;
+      }
+      for (int depth = openPath.length; depth > common; depth--) {
+        json.endObject();
+      }
+      if (lastNames.length < segments.length) {
+        lastNames = Arrays.copyOf(lastNames, segments.length);
+      }
+      for (int depth = common; depth < segments.length; depth++) {
+        if (segments[depth].equals(lastNames[depth])) {
+          throw new ExportException("Key '" + key + "' conflicts with another key when nesting on '.'");
+        }
+        lastNames[depth] = segments[depth];
+        if (depth + 1 < lastNames.length) {
+          lastNames[depth + 1] = null;
+        }
+        json.name(segments[depth]);
+        if (depth < segments.length - 1) {
+          json.beginObject();
+        }
+      }
+      json.value(value);
+      openPath = Arrays.copyOf(segments, segments.length - 1);
+    }
+    for (int depth = openPath.length; depth > 0; depth--) {
+      json.endObject();
+    }
+  }
+
+  private static String[] split(String key) {
+    int count = 1;
+    for (int i = 0; i < key.length(); i++) {
+      if (key.charAt(i) == '.') {
+        count++;
+      }
+    }
+    String[] segments = new String[count];
+    int start = 0;
+    int index = 0;
+    for (int i = 0; i < key.length(); i++) {
+      if (key.charAt(i) == '.') {
+        segments[index++] = key.substring(start, i);
+        start = i + 1;
+      }
+    }
+    segments[index] = key.substring(start);
+    return segments;
+  }
+}
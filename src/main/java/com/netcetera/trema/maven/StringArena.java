@@ -0,0 +1,256 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Stores strings as bytes in a few large shared arrays instead of one object
+ * per string. Equal strings are stored once and get the same id. Strings with
+ * Latin-1 characters only take one byte per character, others are stored as
+ * UTF-8. A string is decoded again on every access, so the arena suits
+ * strings kept long but read rarely.
+ *
+ * <p>A mapped arena writes the full arrays to a temporary file and maps it
+ * into memory, so the strings are held off the heap and paged in by the
+ * operating system when read. Only the addresses of the strings stay on the
+ * heap.
+ */
+final class StringArena {
+
+  /** Size of the shared arrays, longer strings get an array of their own. */
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  /** Size of the mapped segments, fewer and larger than the arrays on the heap. */
+  private static final int SEGMENT_SIZE = 1 << 24;
+
+  private final File mappedDirectory;
+  private final int chunkSize;
+  // the arrays on the heap and the mapped segments, wrapped in buffers
+  private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+  private byte[] chunk;
+  private int position;
+  // index of the chunk in the upper, offset in the lower 32 bits by string id
+  private long[] addresses = new long[1024];
+  private int size;
+  // the ids of the added strings until the arena is frozen
+  private Map<String, Integer> ids = new HashMap<String, Integer>();
+  private File mappedFile;
+  private FileChannel channel;
+
+
+  /**
+   * Constructor for an arena on the heap.
+   */
+  StringArena() {
+    this(null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param mappedDirectory the directory of the temporary file of a mapped
+   * arena, <code>null</code> for an arena on the heap
+   */
+  StringArena(File mappedDirectory) {
+    this.mappedDirectory = mappedDirectory;
+    chunkSize = mappedDirectory == null ? CHUNK_SIZE : SEGMENT_SIZE;
+  }
+
+  /**
+   * Adds a string unless an equal one was added before.
+   *
+   * @param s the string
+   * @return the id of the string
+   * @throws IOException if a full segment of a mapped arena could not be mapped
+   * @throws IllegalStateException if the arena is frozen
+   */
+  int add(String s) throws IOException {
+    if (ids == null) {
+      throw new IllegalStateException("Arena is frozen");
+    }
+    Integer id = ids.get(s);
+    if (id != null) {
+      return id;
+    }
+    boolean latin1 = isLatin1(s);
+    byte[] bytes = latin1 ? s.getBytes(StandardCharsets.ISO_8859_1) : s.getBytes(StandardCharsets.UTF_8);
+    // header: the length and the encoding flag as variable length integer
+    int header = bytes.length << 1 | (latin1 ? 0 : 1);
+    int required = varIntLength(header) + bytes.length;
+    if (chunk == null || position + required > chunk.length) {
+      if (chunk != null) {
+        endChunk();
+      }
+      // a mapped arena reuses the array once its segment is mapped
+      if (chunk == null || mappedDirectory == null || chunk.length < required) {
+        chunk = new byte[Math.max(chunkSize, required)];
+      }
+      chunks.add(ByteBuffer.wrap(chunk));
+      position = 0;
+    }
+    if (size == addresses.length) {
+      addresses = Arrays.copyOf(addresses, size * 2);
+    }
+    addresses[size] = (long) (chunks.size() - 1) << 32 | position;
+    position = writeVarInt(chunk, position, header);
+    System.arraycopy(bytes, 0, chunk, position, bytes.length);
+    position += bytes.length;
+    ids.put(s, size);
+    return size++;
+  }
+
+  /**
+   * Gets a string.
+   *
+   * @param id the id of the string
+   * @return the string
+   */
+  String get(int id) {
+    long address = addresses[id];
+    ByteBuffer buffer = chunks.get((int) (address >>> 32));
+    int offset = (int) address;
+    int header = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get(offset++);
+      header |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    byte[] bytes;
+    if (buffer.hasArray()) {
+      bytes = buffer.array();
+    } else {
+      // a view of its own, as strings are read concurrently
+      ByteBuffer segment = buffer.duplicate();
+      segment.position(offset);
+      bytes = new byte[header >>> 1];
+      segment.get(bytes);
+      offset = 0;
+    }
+    return new String(bytes, offset, header >>> 1,
+        (header & 1) == 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Releases the memory only needed to add strings. No strings can be added
+   * afterwards. A mapped arena maps its last segment and removes its file,
+   * the mapping stays valid until the arena is garbage collected.
+   *
+   * @throws IOException if the last segment could not be mapped
+   */
+  void freeze() throws IOException {
+    ids = null;
+    if (chunk != null) {
+      endChunk();
+    }
+    chunk = null;
+    addresses = Arrays.copyOf(addresses, size);
+    if (channel != null) {
+      channel.close();
+      channel = null;
+      // files still mapped can not be deleted on every platform
+      if (!mappedFile.delete()) {
+        mappedFile.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of strings.
+   *
+   * @return the number of distinct strings added
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Gets the size of the arena on the heap.
+   *
+   * @return the bytes allocated on the heap for the strings and their addresses
+   */
+  long getBytes() {
+    long bytes = addresses.length * 8L;
+    for (ByteBuffer c : chunks) {
+      bytes += c.hasArray() ? c.capacity() : 0;
+    }
+    return bytes;
+  }
+
+  /**
+   * Gets the size of the mapped segments.
+   *
+   * @return the bytes of the strings held off the heap
+   */
+  long getMappedBytes() {
+    long bytes = 0;
+    for (ByteBuffer c : chunks) {
+      bytes += c.hasArray() ? 0 : c.capacity();
+    }
+    return bytes;
+  }
+
+  /**
+   * Trims the current array of an arena on the heap or writes it to the file
+   * of a mapped arena and replaces it by the mapped segment.
+   */
+  private void endChunk() throws IOException {
+    if (mappedDirectory == null) {
+      if (position < chunk.length) {
+        chunks.set(chunks.size() - 1, ByteBuffer.wrap(Arrays.copyOf(chunk, position)));
+      }
+      return;
+    }
+    if (channel == null) {
+      if (!mappedDirectory.isDirectory() && !mappedDirectory.mkdirs()) {
+        throw new IOException("Could not create directory: " + mappedDirectory.getAbsolutePath());
+      }
+      mappedFile = File.createTempFile("trema-values-", ".bin", mappedDirectory);
+      channel = new RandomAccessFile(mappedFile, "rw").getChannel();
+    }
+    long start = channel.size();
+    ByteBuffer bytes = ByteBuffer.wrap(chunk, 0, position);
+    while (bytes.hasRemaining()) {
+      channel.write(bytes, start + bytes.position());
+    }
+    chunks.set(chunks.size() - 1, channel.map(FileChannel.MapMode.READ_ONLY, start, position));
+  }
+
+  private static boolean isLatin1(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) > 0xFF) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int varIntLength(int value) {
+    int length = 1;
+    while ((value >>>= 7) != 0) {
+      length++;
+    }
+    return length;
+  }
+
+  private static int writeVarInt(byte[] bytes, int offset, int value) {
+    int position = offset;
+    while ((value & ~0x7F) != 0) {
+      bytes[position++] = (byte) (value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    bytes[position++] = (byte) value;
+    return position;
+  }
+}
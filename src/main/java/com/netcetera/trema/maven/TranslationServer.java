@@ -0,0 +1,314 @@
+package com.netcetera.trema.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.netcetera.trema.core.XMLDatabase;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * Serves the JSON and properties files of a Trema database over HTTP, e.g.
+ * /text_de.json or /text.properties for the default language. The files are
+ * rendered from the in-memory database when first requested and kept until
+ * the database is replaced.
+ *
+ * <p>Every response carries a strong ETag derived from its content and is
+ * sent gzip compressed if the client accepts it, compressed once per file.
+ * Responses must be revalidated on every use, so a client sending the ETag
+ * in If-None-Match gets a 304 without body until the texts change.
+ */
+final class TranslationServer {
+
+  /** Suffix of the ETags of compressed responses, which differ in their bytes. */
+  private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+  private static final int THREADS = 4;
+
+  private final InetSocketAddress address;
+  private final String name;
+  private final TremaExportContext exportContext;
+  private final Log log;
+  private volatile Snapshot snapshot;
+  private HttpServer server;
+  private ExecutorService executor;
+
+
+  /**
+   * Constructor.
+   *
+   * @param address the address to bind to, port 0 for any free port
+   * @param name the name of the served files, e.g. text for text_de.json
+   * @param exportContext the export configuration
+   * @param log the log
+   */
+  TranslationServer(InetSocketAddress address, String name, TremaExportContext exportContext, Log log) {
+    this.address = address;
+    this.name = name;
+    this.exportContext = exportContext;
+    this.log = log;
+  }
+
+  /**
+   * Starts serving a database.
+   *
+   * @param compactDb the database
+   * @throws IOException if the server could not be started
+   */
+  void start(CompactDatabase compactDb) throws IOException {
+    update(compactDb);
+    server = HttpServer.create(address, 0);
+    executor = Executors.newFixedThreadPool(THREADS);
+    server.setExecutor(executor);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          TranslationServer.this.handle(exchange);
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+    server.start();
+  }
+
+  /**
+   * Replaces the served database. Requests in progress complete with the
+   * previous one.
+   *
+   * @param compactDb the database
+   * @throws IOException if the values of the selected keys could not be
+   * stored in the mapped file
+   */
+  void update(CompactDatabase compactDb) throws IOException {
+    snapshot = new Snapshot(compactDb);
+  }
+
+  /**
+   * Stops the server.
+   */
+  void stop() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      server = null;
+    }
+  }
+
+  /**
+   * Gets the port the server is bound to.
+   *
+   * @return the port
+   */
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    boolean head = "HEAD".equals(method);
+    if (!head && !"GET".equals(method)) {
+      exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+      exchange.sendResponseHeaders(405, -1);
+      return;
+    }
+    Response response;
+    try {
+      response = snapshot.getResponse(exchange.getRequestURI().getPath());
+    } catch (Exception e) {
+      log.error("Could not render " + exchange.getRequestURI() + ": " + e.getMessage());
+      exchange.sendResponseHeaders(500, -1);
+      return;
+    }
+    if (response == null) {
+      exchange.sendResponseHeaders(404, -1);
+      return;
+    }
+    boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    String etag = gzip ? response.gzipEtag : response.etag;
+    Headers headers = exchange.getResponseHeaders();
+    headers.set("ETag", etag);
+    headers.set("Cache-Control", "no-cache");
+    headers.set("Vary", "Accept-Encoding");
+    headers.set("Access-Control-Allow-Origin", "*");
+    if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), response)) {
+      exchange.sendResponseHeaders(304, -1);
+      return;
+    }
+    byte[] body = gzip ? response.gzipContent : response.content;
+    headers.set("Content-Type", response.contentType);
+    if (gzip) {
+      headers.set("Content-Encoding", "gzip");
+    }
+    if (head) {
+      headers.set("Content-Length", String.valueOf(body.length));
+      exchange.sendResponseHeaders(200, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(200, body.length);
+    OutputStream outputStream = exchange.getResponseBody();
+    outputStream.write(body);
+    outputStream.close();
+  }
+
+  /**
+   * Checks If-None-Match against both representations, since caches in
+   * between may have stored either of them. Weak tags compare equal to strong
+   * ones as required for If-None-Match.
+   */
+  private static boolean matches(String ifNoneMatch, Response response) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if ("*".equals(tag) || tag.equals(response.etag) || tag.equals(response.gzipEtag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      if (!"gzip".equalsIgnoreCase(parameters[0].trim())) {
+        continue;
+      }
+      for (int i = 1; i < parameters.length; i++) {
+        String parameter = parameters[i].replace(" ", "");
+        if (parameter.matches("q=0(\\.0*)?")) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * The responses of one version of the database, rendered on first request.
+   */
+  private final class Snapshot {
+
+    private final CompactDatabase compactDb;
+    private final Set<String> languages;
+    private final ConcurrentMap<String, Response> responses = new ConcurrentHashMap<String, Response>();
+
+    Snapshot(CompactDatabase compactDb) throws IOException {
+      KeyPatterns keyPatterns = exportContext.getKeyPatterns();
+      this.compactDb = keyPatterns == null ? compactDb
+          : CompactDatabase.of(keyPatterns.select(compactDb.toXMLDatabase(null)),
+          exportContext.getMappedValueDirectory());
+      String[] exportedLanguages = exportContext.getLanguages();
+      if (exportedLanguages == null) {
+        languages = new TreeSet<String>(Arrays.asList(this.compactDb.getStatistics().getLanguages()));
+      } else {
+        languages = new TreeSet<String>(Arrays.asList(exportedLanguages));
+      }
+    }
+
+    Response getResponse(String path) throws Exception {
+      Response response = responses.get(path);
+      if (response == null) {
+        response = render(path);
+        if (response == null) {
+          return null;
+        }
+        Response previous = responses.putIfAbsent(path, response);
+        if (previous != null) {
+          response = previous;
+        }
+      }
+      return response;
+    }
+
+    private Response render(String path) throws Exception {
+      ExportType fileType;
+      String contentType;
+      String baseName;
+      if (path.endsWith(".json")) {
+        fileType = ExportType.JSON;
+        contentType = "application/json; charset=UTF-8";
+        baseName = path.substring(0, path.length() - ".json".length());
+      } else if (path.endsWith(".properties")) {
+        fileType = ExportType.PROPERTIES;
+        contentType = "text/plain; charset=" + (exportContext.isPropertiesUtf8() ? "UTF-8" : "ISO-8859-1");
+        baseName = path.substring(0, path.length() - ".properties".length());
+      } else {
+        return null;
+      }
+      String language;
+      if (baseName.equals("/" + name)) {
+        language = exportContext.getDefaultLanguage();
+      } else if (baseName.startsWith("/" + name + "_")) {
+        language = baseName.substring(name.length() + 2);
+        if (!languages.contains(language)) {
+          return null;
+        }
+      } else {
+        return null;
+      }
+      if (language == null) {
+        return null;
+      }
+      log.debug("Rendering " + path);
+      // fallbacks may take values of any language, otherwise only the rendered one is needed
+      List<String> projectedLanguages = exportContext.isResolveFallbacks() ? null
+          : Arrays.asList(language, compactDb.getMasterLanguage());
+      XMLDatabase xmlDb = compactDb.toXMLDatabase(projectedLanguages);
+      byte[] content = new TremaExport(exportContext, log).render(xmlDb,
+          compactDb.getStatistics(projectedLanguages), fileType, language);
+      return new Response(content, contentType);
+    }
+  }
+
+  /**
+   * A rendered file with its compressed form.
+   */
+  private static final class Response {
+
+    private final byte[] content;
+    private final byte[] gzipContent;
+    private final String contentType;
+    private final String etag;
+    private final String gzipEtag;
+
+    Response(byte[] content, String contentType) throws IOException {
+      this.content = content;
+      this.contentType = contentType;
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+      gzipOutputStream.write(content);
+      gzipOutputStream.close();
+      this.gzipContent = compressed.toByteArray();
+      String hash = Digests.sha256Hex(content);
+      this.etag = "\"" + hash + "\"";
+      this.gzipEtag = "\"" + hash + GZIP_ETAG_SUFFIX + "\"";
+    }
+  }
+
+}
@@ -1,30 +1,38 @@
 package com.netcetera.trema.maven;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.maven.plugin.logging.Log;
 
-import com.netcetera.trema.common.TremaCoreUtil;
-import com.netcetera.trema.core.ParseException;
 import com.netcetera.trema.core.Status;
 import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.api.ITextNode;
 import com.netcetera.trema.core.exporting.AndroidExporter;
 import com.netcetera.trema.core.exporting.CSVExporter;
 import com.netcetera.trema.core.exporting.ExportException;
 import com.netcetera.trema.core.exporting.FileOutputStreamFactory;
-import com.netcetera.trema.core.exporting.JsonExporter;
 import com.netcetera.trema.core.exporting.OutputStreamFactory;
-import com.netcetera.trema.core.exporting.PropertiesExporter;
 import com.netcetera.trema.core.exporting.TremaCSVPrinter;
 import com.netcetera.trema.core.exporting.XLSExporter;
 
@@ -34,14 +42,38 @@ import com.netcetera.trema.core.exporting.XLSExporter;
  */
 public class TremaExport {
 
+  /** Manifest entry name used for the default file without language suffix. */
+  static final String DEFAULT_MANIFEST_ENTRY = "default";
+
+  /** Number of hex digits of the content hash used in file names. */
+  private static final int CONTENT_HASH_LENGTH = 8;
+
+  /** File extension of binary message catalogs. */
+  static final String BINARY_EXTENSION = ".bin";
+
+  /** Suffix of the file name of the key hash manifest. */
+  static final String KEY_HASH_MANIFEST_SUFFIX = ".keys.json";
+
+  /** Number of hex digits of the hash of a text in the key hash manifest. */
+  private static final int KEY_HASH_LENGTH = 16;
+
+  /** Version of the fingerprints of incremental exports, part of the configuration digest. */
+  private static final String FINGERPRINT_VERSION = "1";
+
   private ExportType type;
   private String[] languages;
   private Status[] status;
-  private String xmlPathName;
+  private String[] xmlPathNames;
   private String baseName;
   private TremaExportContext exportContext;
   private OutputStreamFactory outputStreamFactory = new FileOutputStreamFactory();
   private ExporterFactory exporterFactory;
+  private FallbackChains fallbackChains;
+  private DeltaBundles deltaBundles;
+  private StatusIndex statusIndex;
+  private DatabaseStatistics statistics;
+  private final Set<File> outputFiles = new LinkedHashSet<File>();
+  private boolean writeDefaultFile = true;
   private Log log;
 
 
@@ -54,7 +86,7 @@ public class TremaExport {
     this.type = exportContext.getType();
     this.languages = exportContext.getLanguages();
     this.status = exportContext.getStatus();
-    this.xmlPathName = exportContext.getXmlPathName();
+    this.xmlPathNames = exportContext.getXmlPathNames();
     this.baseName = exportContext.getBaseName();
     this.exportContext = exportContext;
     this.exporterFactory = new ExporterFactory();
@@ -64,6 +96,10 @@ public class TremaExport {
   void setExporterFactory(ExporterFactory exporterFactory) {
     this.exporterFactory = exporterFactory;
   }
+  // visibility for Testing
+  void setStatistics(DatabaseStatistics statistics) {
+    this.statistics = statistics;
+  }
 
   /**
    * Does the export.
@@ -71,14 +107,84 @@ public class TremaExport {
    * @throws Exception in case the export failed
    */
   public void execute() throws Exception {
+    ExportCache exportCache = exportContext.getExportCache();
+    String cacheKey = null;
+    // the exported keys of a scan depend on the sources, which are not part of the cache key
+    if (exportCache != null && exportContext.getSourceKeyScanner() == null && allFilesExist(getTremaFiles())) {
+      cacheKey = exportCache.getKey(getTremaFiles(), exportContext);
+      if (restoreFromCache(exportCache, cacheKey)) {
+        return;
+      }
+    }
     // open and internalize the XML file
-    XMLDatabase xmlDb = parseTremaXmlFile();
+    CompactDatabase compactDb = parseTremaXmlFile();
+    execute(compactDb.toXMLDatabase(null), compactDb.getStatistics());
+    if (cacheKey != null) {
+      storeInCache(exportCache, cacheKey);
+    }
+  }
 
+  /**
+   * Does the export from an already parsed database, e.g. one kept in memory
+   * between exports. The export cache is not used.
+   *
+   * @param xmlDb trema file model
+   * @param statistics the statistics of the database
+   * @throws Exception in case the export failed
+   */
+  public void execute(XMLDatabase xmlDb, DatabaseStatistics statistics) throws Exception {
+    this.statistics = statistics;
+    if (exportContext.getKeyPatterns() != null) {
+      int keys = xmlDb.getTextNodes().length;
+      xmlDb = exportContext.getKeyPatterns().select(xmlDb);
+      log.debug("Exporting " + xmlDb.getTextNodes().length + " of " + keys + " keys matching "
+          + exportContext.getKeyPatterns());
+    }
+    if (exportContext.getSourceKeyScanner() != null) {
+      xmlDb = selectReferencedKeys(xmlDb);
+    }
+    if (exportContext.getKeyPatterns() != null || exportContext.getSourceKeyScanner() != null) {
+      this.statistics = DatabaseStatistics.compute(xmlDb.getTextNodes());
+    }
+    print("Exporting " + statistics);
     if (languages == null) {
       // the user did not specify the language option, so use all languages of
-      // the database
-      Set<String> languageSet = TremaCoreUtil.getLanguages(xmlDb.getTextNodes());
-      languages = languageSet.toArray(new String[languageSet.size()]);
+      // the database, sorted to write the files in the same order on every run
+      languages = statistics.getLanguages();
+    }
+
+    if (exportContext.isResolveFallbacks()) {
+      fallbackChains = new FallbackChains(exportContext.getFallbackChains(),
+          exportContext.getDefaultLanguage(), xmlDb.getMasterLanguage());
+    }
+    statusIndex = createStatusIndex(xmlDb.getTextNodes());
+    if (exportContext.isDeltaBundles()) {
+      deltaBundles = new DeltaBundles(xmlDb.getTextNodes(), languages, getInheritedDefaultLanguage(), status);
+    }
+
+    // the incremental export and the watch goal may restrict the languages to write
+    String[] exportedLanguages = languages;
+    if (exportContext.getWrittenLanguages() != null) {
+      List<String> writtenLanguages = new ArrayList<String>();
+      for (String language : languages) {
+        if (exportContext.getWrittenLanguages().contains(language)) {
+          writtenLanguages.add(language);
+        }
+      }
+      languages = writtenLanguages.toArray(new String[writtenLanguages.size()]);
+    }
+    FingerprintManifest fingerprintManifest = null;
+    Map<String, String> fingerprints = null;
+    if (exportContext.getIncrementalDirectory() != null) {
+      if (isIncrementalExportSupported()) {
+        fingerprints = getFileFingerprints(xmlDb);
+        fingerprintManifest = new FingerprintManifest(getFingerprintManifestFile(),
+            getConfigurationDigest(xmlDb));
+        skipUnchangedFiles(fingerprintManifest, fingerprints);
+      } else {
+        log.debug("Incremental export not supported for " + type + " files with shards or content hash "
+            + "file names, exporting all languages.");
+      }
     }
 
     if (type == ExportType.PROPERTIES) {
@@ -101,36 +207,349 @@ public class TremaExport {
     } else if (type == ExportType.ANDROID) {
       // export android files
       exportAsAndroidFile(xmlDb);
+
+    } else if (type == ExportType.RESOURCE_BUNDLE) {
+      // export java sources of resource bundle classes
+      exportLanguageFiles(xmlDb, ExportType.RESOURCE_BUNDLE, ".java");
+
+    } else if (type == ExportType.MESSAGE_TABLES) {
+      // export java sources of key constants and message tables
+      exportAsMessageTables(xmlDb);
+
+    } else if (type == ExportType.BINARY) {
+      // export binary message catalogs
+      exportLanguageFiles(xmlDb, ExportType.BINARY, BINARY_EXTENSION);
+    }
+
+    if (fingerprintManifest != null) {
+      fingerprintManifest.write(fingerprints);
+    }
+    if (exportContext.isKeyHashManifest()) {
+      writeKeyHashManifest(xmlDb, exportedLanguages);
     }
   }
-  private XMLDatabase parseTremaXmlFile() throws Exception {
-    log.debug("Parsing Trema File...");
-    XMLDatabase xmlDb = new XMLDatabase();
-    InputStream inputStream = null;
+
+  /**
+   * Creates a database of the keys referenced in the sources and the keys
+   * kept anyway.
+   *
+   * @param xmlDb trema file model
+   * @return the database of the referenced keys
+   * @throws IOException if a source file could not be read
+   */
+  private XMLDatabase selectReferencedKeys(XMLDatabase xmlDb) throws IOException {
+    ITextNode[] nodes = xmlDb.getTextNodes();
+    String[] keys = new String[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      keys[i] = nodes[i].getKey();
+    }
+    Set<String> referenced = exportContext.getSourceKeyScanner().scan(keys, log);
+    KeyPatterns keptKeys = exportContext.getKeptKeys();
+    XMLDatabase selected = new XMLDatabase();
+    selected.setMasterLanguage(xmlDb.getMasterLanguage());
+    for (ITextNode node : nodes) {
+      if (referenced.contains(node.getKey()) || keptKeys != null && keptKeys.matches(node.getKey())) {
+        selected.addTextNode(node);
+      }
+    }
+    log.info("Exporting " + selected.getTextNodes().length + " of " + nodes.length + " keys referenced in "
+        + exportContext.getSourceKeyScanner());
+    return selected;
+  }
+
+  /**
+   * Writes the key hash manifest, mapping each language to the hashes of the
+   * exported texts by key, so that consumers can find the changed keys of two
+   * exports without reading the exported files. The file is only written if
+   * its content changed.
+   *
+   * @param xmlDb trema file model
+   * @param manifestLanguages all exported languages, also those whose files
+   * are not written
+   * @throws IOException if the manifest could not be written
+   */
+  private void writeKeyHashManifest(XMLDatabase xmlDb, String[] manifestLanguages) throws IOException {
+    String fileName = baseName + KEY_HASH_MANIFEST_SUFFIX;
+    ByteArrayOutputStream content = new ByteArrayOutputStream(
+        statistics.estimateKeyFileSize(manifestLanguages.length, KEY_HASH_LENGTH + 8));
+    Writer writer = new OutputStreamWriter(content, StandardCharsets.UTF_8);
+    JsonWriter json = new JsonWriter(writer, false);
+    json.beginObject();
+    for (String language : new TreeSet<String>(Arrays.asList(manifestLanguages))) {
+      Map<String, String> hashes = new TreeMap<String, String>();
+      for (ITextNode node : getTextNodes(xmlDb.getTextNodes(), statusIndex, language)) {
+        String value = ExportValues.getValue(node, language, status, exportContext.getFilters());
+        if (value != null) {
+          hashes.put(node.getKey(),
+              Digests.sha256Hex(value.getBytes(StandardCharsets.UTF_8)).substring(0, KEY_HASH_LENGTH));
+        }
+      }
+      json.name(language).beginObject();
+      for (Map.Entry<String, String> hash : hashes.entrySet()) {
+        json.name(hash.getKey()).value(hash.getValue());
+      }
+      json.endObject();
+    }
+    json.endObject();
+    writer.close();
+    byte[] bytes = content.toByteArray();
+    File file = new File(fileName);
+    if (file.isFile() && Arrays.equals(Files.readAllBytes(file.toPath()), bytes)) {
+      log.debug("Key hash manifest " + fileName + " is up to date.");
+      outputFiles.add(file);
+      return;
+    }
+    print("Writing key hash manifest to: " + fileName);
+    OutputStream outputStream = outputStreamFactory.createOutputStream(getNewFile(fileName));
     try {
-      inputStream = new FileInputStream(xmlPathName);
-      xmlDb.build(inputStream, false);
-    } catch (ParseException e) {
-      StringBuilder message = new StringBuilder("Parse error in XML file " + xmlPathName);
-      if (e.getLineNumber() >= 1) {
-        message.append(" on line ").append(e.getLineNumber());
+      outputStream.write(bytes);
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  /**
+   * Checks whether the export writes exactly one file per language (plus the
+   * default file), so that the files of unchanged languages can be kept.
+   *
+   * @return <code>true</code> if only changed languages need to be exported
+   */
+  private boolean isIncrementalExportSupported() {
+    return (type == ExportType.ANDROID || getLanguageFileExtension() != null)
+        && exportContext.getShards() == null && !exportContext.isContentHashFileNames();
+  }
+
+  /**
+   * Gets the extension of the language files of the export type.
+   *
+   * @return the extension including the dot or <code>null</code> if the
+   * export type does not write files named after the language
+   */
+  private String getLanguageFileExtension() {
+    if (type == ExportType.PROPERTIES) {
+      return ".properties";
+    } else if (type == ExportType.JSON) {
+      return ".json";
+    } else if (type == ExportType.RESOURCE_BUNDLE) {
+      return ".java";
+    } else if (type == ExportType.BINARY) {
+      return BINARY_EXTENSION;
+    } else if (type == ExportType.CSV) {
+      return ".csv";
+    } else if (type == ExportType.XLS) {
+      return ".xls";
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether the export writes a default file without language suffix.
+   *
+   * @return <code>true</code> if a default file is written
+   */
+  private boolean hasDefaultFile() {
+    return exportContext.getDefaultLanguage() != null
+        && (type == ExportType.PROPERTIES || type == ExportType.JSON
+        || type == ExportType.RESOURCE_BUNDLE || type == ExportType.BINARY);
+  }
+
+  /**
+   * Gets the language of the default file the language files inherit from.
+   * Android resources only have a default file if the default language is
+   * one of the exported languages.
+   *
+   * @return the language or <code>null</code> if no default file is exported
+   */
+  private String getInheritedDefaultLanguage() {
+    String defaultLanguage = exportContext.getDefaultLanguage();
+    if (type == ExportType.ANDROID) {
+      return Arrays.asList(languages).contains(defaultLanguage) ? defaultLanguage : null;
+    }
+    return hasDefaultFile() ? defaultLanguage : null;
+  }
+
+  /**
+   * Gets the file a language is exported to.
+   *
+   * @param language the language
+   * @param defaultFile <code>true</code> for the default file
+   * @return the file
+   */
+  private File getLanguageFile(String language, boolean defaultFile) {
+    if (type == ExportType.ANDROID) {
+      String suffix = language.equals(exportContext.getDefaultLanguage()) ? "" : "-" + language;
+      return new File(baseName + "/values" + suffix + "/strings.xml");
+    }
+    return new File(baseName + (defaultFile ? "" : "_" + language) + getLanguageFileExtension());
+  }
+
+  /**
+   * Computes the fingerprint of every file to export. The fingerprint of a
+   * file covers the texts of its language and of the languages the file
+   * depends on, i.e. the fallback languages or, for delta bundles, the
+   * inherited languages.
+   *
+   * @param xmlDb trema file model
+   * @return the fingerprints by language, plus the default file entry
+   */
+  private Map<String, String> getFileFingerprints(XMLDatabase xmlDb) {
+    Map<String, String> languageFingerprints = LanguageFingerprints.compute(xmlDb.getTextNodes(), status,
+        exportContext.getFilters());
+    Map<String, String> fingerprints = new TreeMap<String, String>();
+    for (String language : languages) {
+      List<String> dependencies = new ArrayList<String>();
+      dependencies.add(language);
+      if (fallbackChains != null) {
+        dependencies.addAll(fallbackChains.getChain(language));
+      }
+      if (deltaBundles != null && !(type == ExportType.ANDROID
+          && language.equals(exportContext.getDefaultLanguage()))) {
+        dependencies.addAll(deltaBundles.getInheritedLanguages(language));
+      }
+      fingerprints.put(language, LanguageFingerprints.combine(languageFingerprints, dependencies));
+    }
+    if (hasDefaultFile()) {
+      String defaultLanguage = exportContext.getDefaultLanguage();
+      List<String> dependencies = new ArrayList<String>();
+      dependencies.add(defaultLanguage);
+      if (fallbackChains != null) {
+        dependencies.addAll(fallbackChains.getChain(defaultLanguage));
+      }
+      fingerprints.put(DEFAULT_MANIFEST_ENTRY, LanguageFingerprints.combine(languageFingerprints, dependencies));
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Restricts the export to the files whose fingerprint changed since the
+   * previous export or which no longer exist. The kept files are reported as
+   * output files all the same.
+   *
+   * @param fingerprintManifest the manifest of the previous export
+   * @param fingerprints the current fingerprints of the files
+   */
+  private void skipUnchangedFiles(FingerprintManifest fingerprintManifest, Map<String, String> fingerprints) {
+    List<String> changedLanguages = new ArrayList<String>();
+    for (String language : languages) {
+      File file = getLanguageFile(language, false);
+      if (fingerprintManifest.isChanged(language, fingerprints.get(language)) || !file.isFile()) {
+        changedLanguages.add(language);
+      } else {
+        outputFiles.add(file);
+      }
+    }
+    if (hasDefaultFile()) {
+      File file = getLanguageFile(exportContext.getDefaultLanguage(), true);
+      writeDefaultFile = fingerprintManifest.isChanged(DEFAULT_MANIFEST_ENTRY,
+          fingerprints.get(DEFAULT_MANIFEST_ENTRY)) || !file.isFile();
+      if (!writeDefaultFile) {
+        outputFiles.add(file);
       }
-      message.append(": ").append(e.getMessage());
+    }
+    if (changedLanguages.size() < languages.length) {
+      print("Skipping " + (languages.length - changedLanguages.size()) + " unchanged " + type
+          + " languages, exporting " + changedLanguages + ".");
+    }
+    languages = changedLanguages.toArray(new String[changedLanguages.size()]);
+  }
+
+  /**
+   * Gets the manifest file of the fingerprints, named after the export type
+   * and the base name so that every export has its own.
+   *
+   * @return the manifest file
+   */
+  private File getFingerprintManifestFile() {
+    String baseNameHash = Digests.sha256Hex(new File(baseName).getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    return new File(exportContext.getIncrementalDirectory(),
+        type.name().toLowerCase(Locale.ENGLISH) + "-" + baseNameHash.substring(0, 16) + ".properties");
+  }
+
+  /**
+   * Gets the digest of the options determining the content of the files,
+   * apart from the exported languages which are tracked per file.
+   *
+   * @param xmlDb trema file model
+   * @return the hex encoded digest
+   */
+  private String getConfigurationDigest(XMLDatabase xmlDb) {
+    String configuration = FINGERPRINT_VERSION + "\n" + exportContext.getNormalizedConfiguration(false)
+        + "masterLanguage=" + xmlDb.getMasterLanguage() + "\n";
+    return Digests.sha256Hex(configuration.getBytes(StandardCharsets.UTF_8));
+  }
 
-      logAndThrow(message.toString());
+  /**
+   * Restores the files of a previous export with the same Trema file and
+   * configuration from the cache.
+   *
+   * @param exportCache the cache
+   * @param cacheKey the key of the export
+   * @return <code>true</code> if the files were restored
+   */
+  private boolean restoreFromCache(ExportCache exportCache, String cacheKey) {
+    try {
+      List<File> files = exportCache.restore(cacheKey, new File(baseName).getParentFile(), outputStreamFactory);
+      if (files == null) {
+        log.debug("Export cache miss for key " + cacheKey);
+        return false;
+      }
+      outputFiles.addAll(files);
+      print("Restored " + files.size() + " " + type + " files from the export cache.");
+      return true;
     } catch (IOException e) {
-      logAndThrow("Could not open XML file: " + e.getMessage());
-    } finally {
-      if (inputStream != null) {
-        try {
-          inputStream.close();
-        } catch (IOException e) {
-          logAndThrow("Could not open XML file: " + e.getMessage());
-        }
+      log.warn("Could not restore files from the export cache: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Stores the written files in the cache. Failures are only logged, the
+   * export itself succeeded.
+   *
+   * @param exportCache the cache
+   * @param cacheKey the key of the export
+   */
+  private void storeInCache(ExportCache exportCache, String cacheKey) {
+    try {
+      if (!exportCache.store(cacheKey, new File(baseName).getParentFile(), outputFiles)) {
+        log.debug("Not caching export with files outside of " + new File(baseName).getParent());
       }
+    } catch (IOException e) {
+      log.warn("Could not store files in the export cache: " + e.getMessage());
+    }
+  }
+
+  private CompactDatabase parseTremaXmlFile() throws Exception {
+    LanguageProjection projection = exportContext.getLanguageProjection();
+    log.debug(projection == null ? "Parsing Trema File..."
+        : "Parsing Trema File with the languages " + projection + " and the master language...");
+    CompactDatabase compactDb = null;
+    try {
+      compactDb = TremaFiles.parse(getTremaFiles(), projection, exportContext.getMappedValueDirectory());
+    } catch (IOException e) {
+      logAndThrow(e.getMessage());
+    } catch (ExportException e) {
+      logAndThrow(e.getMessage());
     }
     log.debug("Parsing Trema File done.");
-    return xmlDb;
+    return compactDb;
+  }
+
+  private List<File> getTremaFiles() {
+    List<File> files = new ArrayList<File>();
+    for (String xmlPathName : xmlPathNames) {
+      files.add(new File(xmlPathName));
+    }
+    return files;
+  }
+
+  private static boolean allFilesExist(List<File> files) {
+    for (File file : files) {
+      if (!file.isFile()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private void exportAsAndroidFile(XMLDatabase xmlDb) throws IOException, ExportException {
@@ -154,40 +573,29 @@ public class TremaExport {
       }
       AndroidExporter exporter = new AndroidExporter(getNewFile(fileName), outputStreamFactory);
       logBeforeFileWrite(fileName, language);
-      exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), languages[i], status);
+      ITextNode[] nodes = getTextNodes(xmlDb.getTextNodes(), statusIndex, language);
+      if (deltaBundles != null && !language.equals(defaultLanguage)) {
+        nodes = deltaBundles.omitInherited(nodes, language);
+      }
+      exporter.export(nodes, xmlDb.getMasterLanguage(), language, status);
+      normalizeLineEndings(fileName);
     }
     logAfterFileWrites();
   }
 
 
   private void exportAsProperties(XMLDatabase xmlDb) throws IOException, ExportException {
-    for (int i = 0; i < languages.length; i++) {
-      String fileName = baseName + "_" + languages[i] + ".properties";
-      PropertiesExporter exporter = new PropertiesExporter(getNewFile(fileName),
-          outputStreamFactory);
-      exporter.setExportFilter(exportContext.getFilters());
-      logBeforeFileWrite(fileName, languages[i]);
-      exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), languages[i], status);
-    }
-    // export default properties file (without language suffix)
-    String defaultLanguage = exportContext.getDefaultLanguage();
-    if (defaultLanguage != null) {
-      String fileName = baseName + ".properties";
-      PropertiesExporter exporter = new PropertiesExporter(getNewFile(fileName),
-          outputStreamFactory);
-      exporter.setExportFilter(exportContext.getFilters());
-      logBeforeFileWrite(fileName, defaultLanguage);
-      exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), defaultLanguage, status);
-    }
-    logAfterFileWrites();
+    exportLanguageFiles(xmlDb, ExportType.PROPERTIES, ".properties");
   }
+
   private void exportAsXls(XMLDatabase xmlDb) throws Exception {
     for (int i = 0; i < languages.length; i++) {
       String fileName = baseName + "_" + languages[i] + ".xls";
       logBeforeFileWrite(fileName, languages[i]);
       try {
         XLSExporter exporter = new XLSExporter(getNewFile(fileName));
-        exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), languages[i], status);
+        exporter.export(getTextNodes(xmlDb.getTextNodes(), languages[i]), xmlDb.getMasterLanguage(),
+            languages[i], status);
       } catch (IOException e) {
         logAndThrow("\nCould not write output: " + e.getMessage());
       } catch (ExportException e) {
@@ -204,11 +612,13 @@ public class TremaExport {
 
       Writer writer = null;
       try {
+        // UTF-8 unless configured, so the files do not depend on the platform encoding
         writer = new OutputStreamWriter(new FileOutputStream(getNewFile(fileName)),
-            exportContext.getCsvEncoding());
+            exportContext.getCsvEncoding() != null ? exportContext.getCsvEncoding() : "UTF-8");
         TremaCSVPrinter printer = new TremaCSVPrinter(writer, exportContext.getCsvSeparator());
         CSVExporter exporter = new CSVExporter(printer);
-        exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), languages[i], status);
+        exporter.export(getTextNodes(xmlDb.getTextNodes(), languages[i]), xmlDb.getMasterLanguage(),
+            languages[i], status);
       } catch (UnsupportedEncodingException e) {
         logAndThrow("\n" + e.getMessage() + " is an unsupported encoding.");
       } catch (IOException e) {
@@ -222,6 +632,7 @@ public class TremaExport {
           }
         }
       }
+      normalizeLineEndings(fileName);
     }
     logAfterFileWrites();
   }
@@ -234,27 +645,350 @@ public class TremaExport {
    */
   // Visible for testing
   void exportAsJson(XMLDatabase xmlDb) throws IOException, ExportException {
+    exportLanguageFiles(xmlDb, ExportType.JSON, ".json");
+  }
+
+  /**
+   * Exports the key class and one message table class per language.
+   *
+   * @param xmlDb trema file model
+   * @throws IOException if a file could not be written
+   * @throws ExportException if a language is not valid in a class name
+   */
+  private void exportAsMessageTables(XMLDatabase xmlDb) throws IOException, ExportException {
+    String className = new File(baseName).getName();
+    MessageTablesWriter writer = new MessageTablesWriter(exportContext.getJavaPackage(), className,
+        xmlDb.getTextNodes());
+    String fileName = baseName + ".java";
+    print("Writing " + type + " key class to: " + fileName);
+    writer.writeKeyClass(outputStreamFactory.createOutputStream(getNewFile(fileName)));
     for (int i = 0; i < languages.length; i++) {
-      String fileName = baseName + "_" + languages[i] + ".json";
-      JsonExporter exporter =
-          (JsonExporter) exporterFactory.getExporter(ExportType.JSON, getNewFile(fileName),
-          outputStreamFactory, exportContext);
-      exporter.setExportFilter(exportContext.getFilters());
+      String languageClassName = writer.getLanguageClassName(languages[i]);
+      if (!JavaSourceWriter.isIdentifier(languageClassName)) {
+        throw new ExportException("Invalid class name '" + languageClassName + "' for language "
+            + languages[i]);
+      }
+      fileName = new File(new File(baseName).getParentFile(), languageClassName + ".java").getPath();
       logBeforeFileWrite(fileName, languages[i]);
-      exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), languages[i], status);
+      writer.writeLanguageClass(outputStreamFactory.createOutputStream(getNewFile(fileName)),
+          getTextNodes(xmlDb.getTextNodes(), languages[i]), languages[i], status,
+          exportContext.getFilters());
+    }
+    logAfterFileWrites();
+  }
+
+  /**
+   * Exports one file per language (plus the default file), split into shards
+   * if configured.
+   *
+   * @param xmlDb trema file model
+   * @param fileType the type of the files
+   * @param extension the file extension including the dot
+   * @throws IOException if a file could not be written
+   * @throws ExportException if the export failed
+   */
+  private void exportLanguageFiles(XMLDatabase xmlDb, ExportType fileType, String extension)
+      throws IOException, ExportException {
+    KeyPrefixShards shards = exportContext.getShards();
+    if (shards == null) {
+      Map<String, File> files = exportLanguageFiles(xmlDb.getTextNodes(), statusIndex,
+          xmlDb.getMasterLanguage(), fileType, baseName, extension);
+      if (exportContext.isContentHashFileNames()) {
+        writeManifest(baseName + ".manifest.json", files);
+      }
+    } else {
+      Map<String, Map<String, File>> shardFiles = new LinkedHashMap<String, Map<String, File>>();
+      for (Map.Entry<String, ITextNode[]> shard : shards.partition(xmlDb.getTextNodes()).entrySet()) {
+        shardFiles.put(shard.getKey(), exportLanguageFiles(shard.getValue(), createStatusIndex(shard.getValue()),
+            xmlDb.getMasterLanguage(), fileType, baseName + "_" + shard.getKey(), extension));
+      }
+      writeShardIndex(baseName + ".shards.json", shards, shardFiles);
     }
-    // export default properties file (without language suffix)
+    logAfterFileWrites();
+  }
+
+  /**
+   * Exports the given nodes into one file per language (plus the default file).
+   *
+   * @param nodes the text nodes to export
+   * @param nodesIndex the status index of the nodes, may be <code>null</code>
+   * @param masterLanguage the master language of the database
+   * @param fileType the type of the files
+   * @param fileBaseName path and beginning of the file names
+   * @param extension the file extension including the dot
+   * @return the written files by language, sorted by language
+   * @throws IOException if a file could not be written
+   * @throws ExportException if the export failed
+   */
+  private Map<String, File> exportLanguageFiles(ITextNode[] nodes, StatusIndex nodesIndex, String masterLanguage,
+      ExportType fileType, String fileBaseName, String extension) throws IOException, ExportException {
+    Map<String, File> writtenFiles = new TreeMap<String, File>();
+    for (int i = 0; i < languages.length; i++) {
+      String fileName = fileBaseName + "_" + languages[i] + extension;
+      writtenFiles.put(languages[i],
+          exportLanguageFile(nodes, nodesIndex, masterLanguage, fileType, fileName, extension, languages[i],
+              false));
+    }
+    // export default file (without language suffix)
     String defaultLanguage = exportContext.getDefaultLanguage();
-    if (defaultLanguage != null) {
-      String fileName = baseName + ".json";
-      JsonExporter exporter =
-          (JsonExporter) exporterFactory.getExporter(ExportType.JSON, getNewFile(fileName),
+    if (defaultLanguage != null && writeDefaultFile) {
+      String fileName = fileBaseName + extension;
+      writtenFiles.put(DEFAULT_MANIFEST_ENTRY,
+          exportLanguageFile(nodes, nodesIndex, masterLanguage, fileType, fileName, extension, defaultLanguage,
+              true));
+    }
+    return writtenFiles;
+  }
+
+  private File exportLanguageFile(ITextNode[] nodes, StatusIndex nodesIndex, String masterLanguage,
+      ExportType fileType, String fileName, String extension, String language, boolean defaultFile)
+      throws IOException, ExportException {
+    ITextNode[] languageNodes = getTextNodes(nodes, nodesIndex, language);
+    if (deltaBundles != null && !defaultFile) {
+      languageNodes = deltaBundles.omitInherited(languageNodes, language);
+    }
+    File file = getNewFile(fileName);
+    logBeforeFileWrite(fileName, language);
+    writeLanguageFile(languageNodes, masterLanguage, fileType, file, extension, language);
+    if (exportContext.isContentHashFileNames()) {
+      return renameToContentHash(fileName, extension);
+    }
+    return new File(fileName);
+  }
+
+  /**
+   * Writes the texts of one language with the exporter of the file type.
+   *
+   * @param languageNodes the text nodes to export
+   * @param masterLanguage the master language of the database
+   * @param fileType the type of the file
+   * @param file the file, passed to the output stream factory
+   * @param extension the file extension including the dot
+   * @param language the language
+   * @throws IOException if the file could not be written
+   * @throws ExportException if the export failed
+   */
+  private void writeLanguageFile(ITextNode[] languageNodes, String masterLanguage, ExportType fileType,
+      File file, String extension, String language) throws IOException, ExportException {
+    if (fileType == ExportType.JSON) {
+      StreamingJsonExporter exporter =
+          (StreamingJsonExporter) exporterFactory.getExporter(ExportType.JSON, file,
           outputStreamFactory, exportContext);
       exporter.setExportFilter(exportContext.getFilters());
-      logBeforeFileWrite(fileName, defaultLanguage);
-      exporter.export(xmlDb.getTextNodes(), xmlDb.getMasterLanguage(), defaultLanguage, status);
+      exporter.export(languageNodes, masterLanguage, language, status);
+    } else if (fileType == ExportType.RESOURCE_BUNDLE) {
+      String className = file.getName();
+      className = className.substring(0, className.length() - extension.length());
+      ListResourceBundleExporter exporter = new ListResourceBundleExporter(file,
+          outputStreamFactory, exportContext.getJavaPackage(), className);
+      exporter.setExportFilter(exportContext.getFilters());
+      exporter.export(languageNodes, masterLanguage, language, status);
+    } else if (fileType == ExportType.BINARY) {
+      BinaryCatalogExporter exporter = new BinaryCatalogExporter(file, outputStreamFactory);
+      exporter.setExportFilter(exportContext.getFilters());
+      exporter.export(languageNodes, masterLanguage, language, status);
+    } else {
+      PropertiesFileExporter exporter = new PropertiesFileExporter(file, outputStreamFactory,
+          exportContext.isPropertiesUtf8());
+      exporter.setExportFilter(exportContext.getFilters());
+      exporter.export(languageNodes, masterLanguage, language, status);
+    }
+  }
+
+  /**
+   * Renders the file of one language in memory instead of writing it, e.g. to
+   * serve it. Fallbacks are resolved if configured; shards, content hash file
+   * names and delta bundles do not apply to a single rendered file.
+   *
+   * @param xmlDb trema file model
+   * @param statistics the statistics of the database
+   * @param fileType the type of the file, JSON or PROPERTIES
+   * @param language the language
+   * @return the content of the file
+   * @throws IOException if the file could not be rendered
+   * @throws ExportException if the export failed
+   */
+  byte[] render(XMLDatabase xmlDb, DatabaseStatistics statistics, ExportType fileType, String language)
+      throws IOException, ExportException {
+    if (exportContext.isResolveFallbacks() && fallbackChains == null) {
+      fallbackChains = new FallbackChains(exportContext.getFallbackChains(),
+          exportContext.getDefaultLanguage(), xmlDb.getMasterLanguage());
+    }
+    final ByteArrayOutputStream content = new ByteArrayOutputStream(
+        Math.max(32, statistics.estimateFileSize(language)));
+    OutputStreamFactory memoryOutputStreamFactory = new OutputStreamFactory() {
+      @Override
+      public OutputStream createOutputStream(File file) {
+        content.reset();
+        return content;
+      }
+    };
+    OutputStreamFactory previousOutputStreamFactory = outputStreamFactory;
+    outputStreamFactory = memoryOutputStreamFactory;
+    try {
+      String extension = fileType == ExportType.JSON ? ".json" : ".properties";
+      writeLanguageFile(getTextNodes(xmlDb.getTextNodes(), language), xmlDb.getMasterLanguage(), fileType,
+          new File(baseName + "_" + language + extension), extension, language);
+    } finally {
+      outputStreamFactory = previousOutputStreamFactory;
+    }
+    return content.toByteArray();
+  }
+
+  /**
+   * Replaces the platform dependent line endings some exporters write by
+   * '\n', so the files are identical on every platform. Only used for XML
+   * files, where a parser normalizes line endings anyway, and CSV files,
+   * whose values come from a Trema file where the XML parser already
+   * replaced CR LF by '\n'.
+   *
+   * @param fileName the name of the exported file
+   * @throws IOException if the file could not be read or written
+   */
+  private void normalizeLineEndings(String fileName) throws IOException {
+    File file = new File(fileName);
+    byte[] content = Files.readAllBytes(file.toPath());
+    int length = 0;
+    for (int i = 0; i < content.length; i++) {
+      if (content[i] != '\r' || i + 1 >= content.length || content[i + 1] != '\n') {
+        content[length++] = content[i];
+      }
+    }
+    if (length == content.length) {
+      return;
+    }
+    OutputStream outputStream = outputStreamFactory.createOutputStream(file);
+    try {
+      outputStream.write(content, 0, length);
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  /**
+   * Gets the text nodes to export for a language, with the missing texts
+   * filled in from the fallback languages if fallbacks are resolved.
+   *
+   * @param nodes the text nodes
+   * @param language the language
+   * @return the text nodes to export
+   */
+  private ITextNode[] getTextNodes(ITextNode[] nodes, String language) {
+    return fallbackChains == null ? nodes : fallbackChains.resolve(nodes, language, status);
+  }
+
+  /**
+   * Gets the text nodes to export for a language, only the ones with a value
+   * in an exported status if the nodes are indexed.
+   *
+   * @param nodes the text nodes
+   * @param nodesIndex the status index of the nodes, may be <code>null</code>
+   * @param language the language
+   * @return the text nodes to export
+   */
+  private ITextNode[] getTextNodes(ITextNode[] nodes, StatusIndex nodesIndex, String language) {
+    return nodesIndex == null ? getTextNodes(nodes, language) : nodesIndex.select(language, status);
+  }
+
+  /**
+   * Creates the status index of the nodes if the exported status are
+   * restricted. Not used when resolving fallbacks, where a node without an
+   * exported value in a language may still be exported with the value of a
+   * fallback language.
+   *
+   * @param nodes the text nodes
+   * @return the index or <code>null</code>
+   */
+  private StatusIndex createStatusIndex(ITextNode[] nodes) {
+    return status == null || fallbackChains != null ? null : new StatusIndex(nodes);
+  }
+
+  /**
+   * Writes the index of a sharded export, listing the key prefix and the
+   * files of every shard.
+   *
+   * @param fileName the index file name
+   * @param shards the shard rules
+   * @param shardFiles the written files by shard and language
+   * @throws IOException if the index could not be written
+   */
+  private void writeShardIndex(String fileName, KeyPrefixShards shards,
+      Map<String, Map<String, File>> shardFiles) throws IOException {
+    print("Writing shard index to: " + fileName);
+    Writer writer = new OutputStreamWriter(outputStreamFactory.createOutputStream(getNewFile(fileName)),
+        StandardCharsets.UTF_8);
+    try {
+      JsonWriter json = new JsonWriter(writer, false);
+      json.beginObject();
+      for (Map.Entry<String, Map<String, File>> shard : shardFiles.entrySet()) {
+        json.name(shard.getKey()).beginObject();
+        json.name("prefix").value(shards.getPrefix(shard.getKey()));
+        json.name("files");
+        writeFileEntries(json, shard.getValue());
+        json.endObject();
+      }
+      json.endObject();
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Replaces an exported file by a copy named after a hash of its content,
+   * e.g. text_de.json becomes text_de.3f9a1c2b.json.
+   *
+   * @param fileName the name of the exported file
+   * @param extension the file extension including the dot
+   * @return the content hashed file
+   * @throws IOException if the file could not be read or written
+   */
+  private File renameToContentHash(String fileName, String extension) throws IOException {
+    File file = new File(fileName);
+    byte[] content = Files.readAllBytes(file.toPath());
+    String hash = Digests.sha256Hex(content).substring(0, CONTENT_HASH_LENGTH);
+    String prefix = fileName.substring(0, fileName.length() - extension.length());
+    File hashedFile = getNewFile(prefix + "." + hash + extension);
+    OutputStream outputStream = outputStreamFactory.createOutputStream(hashedFile);
+    try {
+      outputStream.write(content);
+    } finally {
+      outputStream.close();
+    }
+    if (file.delete()) {
+      outputFiles.remove(file);
+    } else {
+      log.debug("Could not delete '" + file.getAbsolutePath() + "'.");
+    }
+    return hashedFile;
+  }
+
+  /**
+   * Writes a manifest mapping each language to the name and size of its file.
+   *
+   * @param fileName the manifest file name
+   * @param files the written files by language
+   * @throws IOException if the manifest could not be written
+   */
+  private void writeManifest(String fileName, Map<String, File> files) throws IOException {
+    print("Writing manifest to: " + fileName);
+    Writer writer = new OutputStreamWriter(outputStreamFactory.createOutputStream(getNewFile(fileName)),
+        StandardCharsets.UTF_8);
+    try {
+      writeFileEntries(new JsonWriter(writer, false), files);
+    } finally {
+      writer.close();
     }
-    logAfterFileWrites();
+  }
+
+  private static void writeFileEntries(JsonWriter json, Map<String, File> files) throws IOException {
+    json.beginObject();
+    for (Map.Entry<String, File> entry : files.entrySet()) {
+      json.name(entry.getKey()).beginObject()
+          .name("file").value(entry.getValue().getName())
+          .name("size").value(entry.getValue().length())
+          .endObject();
+    }
+    json.endObject();
   }
 
   private File getNewFile(String fileName) throws IOException {
@@ -269,15 +1003,27 @@ public class TremaExport {
     if (!success) {
       log.debug("File '" + file.getAbsolutePath() + "' existed already.");
     }
+    outputFiles.add(file);
     return file;
 
   }
 
+  /**
+   * Gets the files written by the export, e.g. to declare them as outputs of
+   * the build.
+   *
+   * @return the written files, in the order they were written
+   */
+  public Set<File> getOutputFiles() {
+    return Collections.unmodifiableSet(outputFiles);
+  }
+
   public void setOutputStreamFactory(OutputStreamFactory outputStreamFactory) {
     this.outputStreamFactory = outputStreamFactory;
   }
   private void logBeforeFileWrite(String fileName, String language) {
-    print("Writing " + type + " file for language " + language + " to: " + fileName);
+    print("Writing " + type + " file for language " + language + " (" + statistics.getValueCount(language)
+        + " of " + statistics.getKeyCount() + " texts) to: " + fileName);
   }
   private void logAfterFileWrites() {
     print("Finished writing all " + type + " files.");
@@ -1,5 +1,15 @@
 package com.netcetera.trema.maven;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
 import com.netcetera.trema.core.Status;
 import com.netcetera.trema.core.api.IExportFilter;
 import com.netcetera.trema.core.exporting.AddKeyToValueExportFilter;
@@ -45,15 +55,33 @@ public class TremaExportContext {
 
   private ExportType type = null;
   private String[] languages = null;
+  private Set<String> writtenLanguages = null;
   private Status[] status = DEFAULT_EXPORT_STATUS;
   private IExportFilter[] filters;
   private String xmlPathName = null;
+  private String[] xmlPathNames = null;
   private String baseName = null;
   private String csvEncoding = null;
   private String defaultLanguage = null;
 
   private char csvSeparator = DEFAULT_CSV_SEPARATOR;
   private boolean createDefaultProperties = false;
+  private boolean contentHashFileNames = false;
+  private KeyPrefixShards shards = null;
+  private KeyPatterns keyPatterns = null;
+  private SourceKeyScanner sourceKeyScanner = null;
+  private KeyPatterns keptKeys = null;
+  private boolean jsonNested = false;
+  private boolean jsonMinified = false;
+  private String javaPackage = "";
+  private boolean resolveFallbacks = false;
+  private Map<String, List<String>> fallbackChains = Collections.emptyMap();
+  private boolean deltaBundles = false;
+  private boolean propertiesUtf8 = false;
+  private ExportCache exportCache = null;
+  private File incrementalDirectory = null;
+  private boolean keyHashManifest = false;
+  private File mappedValueDirectory = null;
 
   public boolean isCreateDefaultProperties() {
     return createDefaultProperties;
@@ -100,6 +128,28 @@ public class TremaExportContext {
     this.languages = languages;
   }
 
+  /**
+   * Gets the languages whose files are written.
+   *
+   * @return the languages or <code>null</code> to write the files of all
+   * exported languages
+   */
+  public Set<String> getWrittenLanguages() {
+    return writtenLanguages;
+  }
+
+  /**
+   * Restricts the written files to some of the exported languages, e.g. the
+   * changed ones. The other exported languages are still part of the outputs
+   * covering all languages, like the key hash manifest.
+   *
+   * @param writtenLanguages the languages, <code>null</code> to write the
+   * files of all exported languages
+   */
+  public void setWrittenLanguages(Set<String> writtenLanguages) {
+    this.writtenLanguages = writtenLanguages;
+  }
+
   /**
    * Gets the status.
    *
@@ -148,6 +198,29 @@ public class TremaExportContext {
     this.xmlPathName = xmlPathName;
   }
 
+  /**
+   * Gets the paths of all Trema files to export together.
+   *
+   * @return the paths, the xmlPathName alone unless several paths are set
+   */
+  public String[] getXmlPathNames() {
+    if (xmlPathNames == null) {
+      return xmlPathName == null ? new String[0] : new String[]{xmlPathName};
+    }
+    return xmlPathNames;
+  }
+
+  /**
+   * Sets the paths of several Trema files to export together, merged into
+   * one database. The xmlPathName is set to the first path.
+   *
+   * @param xmlPathNames the paths
+   */
+  public void setXmlPathNames(String[] xmlPathNames) {
+    this.xmlPathNames = xmlPathNames;
+    this.xmlPathName = xmlPathNames.length == 0 ? null : xmlPathNames[0];
+  }
+
   /**
    * Gets the baseName.
    *
@@ -178,7 +251,7 @@ public class TremaExportContext {
   /**
    * Sets the csvEncoding.
    *
-   * @param csvEncoding The csvEncoding to set.
+   * @param csvEncoding The csvEncoding to set, <code>null</code> for UTF-8.
    */
   public void setCsvEncoding(String csvEncoding) {
     this.csvEncoding = csvEncoding;
@@ -256,4 +329,450 @@ public class TremaExportContext {
     this.defaultLanguage = defaultLanguage;
   }
 
+  /**
+   * Whether the exported files are named by a hash of their content.
+   *
+   * @return <code>true</code> if content hashed file names are used
+   */
+  public boolean isContentHashFileNames() {
+    return contentHashFileNames;
+  }
+
+  /**
+   * If set, every exported file gets a hash of its content in the file name
+   * (e.g. text_de.3f9a1c2b.json) and a manifest mapping the languages to the
+   * hashed file names is written.
+   *
+   * @param contentHashFileNames <code>true</code> to use content hashed names
+   */
+  public void setContentHashFileNames(boolean contentHashFileNames) {
+    this.contentHashFileNames = contentHashFileNames;
+  }
+
+  /**
+   * Gets the key prefix shards.
+   *
+   * @return the shards or <code>null</code> if the export is not sharded
+   */
+  public KeyPrefixShards getShards() {
+    return shards;
+  }
+
+  /**
+   * Sets the key prefix rules to split the export into shards, e.g.
+   * "checkout.*". Keys not matched by any rule go into the common shard.
+   *
+   * @param shardPatterns the shard patterns
+   * @throws IllegalArgumentException in case a pattern is invalid
+   */
+  public void setShards(String[] shardPatterns) throws IllegalArgumentException {
+    if (shardPatterns != null && shardPatterns.length > 0) {
+      shards = new KeyPrefixShards(shardPatterns);
+    } else {
+      shards = null;
+    }
+  }
+
+  /**
+   * Gets the patterns selecting the exported keys.
+   *
+   * @return the key patterns or <code>null</code> if all keys are exported
+   */
+  public KeyPatterns getKeyPatterns() {
+    return keyPatterns;
+  }
+
+  /**
+   * Sets the patterns selecting the exported keys, e.g. "mobile.*". A key is
+   * exported if it matches an include pattern, or if there are none, and no
+   * exclude pattern.
+   *
+   * @param includes the patterns of the keys to export
+   * @param excludes the patterns of the keys not to export
+   * @throws IllegalArgumentException in case a pattern is invalid
+   */
+  public void setKeyPatterns(String[] includes, String[] excludes) throws IllegalArgumentException {
+    if (includes != null && includes.length > 0 || excludes != null && excludes.length > 0) {
+      keyPatterns = new KeyPatterns(includes, excludes);
+    } else {
+      keyPatterns = null;
+    }
+  }
+
+  /**
+   * Gets the scanner of the sources for referenced keys.
+   *
+   * @return the scanner or <code>null</code> if unreferenced keys are
+   * exported as well
+   */
+  SourceKeyScanner getSourceKeyScanner() {
+    return sourceKeyScanner;
+  }
+
+  /**
+   * Restricts the export to the keys referenced in source files.
+   *
+   * @param sourceRoots the directories of the source files
+   * @param extensions the extensions of the source files, eg. java or ts
+   * @param cacheFile the file caching the keys found in every source file,
+   * may be <code>null</code>
+   * @throws IllegalArgumentException in case a source root is not a directory
+   */
+  public void setSourceKeyScan(List<File> sourceRoots, List<String> extensions, File cacheFile)
+      throws IllegalArgumentException {
+    if (sourceRoots != null && !sourceRoots.isEmpty()) {
+      for (File sourceRoot : sourceRoots) {
+        if (!sourceRoot.isDirectory()) {
+          throw new IllegalArgumentException("Source root is not a directory: " + sourceRoot);
+        }
+      }
+      sourceKeyScanner = new SourceKeyScanner(sourceRoots, extensions, cacheFile);
+    } else {
+      sourceKeyScanner = null;
+    }
+  }
+
+  /**
+   * Gets the patterns of the keys exported even if they are not referenced
+   * in the sources.
+   *
+   * @return the key patterns or <code>null</code>
+   */
+  public KeyPatterns getKeptKeys() {
+    return keptKeys;
+  }
+
+  /**
+   * Sets the patterns of the keys exported even if they are not referenced
+   * in the sources, e.g. "error.*" for keys built at runtime.
+   *
+   * @param patterns the key patterns
+   * @throws IllegalArgumentException in case a pattern is invalid
+   */
+  public void setKeptKeys(String[] patterns) throws IllegalArgumentException {
+    if (patterns != null && patterns.length > 0) {
+      keptKeys = new KeyPatterns(patterns, null);
+    } else {
+      keptKeys = null;
+    }
+  }
+
+  /**
+   * Whether JSON keys are split on '.' into nested objects.
+   *
+   * @return <code>true</code> for nested JSON
+   */
+  public boolean isJsonNested() {
+    return jsonNested;
+  }
+
+  /**
+   * If set, JSON keys are split on '.' into nested objects, e.g. the key
+   * "a.b" is exported as {"a":{"b":"..."}}.
+   *
+   * @param jsonNested <code>true</code> for nested JSON
+   */
+  public void setJsonNested(boolean jsonNested) {
+    this.jsonNested = jsonNested;
+  }
+
+  /**
+   * Whether JSON is written without any optional whitespace.
+   *
+   * @return <code>true</code> for minified JSON
+   */
+  public boolean isJsonMinified() {
+    return jsonMinified;
+  }
+
+  /**
+   * If set, JSON is written without any optional whitespace.
+   *
+   * @param jsonMinified <code>true</code> for minified JSON
+   */
+  public void setJsonMinified(boolean jsonMinified) {
+    this.jsonMinified = jsonMinified;
+  }
+
+  /**
+   * Gets the package of generated Java classes.
+   *
+   * @return the package, empty for the default package
+   */
+  public String getJavaPackage() {
+    return javaPackage;
+  }
+
+  /**
+   * Sets the package of generated Java classes.
+   *
+   * @param javaPackage the package, empty for the default package
+   */
+  public void setJavaPackage(String javaPackage) {
+    this.javaPackage = javaPackage;
+  }
+
+  /**
+   * Checks whether missing texts are filled in from the fallback languages.
+   *
+   * @return <code>true</code> if fallbacks are resolved at export time
+   */
+  public boolean isResolveFallbacks() {
+    return resolveFallbacks;
+  }
+
+  /**
+   * Sets whether missing texts are filled in from the fallback languages.
+   *
+   * @param resolveFallbacks <code>true</code> to resolve fallbacks at export time
+   */
+  public void setResolveFallbacks(boolean resolveFallbacks) {
+    this.resolveFallbacks = resolveFallbacks;
+  }
+
+  /**
+   * Gets the configured fallback chains.
+   *
+   * @return the fallback languages by language, empty if none are configured
+   */
+  public Map<String, List<String>> getFallbackChains() {
+    return fallbackChains;
+  }
+
+  /**
+   * Sets the fallback chains.
+   *
+   * @param fallbackChains chains like de_CH:fr_CH,de, may be <code>null</code>
+   * @throws IllegalArgumentException if a chain is malformed
+   */
+  public void setFallbackChains(String[] fallbackChains) throws IllegalArgumentException {
+    this.fallbackChains = fallbackChains == null
+        ? Collections.<String, List<String>>emptyMap() : FallbackChains.parse(fallbackChains);
+  }
+
+  /**
+   * Checks whether texts equal to the inherited ones are omitted.
+   *
+   * @return <code>true</code> if only the differences to the parent languages are exported
+   */
+  public boolean isDeltaBundles() {
+    return deltaBundles;
+  }
+
+  /**
+   * Sets whether texts equal to the inherited ones are omitted.
+   *
+   * @param deltaBundles <code>true</code> to export only the differences to the parent languages
+   */
+  public void setDeltaBundles(boolean deltaBundles) {
+    this.deltaBundles = deltaBundles;
+  }
+
+  /**
+   * Checks whether properties files are written in UTF-8.
+   *
+   * @return <code>true</code> for UTF-8, <code>false</code> for ISO-8859-1 with unicode escapes
+   */
+  public boolean isPropertiesUtf8() {
+    return propertiesUtf8;
+  }
+
+  /**
+   * Sets the encoding of properties files.
+   *
+   * @param encoding UTF-8 or ISO-8859-1, <code>null</code> for ISO-8859-1
+   * @throws IllegalArgumentException if the encoding is not supported
+   */
+  public void setPropertiesEncoding(String encoding) throws IllegalArgumentException {
+    if (encoding == null || "ISO-8859-1".equalsIgnoreCase(encoding)) {
+      propertiesUtf8 = false;
+    } else if ("UTF-8".equalsIgnoreCase(encoding)) {
+      propertiesUtf8 = true;
+    } else {
+      throw new IllegalArgumentException("Unsupported properties encoding: " + encoding
+          + " (expected ISO-8859-1 or UTF-8)");
+    }
+  }
+
+  /**
+   * Gets the cache of exported files.
+   *
+   * @return the cache or <code>null</code> if exports are not cached
+   */
+  public ExportCache getExportCache() {
+    return exportCache;
+  }
+
+  /**
+   * Sets the cache of exported files.
+   *
+   * @param exportCache the cache, <code>null</code> to not cache exports
+   */
+  public void setExportCache(ExportCache exportCache) {
+    this.exportCache = exportCache;
+  }
+
+  /**
+   * Gets the directory of the fingerprint manifests of incremental exports.
+   *
+   * @return the directory or <code>null</code> if all languages are exported
+   * on every run
+   */
+  public File getIncrementalDirectory() {
+    return incrementalDirectory;
+  }
+
+  /**
+   * Sets the directory of the fingerprint manifests of incremental exports.
+   * An incremental export only writes the files of the languages whose texts
+   * changed since the previous export.
+   *
+   * @param incrementalDirectory the directory, <code>null</code> to export
+   * all languages on every run
+   */
+  public void setIncrementalDirectory(File incrementalDirectory) {
+    this.incrementalDirectory = incrementalDirectory;
+  }
+
+  /**
+   * Checks whether a manifest with a hash of every exported text by language
+   * and key is written.
+   *
+   * @return <code>true</code> if the key hash manifest is written
+   */
+  public boolean isKeyHashManifest() {
+    return keyHashManifest;
+  }
+
+  /**
+   * Sets whether a manifest with a hash of every exported text by language
+   * and key is written, named like the base name with the suffix .keys.json.
+   *
+   * @param keyHashManifest <code>true</code> to write the key hash manifest
+   */
+  public void setKeyHashManifest(boolean keyHashManifest) {
+    this.keyHashManifest = keyHashManifest;
+  }
+
+  /**
+   * Gets the directory of the memory-mapped files holding the values of the
+   * parsed texts.
+   *
+   * @return the directory or <code>null</code> if the values are kept on the
+   * heap
+   */
+  public File getMappedValueDirectory() {
+    return mappedValueDirectory;
+  }
+
+  /**
+   * Sets the directory of the memory-mapped files holding the values of the
+   * parsed texts off the heap, for very large Trema files.
+   *
+   * @param mappedValueDirectory the directory, <code>null</code> to keep the
+   * values on the heap
+   */
+  public void setMappedValueDirectory(File mappedValueDirectory) {
+    this.mappedValueDirectory = mappedValueDirectory;
+  }
+
+  /**
+   * Gets the languages to parse from the Trema file when only some languages
+   * are exported: the exported languages, the default language and, when
+   * resolving fallbacks, their fallback languages. The values of the master
+   * language are always parsed.
+   *
+   * @return the projection or <code>null</code> if all languages are parsed
+   */
+  LanguageProjection getLanguageProjection() {
+    return languages == null ? null : getLanguageProjection(Arrays.asList(languages));
+  }
+
+  /**
+   * Gets the languages an export of some languages needs: these languages,
+   * the default language and, when resolving fallbacks, their fallback
+   * languages. The master language is not included.
+   *
+   * @param exportedLanguages the exported languages
+   * @return the projection
+   */
+  LanguageProjection getLanguageProjection(Collection<String> exportedLanguages) {
+    Set<String> parsedLanguages = new TreeSet<String>(exportedLanguages);
+    if (defaultLanguage != null) {
+      parsedLanguages.add(defaultLanguage);
+    }
+    if (resolveFallbacks) {
+      // the master language is added by the projection once it is known
+      FallbackChains chains = new FallbackChains(fallbackChains, defaultLanguage, null);
+      for (String language : new ArrayList<String>(parsedLanguages)) {
+        parsedLanguages.addAll(chains.getChain(language));
+      }
+    }
+    return new LanguageProjection(parsedLanguages);
+  }
+
+  /**
+   * Gets the options determining the names and content of the exported
+   * files, for cache keys. Paths are left out except for the name of the
+   * base name, so that the same export in another project or directory has
+   * the same configuration.
+   *
+   * @return the options as normalized string
+   */
+  String getNormalizedConfiguration() {
+    return getNormalizedConfiguration(true);
+  }
+
+  /**
+   * Gets the options determining the names and content of the exported
+   * files, optionally without the exported languages.
+   *
+   * @param withLanguages <code>false</code> to leave out the exported languages
+   * @return the options as normalized string
+   */
+  String getNormalizedConfiguration(boolean withLanguages) {
+    StringBuilder configuration = new StringBuilder();
+    appendOption(configuration, "type", type);
+    appendOption(configuration, "baseName", baseName == null ? null : new File(baseName).getName());
+    if (withLanguages) {
+      appendOption(configuration, "languages", languages == null ? null : Arrays.asList(languages));
+    }
+    List<String> statusNames = null;
+    if (status != null) {
+      statusNames = new ArrayList<String>();
+      for (Status s : status) {
+        statusNames.add(s.getName());
+      }
+    }
+    appendOption(configuration, "status", statusNames);
+    List<String> filterNames = null;
+    if (filters != null) {
+      filterNames = new ArrayList<String>();
+      for (IExportFilter filter : filters) {
+        filterNames.add(filter.getClass().getName());
+      }
+    }
+    appendOption(configuration, "filters", filterNames);
+    appendOption(configuration, "defaultLanguage", defaultLanguage);
+    appendOption(configuration, "csvEncoding", csvEncoding);
+    appendOption(configuration, "csvSeparator", csvSeparator);
+    appendOption(configuration, "createDefaultProperties", createDefaultProperties);
+    appendOption(configuration, "contentHashFileNames", contentHashFileNames);
+    appendOption(configuration, "shards", shards);
+    appendOption(configuration, "keyPatterns", keyPatterns);
+    appendOption(configuration, "jsonNested", jsonNested);
+    appendOption(configuration, "jsonMinified", jsonMinified);
+    appendOption(configuration, "javaPackage", javaPackage);
+    appendOption(configuration, "resolveFallbacks", resolveFallbacks);
+    appendOption(configuration, "fallbackChains", fallbackChains);
+    appendOption(configuration, "deltaBundles", deltaBundles);
+    appendOption(configuration, "propertiesUtf8", propertiesUtf8);
+    appendOption(configuration, "keyHashManifest", keyHashManifest);
+    return configuration.toString();
+  }
+
+  private static void appendOption(StringBuilder configuration, String name, Object value) {
+    configuration.append(name).append('=').append(value).append('\n');
+  }
+
 }
@@ -0,0 +1,385 @@
+package com.netcetera.trema.maven;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.exporting.ExportException;
+
+
+/**
+ * Reads Trema files. Several files are parsed concurrently and merged into one
+ * database in the given order; a key defined in more than one of them is an
+ * error. The files are streamed with StAX straight into a {@link CompactDatabase},
+ * a {@link LanguageProjection} restricts the parsed values to the languages
+ * an export needs.
+ */
+final class TremaFiles {
+
+  /** Number of duplicate keys listed in the error message. */
+  private static final int MAX_REPORTED_CONFLICTS = 10;
+
+  private static final String ROOT_ELEMENT = "trema";
+  private static final String MASTER_LANGUAGE_ATTRIBUTE = "masterLang";
+  private static final String TEXT_ELEMENT = "text";
+  private static final String KEY_ATTRIBUTE = "key";
+  private static final String CONTEXT_ELEMENT = "context";
+  private static final String VALUE_ELEMENT = "value";
+  private static final String LANGUAGE_ATTRIBUTE = "lang";
+  private static final String STATUS_ATTRIBUTE = "status";
+
+  private TremaFiles() {
+  }
+
+  /**
+   * Resolves a path or glob pattern of Trema files, eg.
+   * src/main/resources/texts/*.trm or texts/**&#47;*.trm.
+   *
+   * @param baseDirectory the directory relative paths are resolved against,
+   * <code>null</code> for the current directory
+   * @param pattern the path or glob pattern
+   * @return the matching files sorted by path, the file itself for a path
+   * without wildcards
+   * @throws IOException if a directory could not be listed
+   */
+  static List<File> resolve(File baseDirectory, String pattern) throws IOException {
+    String normalized = pattern.replace('\\', '/');
+    String[] segments = normalized.split("/");
+    int firstGlobSegment = 0;
+    while (firstGlobSegment < segments.length && !isGlob(segments[firstGlobSegment])) {
+      firstGlobSegment++;
+    }
+    if (firstGlobSegment == segments.length) {
+      return Collections.singletonList(resolveFile(baseDirectory, pattern));
+    }
+    StringBuilder root = new StringBuilder();
+    for (int i = 0; i < firstGlobSegment; i++) {
+      root.append(segments[i]).append('/');
+    }
+    final Path rootPath = resolveFile(baseDirectory, root.length() == 0 ? "." : root.toString()).toPath();
+    if (!Files.isDirectory(rootPath)) {
+      return Collections.emptyList();
+    }
+    final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"
+        + normalized.substring(root.length()));
+    Stream<Path> paths = Files.walk(rootPath);
+    try {
+      List<Path> matches = paths
+          .filter(path -> Files.isRegularFile(path) && matcher.matches(rootPath.relativize(path)))
+          .sorted()
+          .collect(Collectors.<Path>toList());
+      List<File> files = new ArrayList<File>();
+      for (Path match : matches) {
+        files.add(match.toFile());
+      }
+      return files;
+    } finally {
+      paths.close();
+    }
+  }
+
+  /**
+   * Parses a Trema file.
+   *
+   * @param tremaFile the Trema file
+   * @return the database
+   * @throws IOException if the file could not be read or parsed
+   */
+  static XMLDatabase parse(File tremaFile) throws IOException {
+    return parse(tremaFile, null);
+  }
+
+  /**
+   * Parses a Trema file with the values of some languages only.
+   *
+   * @param tremaFile the Trema file
+   * @param projection the parsed languages, <code>null</code> for all
+   * @return the database, with the texts of a {@link CompactDatabase}
+   * @throws IOException if the file could not be read or parsed
+   */
+  static XMLDatabase parse(File tremaFile, LanguageProjection projection) throws IOException {
+    return parse(tremaFile, projection, null).toXMLDatabase(null);
+  }
+
+  /**
+   * Parses a Trema file into a compact database. The file is streamed once,
+   * the values of the other languages are skipped without being decoded and
+   * the others are added to the arena of the database as they are read, so
+   * no text nodes are created. The statistics of the database are collected
+   * on the way.
+   *
+   * @param tremaFile the Trema file
+   * @param projection the parsed languages, <code>null</code> for all
+   * @param mappedDirectory the directory of the file holding the values off
+   * the heap, <code>null</code> to keep them on the heap
+   * @return the database
+   * @throws IOException if the file could not be read or parsed
+   */
+  static CompactDatabase parse(File tremaFile, LanguageProjection projection, File mappedDirectory)
+      throws IOException {
+    InputStream inputStream;
+    try {
+      inputStream = new FileInputStream(tremaFile);
+    } catch (IOException e) {
+      throw new IOException("Could not open XML file: " + e.getMessage(), e);
+    }
+    CompactDatabase.Builder builder = new CompactDatabase.Builder(mappedDirectory);
+    try {
+      XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+      inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(new BufferedInputStream(inputStream, 1 << 16));
+      try {
+        read(tremaFile, reader, projection, builder);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      StringBuilder message = new StringBuilder("Parse error in XML file " + tremaFile);
+      if (e.getLocation() != null && e.getLocation().getLineNumber() >= 1) {
+        message.append(" on line ").append(e.getLocation().getLineNumber());
+      }
+      message.append(": ").append(e.getMessage());
+      throw new IOException(message.toString(), e);
+    } finally {
+      inputStream.close();
+    }
+    return builder.build();
+  }
+
+  private static void read(File tremaFile, XMLStreamReader reader, LanguageProjection projection,
+      CompactDatabase.Builder builder) throws XMLStreamException, IOException {
+    while (reader.hasNext()) {
+      if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+      if (ROOT_ELEMENT.equals(reader.getLocalName())) {
+        builder.setMasterLanguage(reader.getAttributeValue(null, MASTER_LANGUAGE_ATTRIBUTE));
+      } else if (TEXT_ELEMENT.equals(reader.getLocalName())) {
+        readText(tremaFile, reader, projection, builder);
+      }
+    }
+  }
+
+  /**
+   * Reads a text element, the reader is positioned at its start.
+   */
+  private static void readText(File tremaFile, XMLStreamReader reader, LanguageProjection projection,
+      CompactDatabase.Builder builder) throws XMLStreamException, IOException {
+    String key = reader.getAttributeValue(null, KEY_ATTRIBUTE);
+    if (key == null) {
+      throw parseError(tremaFile, reader, "Missing attribute " + KEY_ATTRIBUTE + " of element " + TEXT_ELEMENT);
+    }
+    String context = null;
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      } else if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      } else if (depth == 1 && CONTEXT_ELEMENT.equals(reader.getLocalName())) {
+        context = reader.getElementText();
+      } else if (depth == 1 && VALUE_ELEMENT.equals(reader.getLocalName())) {
+        String language = reader.getAttributeValue(null, LANGUAGE_ATTRIBUTE);
+        if (projection != null && !projection.keeps(language, builder.getMasterLanguage())) {
+          depth++;
+          continue;
+        }
+        String statusName = reader.getAttributeValue(null, STATUS_ATTRIBUTE);
+        Status status = statusName == null ? null : Status.valueOf(statusName);
+        if (language == null || status == null) {
+          throw parseError(tremaFile, reader, language == null ? "Missing attribute " + LANGUAGE_ATTRIBUTE
+              + " of element " + VALUE_ELEMENT : "Invalid status " + statusName + " of key " + key);
+        }
+        builder.addValue(language, status, reader.getElementText());
+      } else {
+        depth++;
+      }
+    }
+    if (!builder.addText(key, context)) {
+      throw parseError(tremaFile, reader, "Duplicate key " + key);
+    }
+  }
+
+  private static IOException parseError(File tremaFile, XMLStreamReader reader, String message) {
+    return new IOException("Parse error in XML file " + tremaFile + " on line "
+        + reader.getLocation().getLineNumber() + ": " + message);
+  }
+
+  /**
+   * Parses Trema files concurrently and merges them into one database.
+   *
+   * @param tremaFiles the Trema files
+   * @return the database
+   * @throws IOException if a file could not be read or parsed
+   * @throws ExportException if the files define the same key or have
+   * different master languages
+   */
+  static XMLDatabase parse(List<File> tremaFiles) throws IOException, ExportException {
+    return parse(tremaFiles, null);
+  }
+
+  /**
+   * Parses Trema files concurrently with the values of some languages only
+   * and merges them into one database.
+   *
+   * @param tremaFiles the Trema files
+   * @param projection the parsed languages, <code>null</code> for all
+   * @return the database, with the texts of a {@link CompactDatabase}
+   * @throws IOException if a file could not be read or parsed
+   * @throws ExportException if the files define the same key or have
+   * different master languages
+   */
+  static XMLDatabase parse(List<File> tremaFiles, LanguageProjection projection)
+      throws IOException, ExportException {
+    return parse(tremaFiles, projection, null).toXMLDatabase(null);
+  }
+
+  /**
+   * Parses Trema files concurrently into compact databases with the values
+   * of some languages only and merges them into one.
+   *
+   * @param tremaFiles the Trema files
+   * @param projection the parsed languages, <code>null</code> for all
+   * @param mappedDirectory the directory of the files holding the values off
+   * the heap, <code>null</code> to keep them on the heap
+   * @return the database, a single file's own database
+   * @throws IOException if a file could not be read or parsed
+   * @throws ExportException if the files define the same key or have
+   * different master languages
+   */
+  static CompactDatabase parse(List<File> tremaFiles, final LanguageProjection projection,
+      final File mappedDirectory) throws IOException, ExportException {
+    if (tremaFiles.size() == 1) {
+      return parse(tremaFiles.get(0), projection, mappedDirectory);
+    }
+    int threads = Math.min(tremaFiles.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<CompactDatabase>> futures = new ArrayList<Future<CompactDatabase>>();
+      for (final File tremaFile : tremaFiles) {
+        futures.add(executor.submit(new Callable<CompactDatabase>() {
+          @Override
+          public CompactDatabase call() throws IOException {
+            return parse(tremaFile, projection, mappedDirectory);
+          }
+        }));
+      }
+      List<CompactDatabase> databases = new ArrayList<CompactDatabase>();
+      for (Future<CompactDatabase> future : futures) {
+        try {
+          databases.add(future.get());
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while parsing " + tremaFiles);
+        }
+      }
+      return merge(tremaFiles, databases, mappedDirectory);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Merges databases into one, keeping the order of the files and of the
+   * texts within each file.
+   *
+   * @param tremaFiles the files of the databases, for error messages
+   * @param databases the databases
+   * @param mappedDirectory the directory of the file holding the values off
+   * the heap, <code>null</code> to keep them on the heap
+   * @return the merged database
+   * @throws IOException if the values could not be written to the mapped file
+   * @throws ExportException if the databases define the same key or have
+   * different master languages
+   */
+  static CompactDatabase merge(List<File> tremaFiles, List<CompactDatabase> databases, File mappedDirectory)
+      throws IOException, ExportException {
+    String masterLanguage = null;
+    int masterLanguageFile = -1;
+    int size = 0;
+    for (int i = 0; i < databases.size(); i++) {
+      String language = databases.get(i).getMasterLanguage();
+      if (language != null && masterLanguage == null) {
+        masterLanguage = language;
+        masterLanguageFile = i;
+      } else if (language != null && !language.equals(masterLanguage)) {
+        throw new ExportException("Master language " + language + " of " + tremaFiles.get(i)
+            + " differs from master language " + masterLanguage + " of " + tremaFiles.get(masterLanguageFile));
+      }
+      size += databases.get(i).size();
+    }
+
+    // the index of the defining file by key
+    Map<String, Integer> definitions = new HashMap<String, Integer>(size * 4 / 3 + 1);
+    List<String> conflicts = new ArrayList<String>();
+    for (int i = 0; i < databases.size(); i++) {
+      CompactDatabase database = databases.get(i);
+      for (int text = 0; text < database.size(); text++) {
+        Integer definition = definitions.putIfAbsent(database.getKey(text), i);
+        if (definition != null) {
+          conflicts.add(database.getKey(text) + " in " + tremaFiles.get(definition) + " and " + tremaFiles.get(i));
+        }
+      }
+    }
+    if (!conflicts.isEmpty()) {
+      StringBuilder message = new StringBuilder("Duplicate keys in Trema files: ");
+      for (int i = 0; i < conflicts.size() && i < MAX_REPORTED_CONFLICTS; i++) {
+        message.append(i == 0 ? "" : ", ").append(conflicts.get(i));
+      }
+      if (conflicts.size() > MAX_REPORTED_CONFLICTS) {
+        message.append(" and ").append(conflicts.size() - MAX_REPORTED_CONFLICTS).append(" more");
+      }
+      throw new ExportException(message.toString());
+    }
+    CompactDatabase.Builder merged = new CompactDatabase.Builder(mappedDirectory);
+    merged.setMasterLanguage(masterLanguage);
+    for (CompactDatabase database : databases) {
+      for (int text = 0; text < database.size(); text++) {
+        merged.addText(database, text);
+      }
+    }
+    return merged.build();
+  }
+
+  private static boolean isGlob(String segment) {
+    return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('[') >= 0
+        || segment.indexOf('{') >= 0;
+  }
+
+  private static File resolveFile(File baseDirectory, String path) {
+    File file = new File(path);
+    return file.isAbsolute() || baseDirectory == null ? file : new File(baseDirectory, path);
+  }
+}
@@ -0,0 +1,110 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Watches files for changes. Since editors often write a file in several
+ * steps (or replace it by a temporary file), changes are collected until the
+ * files have been quiet for the debounce time and then reported at once.
+ */
+final class TremaWatcher {
+
+  /**
+   * Receives the changed files.
+   */
+  interface Listener {
+
+    /**
+     * Called after a burst of changes.
+     *
+     * @param changedFiles the changed files, as given to the watcher
+     */
+    void filesChanged(Set<File> changedFiles);
+  }
+
+  private final Map<Path, File> files = new LinkedHashMap<Path, File>();
+  private final long debounceMillis;
+
+
+  /**
+   * Constructor.
+   *
+   * @param files the files to watch
+   * @param debounceMillis the time without changes after which changes are reported
+   */
+  TremaWatcher(Collection<File> files, long debounceMillis) {
+    for (File file : files) {
+      this.files.put(file.toPath().toAbsolutePath().normalize(), file);
+    }
+    this.debounceMillis = debounceMillis;
+  }
+
+  /**
+   * Watches the files until the current thread is interrupted.
+   *
+   * @param listener the listener to report changes to
+   * @throws IOException if the files can not be watched
+   * @throws InterruptedException if the thread was interrupted
+   */
+  void watch(Listener listener) throws IOException, InterruptedException {
+    WatchService watchService = FileSystems.getDefault().newWatchService();
+    try {
+      Set<Path> directories = new LinkedHashSet<Path>();
+      for (Path path : files.keySet()) {
+        directories.add(path.getParent());
+      }
+      for (Path directory : directories) {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+      }
+      while (true) {
+        Set<File> changedFiles = new LinkedHashSet<File>();
+        collectChanges(watchService.take(), changedFiles);
+        WatchKey key;
+        while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+          collectChanges(key, changedFiles);
+        }
+        if (!changedFiles.isEmpty()) {
+          listener.filesChanged(changedFiles);
+        }
+      }
+    } finally {
+      watchService.close();
+    }
+  }
+
+  // Visible for testing
+  void collectChanges(WatchKey key, Set<File> changedFiles) {
+    Path directory = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // events were lost, any file may have changed
+        for (Map.Entry<Path, File> entry : files.entrySet()) {
+          if (entry.getKey().getParent().equals(directory)) {
+            changedFiles.add(entry.getValue());
+          }
+        }
+      } else {
+        File file = files.get(directory.resolve((Path) event.context()));
+        if (file != null) {
+          changedFiles.add(file);
+        }
+      }
+    }
+    key.reset();
+  }
+}
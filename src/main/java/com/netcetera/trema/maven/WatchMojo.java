@@ -0,0 +1,332 @@
+package com.netcetera.trema.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.netcetera.trema.core.XMLDatabase;
+
+
+/**
+ * Exports data from a Trema file and keeps exporting it whenever the file
+ * (or one of the tremaFiles) changes, until the build is stopped (Ctrl+C). Meant to run next to a
+ * development server: edits of the Trema file show up in the exported files
+ * without rerunning the build.
+ *
+ * <p>The texts stay in memory between exports in the compact form the parser
+ * reads them into, the text objects of an export decode their values from
+ * it. After a change, only the languages whose texts changed are exported again, unless
+ * fallbacks or delta bundles make the files of a language depend on other
+ * languages.
+ *
+ * @goal watch
+ */
+public class WatchMojo extends AbstractExportMojo {
+
+  /**
+   * Basename for the export. Path and beginning of the filename to be used for
+   * the exported files, eg. text results in text_de.json, text_en.json etc.
+   *
+   * @parameter property="basename"
+   * default-value="${project.build.directory}/classes/text"
+   */
+  private String basename;
+
+  /**
+   * Defaultlanguage. If specified, this language will be exported into a
+   * default file without the language in the filename, eg. text.json.
+   *
+   * @parameter property="defaultlanguage"
+   */
+  private String defaultlanguage;
+
+  /**
+   * Export filters. Filters to be applied for transformation of the text values
+   * during exporting. Possible values are: 'messageformat' (converts one
+   * singlequote into two singlequotes) 'addkeytovalue' (appends the key to each
+   * value for debugging purposes, resulting in: key=value [key])
+   *
+   * @parameter property="filters"
+   */
+  private String[] filters;
+
+  /**
+   * Formats. The formats to export, any of 'json', 'properties' and 'binary'.
+   *
+   * @parameter property="formats" default-value="json"
+   */
+  private String[] formats;
+
+  /**
+   * Additional inputs. Further files to watch, a change of one of them exports
+   * all languages again.
+   *
+   * @parameter property="additionalInputs"
+   */
+  private String[] additionalInputs;
+
+  /**
+   * Debounce time in milliseconds. Changes are exported once the watched files
+   * have not changed for this time, so a burst of changes results in a single
+   * export.
+   *
+   * @parameter property="debounce" default-value="300"
+   */
+  private int debounce;
+
+  private List<ExportType> exportTypes;
+  private TremaExportContext watchContext;
+  private List<File> tremaFiles;
+  // the texts between the exports, compact as they are kept for the whole session
+  private CompactDatabase compactDb;
+  private Map<String, String> fingerprints;
+
+
+  /**
+   * Sets the basename.
+   *
+   * @param basename the basename to set
+   */
+  public void setBasename(String basename) {
+    this.basename = basename;
+  }
+
+  /**
+   * Sets the defaultlanguage.
+   *
+   * @param defaultlanguage the defaultlanguage to set
+   */
+  public void setDefaultlanguage(String defaultlanguage) {
+    this.defaultlanguage = defaultlanguage;
+  }
+
+  /**
+   * Sets the filters.
+   *
+   * @param filters the filters to set
+   */
+  public void setFilters(String[] filters) {
+    this.filters = filters;
+  }
+
+  /**
+   * Sets the formats.
+   *
+   * @param formats the formats to set
+   */
+  public void setFormats(String[] formats) {
+    this.formats = formats;
+  }
+
+  /**
+   * Sets the additionalInputs.
+   *
+   * @param additionalInputs the additionalInputs to set
+   */
+  public void setAdditionalInputs(String[] additionalInputs) {
+    this.additionalInputs = additionalInputs;
+  }
+
+  /**
+   * Sets the debounce.
+   *
+   * @param debounce the debounce to set
+   */
+  public void setDebounce(int debounce) {
+    this.debounce = debounce;
+  }
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    start();
+    List<File> watchedFiles = new ArrayList<File>();
+    watchedFiles.addAll(tremaFiles);
+    if (additionalInputs != null) {
+      for (String additionalInput : additionalInputs) {
+        watchedFiles.add(new File(additionalInput));
+      }
+    }
+    getLog().info("Watching " + watchedFiles + " for changes, press Ctrl+C to stop.");
+    try {
+      new TremaWatcher(watchedFiles, debounce).watch(new TremaWatcher.Listener() {
+        @Override
+        public void filesChanged(Set<File> changedFiles) {
+          WatchMojo.this.filesChanged(changedFiles);
+        }
+      });
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not watch " + watchedFiles + ": " + e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Parses the Trema file and exports all languages.
+   *
+   * @throws MojoExecutionException if the configuration is invalid or the export failed
+   */
+  // visible for testing
+  void start() throws MojoExecutionException {
+    exportTypes = new ArrayList<ExportType>();
+    for (String format : formats == null ? new String[0] : formats) {
+      exportTypes.add(toExportType(format));
+    }
+    if (exportTypes.isEmpty()) {
+      throw new MojoExecutionException("formats must not be empty");
+    }
+    watchContext = createExportContext();
+    tremaFiles = getTremaFiles(watchContext);
+    compactDb = parseTremaFiles(tremaFiles, watchContext);
+    logKeptTexts();
+    fingerprints = LanguageFingerprints.compute(compactDb.toXMLDatabase(null).getTextNodes(),
+        watchContext.getStatus());
+    export(null);
+  }
+
+  /**
+   * Exports the changes after a burst of changes. Errors are only logged, so
+   * watching goes on and a broken Trema file can be fixed.
+   *
+   * @param changedFiles the changed files
+   */
+  // visible for testing
+  void filesChanged(Set<File> changedFiles) {
+    try {
+      if (Collections.disjoint(changedFiles, tremaFiles)) {
+        getLog().info("Exporting all languages after changes of " + changedFiles);
+        export(null);
+        return;
+      }
+      CompactDatabase changedDb = parseTremaFiles(tremaFiles, watchContext);
+      Map<String, String> changedFingerprints = LanguageFingerprints.compute(
+          changedDb.toXMLDatabase(null).getTextNodes(), watchContext.getStatus());
+      Set<String> changedLanguages = LanguageFingerprints.getChangedLanguages(fingerprints,
+          changedFingerprints);
+      boolean masterLanguageChanged = compactDb.getMasterLanguage() == null
+          ? changedDb.getMasterLanguage() != null
+          : !compactDb.getMasterLanguage().equals(changedDb.getMasterLanguage());
+      compactDb = changedDb;
+      logKeptTexts();
+      fingerprints = changedFingerprints;
+      if (changedFiles.size() > 1 || masterLanguageChanged || watchContext.isResolveFallbacks()
+          || watchContext.isDeltaBundles()) {
+        getLog().info("Exporting all languages after changes of " + changedFiles);
+        export(null);
+        return;
+      }
+      Collection<String> exportedLanguages = watchContext.getLanguages() == null
+          ? changedFingerprints.keySet() : Arrays.asList(watchContext.getLanguages());
+      // the default file is written with every export, also if its language is not exported otherwise
+      String defaultLanguage = watchContext.getDefaultLanguage();
+      boolean defaultLanguageChanged = defaultLanguage != null && changedLanguages.contains(defaultLanguage);
+      changedLanguages.retainAll(exportedLanguages);
+      if (changedLanguages.isEmpty() && !defaultLanguageChanged) {
+        getLog().info("No exported texts changed in " + changedFiles);
+        return;
+      }
+      getLog().info("Exporting changed languages " + changedLanguages
+          + (defaultLanguageChanged && !changedLanguages.contains(defaultLanguage)
+          ? " and the default language " + defaultLanguage : ""));
+      export(changedLanguages);
+    } catch (MojoExecutionException e) {
+      getLog().error(e.getMessage());
+    }
+  }
+
+  private void logKeptTexts() {
+    getLog().debug("Keeping " + compactDb.getStatistics() + " in " + compactDb.getBytes() + " bytes, "
+        + compactDb.getMappedBytes() + " bytes mapped");
+  }
+
+  /**
+   * Exports the in-memory database in all formats.
+   *
+   * @param languages the languages whose files are written, <code>null</code>
+   * for all exported ones
+   * @throws MojoExecutionException if the export failed
+   */
+  private void export(Set<String> languages) throws MojoExecutionException {
+    // the texts are created once for all formats and dropped after the export
+    Collection<String> projectedLanguages = getProjectedLanguages(languages);
+    XMLDatabase xmlDb = compactDb.toXMLDatabase(projectedLanguages);
+    DatabaseStatistics statistics = compactDb.getStatistics(projectedLanguages);
+    for (ExportType exportType : exportTypes) {
+      TremaExportContext exportContext = createExportContext();
+      exportContext.setType(exportType);
+      exportContext.setWrittenLanguages(languages);
+      try {
+        createExport(exportContext).execute(xmlDb, statistics);
+      } catch (final Exception e) {
+        throw new MojoExecutionException("Failed to export: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Gets the languages whose values an export needs, like the server does for
+   * a rendered file: the written languages, or all exported ones if the key
+   * hash manifest covers them, with the default language, their fallback
+   * languages and the master language.
+   *
+   * @param languages the languages whose files are written, <code>null</code>
+   * for all exported ones
+   * @return the languages, <code>null</code> for all languages of the database
+   */
+  private Collection<String> getProjectedLanguages(Set<String> languages) {
+    Collection<String> exportedLanguages = languages;
+    if (languages == null || watchContext.isKeyHashManifest()) {
+      if (watchContext.getLanguages() == null) {
+        return null;
+      }
+      exportedLanguages = Arrays.asList(watchContext.getLanguages());
+    }
+    Set<String> projectedLanguages = new TreeSet<String>(
+        watchContext.getLanguageProjection(exportedLanguages).getLanguages());
+    if (compactDb.getMasterLanguage() != null) {
+      projectedLanguages.add(compactDb.getMasterLanguage());
+    }
+    return projectedLanguages;
+  }
+
+  private static ExportType toExportType(String format) throws MojoExecutionException {
+    if ("json".equalsIgnoreCase(format)) {
+      return ExportType.JSON;
+    } else if ("properties".equalsIgnoreCase(format)) {
+      return ExportType.PROPERTIES;
+    } else if ("binary".equalsIgnoreCase(format)) {
+      return ExportType.BINARY;
+    }
+    throw new MojoExecutionException("Invalid format: " + format + " (expected json, properties or binary)");
+  }
+
+  @Override
+  protected ExportType getExportType() {
+    return exportTypes.get(0);
+  }
+
+  @Override
+  protected String getBasename() {
+    return basename;
+  }
+
+  @Override
+  protected String getDefaultlanguage() {
+    return defaultlanguage;
+  }
+
+  @Override
+  protected String[] getFilters() {
+    return filters;
+  }
+
+}
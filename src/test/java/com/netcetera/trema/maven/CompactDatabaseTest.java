@@ -0,0 +1,189 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Test for {@link CompactDatabase}.
+ */
+class CompactDatabaseTest {
+
+  private static final String MAPPED_DIRECTORY = "target/trema-values";
+
+  private XMLDatabase xmlDb;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    xmlDb = TremaFiles.parse(new File(TREMA_FILE));
+  }
+
+  @Test
+  void shouldRestoreAllTexts() throws Exception {
+    // given
+    CompactDatabase compactDb = CompactDatabase.of(xmlDb, null);
+
+    // when
+    XMLDatabase restored = compactDb.toXMLDatabase(null);
+
+    // then
+    assertThat(restored.getMasterLanguage(), equalTo(xmlDb.getMasterLanguage()));
+    ITextNode[] nodes = xmlDb.getTextNodes();
+    ITextNode[] restoredNodes = restored.getTextNodes();
+    assertThat(restoredNodes, arrayWithSize(nodes.length));
+    for (int i = 0; i < nodes.length; i++) {
+      assertThat(restoredNodes[i].getKey(), equalTo(nodes[i].getKey()));
+      assertThat(restoredNodes[i].getContext(), equalTo(nodes[i].getContext()));
+      IValueNode[] values = nodes[i].getValueNodes();
+      IValueNode[] restoredValues = restoredNodes[i].getValueNodes();
+      assertThat(restoredValues, arrayWithSize(values.length));
+      for (int j = 0; j < values.length; j++) {
+        assertThat(restoredValues[j].getLanguage(), equalTo(values[j].getLanguage()));
+        assertThat(restoredValues[j].getStatus(), sameInstance(values[j].getStatus()));
+        assertThat(restoredValues[j].getValue(), equalTo(values[j].getValue()));
+      }
+    }
+    assertThat(compactDb.getStatistics().toString(),
+        equalTo(DatabaseStatistics.compute(nodes).toString()));
+  }
+
+  @Test
+  void shouldRestoreMappedValues() throws Exception {
+    // given
+    CompactDatabase compactDb = CompactDatabase.of(xmlDb, new File(MAPPED_DIRECTORY));
+
+    // when
+    XMLDatabase restored = compactDb.toXMLDatabase(null);
+
+    // then
+    assertThat(compactDb.getMappedBytes(), greaterThan(0L));
+    ITextNode[] nodes = xmlDb.getTextNodes();
+    for (int i = 0; i < nodes.length; i++) {
+      IValueNode[] values = nodes[i].getValueNodes();
+      for (int j = 0; j < values.length; j++) {
+        assertThat(restored.getTextNodes()[i].getValueNodes()[j].getValue(), equalTo(values[j].getValue()));
+      }
+    }
+  }
+
+  @Test
+  void shouldRestoreOnlyProjectedLanguages() throws Exception {
+    // given
+    CompactDatabase compactDb = CompactDatabase.of(xmlDb, null);
+
+    // when
+    XMLDatabase restored = compactDb.toXMLDatabase(Collections.singleton("de"));
+
+    // then
+    assertThat(restored.getTextNodes(), arrayWithSize(xmlDb.getTextNodes().length));
+    for (ITextNode node : restored.getTextNodes()) {
+      assertThat(node.getValueNodes(), arrayWithSize(1));
+      assertThat(node.getValueNodes()[0].getLanguage(), equalTo("de"));
+    }
+    assertThat(compactDb.getStatistics(Collections.singleton("de")).toString(),
+        equalTo(DatabaseStatistics.compute(restored.getTextNodes()).toString()));
+  }
+
+  @Test
+  void shouldDecodeValuesOfExportedTextsOnAccess() throws Exception {
+    // given
+    CompactDatabase compactDb = TremaFiles.parse(new File(TREMA_FILE), null, null);
+    ITextNode node = compactDb.toXMLDatabase(null).getTextNodes()[0];
+
+    // when
+    String value = node.getValueNodes()[0].getValue();
+
+    // then
+    assertThat(value, equalTo(xmlDb.getTextNodes()[0].getValueNodes()[0].getValue()));
+    assertThat(node.getValueNodes()[0].getValue(), not(sameInstance(value)));
+  }
+
+  @Test
+  void shouldHoldMappedValuesOffTheHeapWhileParsing() throws Exception {
+    // given
+    File shortValues = writeTremaFile("short.trm", 2000, 3, 10);
+    File longValues = writeTremaFile("long.trm", 2000, 3, 1000);
+
+    // when
+    CompactDatabase shortDb = TremaFiles.parse(shortValues, null, new File(MAPPED_DIRECTORY));
+    CompactDatabase longDb = TremaFiles.parse(longValues, null, new File(MAPPED_DIRECTORY));
+
+    // then the heap only holds the keys and the index of the values
+    assertThat(longDb.getStatistics().getValueBytes(), equalTo(2000 * 3 * 1000L));
+    assertThat(longDb.getBytes(), equalTo(shortDb.getBytes()));
+    assertThat(longDb.getBytes(), lessThan(longDb.getStatistics().getValueBytes() / 20));
+    assertThat(longDb.getMappedBytes(), greaterThan(longDb.getStatistics().getValueBytes()));
+  }
+
+  @Test
+  void shouldHoldLessThanHalfTheHeapOfTheParsedDatabaseWhileExporting() throws Exception {
+    // given
+    File tremaFile = writeTremaFile("heap.trm", 2000, 20, 40);
+    long before = getUsedHeap();
+    XMLDatabase parsed = new XMLDatabase();
+    try (InputStream in = new FileInputStream(tremaFile)) {
+      parsed.build(in, false);
+    }
+    long parsedHeap = getUsedHeap() - before;
+    parsed = null;
+    before = getUsedHeap();
+
+    // when
+    CompactDatabase compactDb = TremaFiles.parse(tremaFile, null, null);
+    XMLDatabase exported = compactDb.toXMLDatabase(null);
+    long exportedHeap = getUsedHeap() - before;
+
+    // then
+    assertThat(exported.getTextNodes(), arrayWithSize(2000));
+    assertThat(exportedHeap, lessThan(parsedHeap / 2));
+  }
+
+  private static long getUsedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static File writeTremaFile(String name, int keys, int languages, int valueLength) throws Exception {
+    StringBuilder trema = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<trema masterLang=\"de\">\n");
+    for (int i = 0; i < keys; i++) {
+      trema.append("  <text key=\"key.").append(i).append("\">\n");
+      for (int l = 0; l < languages; l++) {
+        String language = l == 0 ? "de" : "l" + l;
+        StringBuilder value = new StringBuilder(language).append(' ').append(i);
+        while (value.length() < valueLength) {
+          value.append(" text");
+        }
+        trema.append("    <value lang=\"").append(language).append("\" status=\"verified\">")
+            .append(value, 0, valueLength).append("</value>\n");
+      }
+      trema.append("  </text>\n");
+    }
+    trema.append("</trema>\n");
+    File file = new File("target/compact-database-test", name);
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), trema.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
@@ -0,0 +1,90 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test for {@link DatabaseStatistics}.
+ */
+class DatabaseStatisticsTest {
+
+  @Test
+  void shouldCollectStatisticsInOnePass() {
+    // given
+    ITextNode[] nodes = {
+      node("a", value("en", Status.VERIFIED, "Ok"), value("de", Status.TRANSLATED, "Grüße")),
+      node("b", value("en", Status.VERIFIED, "Cancel"))
+    };
+
+    // when
+    DatabaseStatistics statistics = DatabaseStatistics.compute(nodes);
+
+    // then
+    assertThat(statistics.getLanguages(), arrayContaining("de", "en"));
+    assertThat(statistics.getKeyCount(), equalTo(2));
+    assertThat(statistics.getValueCount("en"), equalTo(2));
+    assertThat(statistics.getValueCount("fr"), equalTo(0));
+    assertThat(statistics.getStatusCount("verified"), equalTo(2));
+    assertThat(statistics.getValueBytes(), equalTo(15L));
+    assertThat(statistics.toString(),
+        equalTo("2 keys, 3 values in 2 languages (de: 1, en: 2), 1 translated, 2 verified, 15 bytes"));
+  }
+
+  @Test
+  void shouldCollectStatisticsOfTextsAddedWhileReading() {
+    // given
+    DatabaseStatistics statistics = new DatabaseStatistics();
+
+    // when
+    statistics.addValue("en", "verified", "Ok");
+    statistics.addKey("a");
+    statistics.addValue("en", "initial", "Cancel");
+    statistics.addValue("fr", "initial", "Annuler");
+    statistics.addKey("b");
+
+    // then
+    assertThat(statistics.toString(),
+        equalTo("2 keys, 3 values in 2 languages (en: 2, fr: 1), 2 initial, 1 verified, 15 bytes"));
+    assertThat(statistics.estimateFileSize("en"), equalTo(2 + 6 + 2 * (1 + 8)));
+  }
+
+  @Test
+  void shouldProjectStatisticsToLanguages() {
+    // given
+    DatabaseStatistics statistics = DatabaseStatistics.compute(new ITextNode[]{
+      node("a", value("en", Status.VERIFIED, "Ok"), value("de", Status.TRANSLATED, "Gut")),
+      node("b", value("en", Status.INITIAL, "Cancel"), value("fr", Status.INITIAL, "Annuler"))});
+
+    // when
+    DatabaseStatistics projected = statistics.project(Arrays.asList("de", "en"));
+
+    // then
+    assertThat(projected.toString(),
+        equalTo("2 keys, 3 values in 2 languages (de: 1, en: 2), 1 initial, 1 translated, 1 verified, 11 bytes"));
+    assertThat(projected.getStatusCount("initial"), equalTo(1));
+  }
+
+  private static ITextNode node(String key, IValueNode... values) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    Mockito.when(node.getKey()).thenReturn(key);
+    Mockito.when(node.getValueNodes()).thenReturn(values);
+    return node;
+  }
+
+  private static IValueNode value(String language, Status status, String text) {
+    IValueNode value = Mockito.mock(IValueNode.class);
+    Mockito.when(value.getLanguage()).thenReturn(language);
+    Mockito.when(value.getStatus()).thenReturn(status);
+    Mockito.when(value.getValue()).thenReturn(text);
+    return value;
+  }
+}
@@ -0,0 +1,79 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+/**
+ * Test for {@link DeltaBundles}.
+ */
+class DeltaBundlesTest {
+
+  @Test
+  void shouldInheritFromExportedParentsAndDefaultFile() {
+    // given
+    DeltaBundles deltaBundles = new DeltaBundles(new ITextNode[0], new String[]{"de_CH", "de", "fr"}, "en", null);
+
+    // when / then
+    assertThat(deltaBundles.getInheritedLanguages("de_CH"), contains("de", "en"));
+    assertThat(deltaBundles.getInheritedLanguages("fr_CH"), contains("fr", "en"));
+  }
+
+  @Test
+  void shouldKeepTextsEqualToDefaultLanguageWithoutDefaultFile() {
+    // given
+    ITextNode same = node("same", "Hallo", "Hello", "Hello");
+    ITextNode[] nodes = {same};
+    DeltaBundles deltaBundles = new DeltaBundles(nodes, new String[]{"de_CH", "de"}, null, null);
+
+    // when / then
+    assertThat(deltaBundles.getInheritedLanguages("de"), empty());
+    assertThat(deltaBundles.omitInherited(nodes, "de"), arrayContaining(same));
+  }
+
+  @Test
+  void shouldOmitTextsEqualToInheritedText() {
+    // given
+    ITextNode same = node("same", "Hallo", "Hallo", "Hello");
+    ITextNode differs = node("differs", "Grüezi", "Hallo", "Hello");
+    ITextNode sameAsDefault = node("sameAsDefault", "OK", null, "OK");
+    ITextNode missingInParent = node("missingInParent", "Tschau", null, "Bye");
+    ITextNode[] nodes = {same, differs, sameAsDefault, missingInParent};
+    DeltaBundles deltaBundles = new DeltaBundles(nodes, new String[]{"de_CH", "de"}, "en", null);
+
+    // when / then
+    assertThat(deltaBundles.omitInherited(nodes, "de_CH"), arrayContaining(differs, missingInParent));
+    // texts missing in the language are not equal to the inherited one, the exporter skips them
+    assertThat(deltaBundles.omitInherited(nodes, "de"),
+        arrayContaining(same, differs, sameAsDefault, missingInParent));
+  }
+
+  private static ITextNode node(String key, String swissGerman, String german, String english) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    IValueNode swissGermanValue = value(swissGerman);
+    IValueNode germanValue = value(german);
+    IValueNode englishValue = value(english);
+    Mockito.when(node.getKey()).thenReturn(key);
+    Mockito.when(node.getValueNode("de_CH")).thenReturn(swissGermanValue);
+    Mockito.when(node.getValueNode("de")).thenReturn(germanValue);
+    Mockito.when(node.getValueNode("en")).thenReturn(englishValue);
+    return node;
+  }
+
+  private static IValueNode value(String value) {
+    if (value == null) {
+      return null;
+    }
+    IValueNode valueNode = Mockito.mock(IValueNode.class);
+    Mockito.when(valueNode.getValue()).thenReturn(value);
+    Mockito.when(valueNode.getStatus()).thenReturn(Status.TRANSLATED);
+    return valueNode;
+  }
+}
@@ -4,9 +4,13 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import static com.netcetera.trema.maven.TestUtils.isExistingFile;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -171,4 +175,48 @@ class ExportAndroidMojoTest {
     assertThat(new File(file2), isExistingFile());
     assertThat(new File(file3), not(isExistingFile()));
   }
+
+  @Test
+  void shouldKeepTextsEqualToDefaultLanguageWithoutDefaultFile() throws Exception {
+    // given
+    File tremaFile = new File("target/res-delta/text.trm");
+    tremaFile.getParentFile().mkdirs();
+    Files.write(tremaFile.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<trema masterLang=\"en\">\n"
+        + "  <text key=\"test.ok\">\n    <context />\n"
+        + "    <value lang=\"en\" status=\"verified\">OK</value>\n"
+        + "    <value lang=\"de\" status=\"verified\">OK</value>\n"
+        + "    <value lang=\"de-rCH\" status=\"verified\">OK</value>\n  </text>\n</trema>\n")
+        .getBytes(StandardCharsets.UTF_8));
+    final ExportAndroidMojo mojo = new ExportAndroidMojo();
+    mojo.setTremaFile(tremaFile.getPath());
+    mojo.setExportPath("target/res-delta/res/");
+    mojo.setDefaultlanguage("en");
+    mojo.setLanguages(new String[]{"de", "de-rCH"});
+    mojo.setDeltaBundles(true);
+
+    // when
+    mojo.execute();
+
+    // then
+    assertThat(new File("target/res-delta/res/values/strings.xml"), not(isExistingFile()));
+    byte[] german = Files.readAllBytes(Paths.get("target/res-delta/res/values-de/strings.xml"));
+    assertThat(new String(german, StandardCharsets.UTF_8), containsString(">OK<"));
+    byte[] swissGerman = Files.readAllBytes(Paths.get("target/res-delta/res/values-de-rCH/strings.xml"));
+    assertThat(new String(swissGerman, StandardCharsets.UTF_8), not(containsString(">OK<")));
+  }
+
+  @Test
+  void shouldWriteIdenticalFilesOnEveryRun() throws Exception {
+    // given
+    final ExportAndroidMojo mojo = new ExportAndroidMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setExportPath("target/res-reproducible/");
+    mojo.setLanguages(new String[]{"de", "en"});
+
+    // when / then
+    ExportMojoTestUtils.assertReproducible(mojo, "target/res-reproducible/values-de/strings.xml",
+        "target/res-reproducible/values-en/strings.xml");
+    byte[] content = Files.readAllBytes(Paths.get("target/res-reproducible/values-de/strings.xml"));
+    assertThat(new String(content, StandardCharsets.UTF_8), not(containsString("\r")));
+  }
 }
@@ -0,0 +1,54 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.runtime.BinaryCatalog;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static com.netcetera.trema.maven.TestUtils.isExistingFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Test for {@link ExportBinaryMojo}.
+ */
+class ExportBinaryMojoTest {
+
+  @Test
+  void shouldExportReadableCatalogs() throws Exception {
+    // given
+    final ExportBinaryMojo mojo = new ExportBinaryMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/binary/text");
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setDefaultlanguage("en");
+
+    // when
+    mojo.execute();
+
+    // then
+    File file = new File("target/classes/binary/text_de.bin");
+    assertThat(file, isExistingFile());
+    assertThat(new File("target/classes/binary/text.bin"), isExistingFile());
+
+    BinaryCatalog catalog = BinaryCatalog.map(file);
+    assertThat(catalog.size(), equalTo(2));
+    assertThat(catalog.get("test.simple"), equalTo("Test (de)"));
+    assertThat(catalog.get("test.umlaute"), equalTo("ÄöÜ[@"));
+    assertThat(catalog.get("test.unknown"), nullValue());
+  }
+
+  @Test
+  void shouldWriteIdenticalCatalogsOnEveryRun() throws Exception {
+    // given
+    final ExportBinaryMojo mojo = new ExportBinaryMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/binary-reproducible/text");
+
+    // when / then
+    ExportMojoTestUtils.assertReproducible(mojo, "target/classes/binary-reproducible/text_de.bin",
+        "target/classes/binary-reproducible/text_en.bin");
+  }
+}
@@ -0,0 +1,164 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.exporting.FileOutputStreamFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.netcetera.trema.maven.TestUtils.isExistingFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Test for {@link ExportCache}.
+ */
+class ExportCacheTest {
+
+  private static final File ROOT = new File("target/export-cache-test");
+  private static final File CACHE_DIRECTORY = new File(ROOT, "cache");
+
+  @BeforeEach
+  void setUp() throws IOException {
+    if (ROOT.exists()) {
+      try (Stream<Path> paths = Files.walk(ROOT.toPath())) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  void shouldRestoreStoredFiles() throws Exception {
+    // given
+    ExportCache cache = new ExportCache(CACHE_DIRECTORY, 1024 * 1024, false);
+    File projectA = new File(ROOT, "a");
+    File properties = write(new File(projectA, "text_de.properties"), "key=Wert\n");
+    File android = write(new File(projectA, "res/values-de/strings.xml"), "<resources/>\n");
+
+    // when
+    boolean stored = cache.store("key", projectA, Arrays.asList(properties, android));
+    File projectB = new File(ROOT, "b");
+    List<File> restored = cache.restore("key", projectB, new FileOutputStreamFactory());
+
+    // then
+    assertThat(stored, is(true));
+    assertThat(restored, contains(new File(projectB, "res/values-de/strings.xml"),
+        new File(projectB, "text_de.properties")));
+    assertThat(read(new File(projectB, "text_de.properties")), equalTo("key=Wert\n"));
+    assertThat(read(new File(projectB, "res/values-de/strings.xml")), equalTo("<resources/>\n"));
+    assertThat(cache.restore("other", projectB, new FileOutputStreamFactory()), nullValue());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntries() throws Exception {
+    // given
+    ExportCache cache = new ExportCache(CACHE_DIRECTORY, 35, false);
+    File project = new File(ROOT, "project");
+    File file = write(new File(project, "text.properties"), "key=0123456789\n");
+    cache.store("old", project, Arrays.asList(file));
+    new File(CACHE_DIRECTORY, "old").setLastModified(System.currentTimeMillis() - 120000);
+    cache.store("used", project, Arrays.asList(file));
+    new File(CACHE_DIRECTORY, "used").setLastModified(System.currentTimeMillis() - 180000);
+    cache.restore("used", new File(ROOT, "restored"), new FileOutputStreamFactory());
+
+    // when
+    cache.store("new", project, Arrays.asList(file));
+
+    // then
+    assertThat(new File(CACHE_DIRECTORY, "old"), not(isExistingFile()));
+    assertThat(new File(CACHE_DIRECTORY, "used"), isExistingFile());
+    assertThat(new File(CACHE_DIRECTORY, "new"), isExistingFile());
+  }
+
+  @Test
+  void shouldNotStoreFilesOutsideOfOutputDirectory() throws Exception {
+    // given
+    ExportCache cache = new ExportCache(CACHE_DIRECTORY, 1024 * 1024, false);
+    File file = write(new File(ROOT, "elsewhere/text.properties"), "key=value\n");
+
+    // when
+    boolean stored = cache.store("key", new File(ROOT, "project"), Arrays.asList(file));
+
+    // then
+    assertThat(stored, is(false));
+    assertThat(new File(CACHE_DIRECTORY, "key"), not(isExistingFile()));
+  }
+
+  @Test
+  void shouldKeyByTremaFileAndConfigurationButNotByDirectory() throws Exception {
+    // given
+    ExportCache cache = new ExportCache(CACHE_DIRECTORY, 1024 * 1024, false);
+    File tremaFile = new File(ExportMojoTestUtils.TREMA_FILE);
+
+    // when
+    String key = cache.getKey(tremaFile, context("project-a/target/classes/text", "de"));
+    String otherDirectory = cache.getKey(tremaFile, context("project-b/target/classes/text", "de"));
+    String otherLanguage = cache.getKey(tremaFile, context("project-a/target/classes/text", "en"));
+
+    // then
+    assertThat(otherDirectory, equalTo(key));
+    assertThat(otherLanguage, not(equalTo(key)));
+  }
+
+  @Test
+  void shouldKeyByVersionsOfPluginAndCore() throws Exception {
+    // given
+    File tremaFile = new File(ExportMojoTestUtils.TREMA_FILE);
+    TremaExportContext context = context("target/classes/text", "de");
+
+    // when
+    String key = new ExportCache(CACHE_DIRECTORY, 1024, false, "plugin:1.0,core:0.4.0").getKey(tremaFile, context);
+    String otherPlugin = new ExportCache(CACHE_DIRECTORY, 1024, false, "plugin:1.1,core:0.4.0")
+        .getKey(tremaFile, context);
+    String otherCore = new ExportCache(CACHE_DIRECTORY, 1024, false, "plugin:1.0,core:0.5.0")
+        .getKey(tremaFile, context);
+
+    // then
+    assertThat(otherPlugin, not(equalTo(key)));
+    assertThat(otherCore, not(equalTo(key)));
+  }
+
+  @Test
+  void shouldQualifySnapshotVersionsByBuildTime() {
+    // given / when
+    String version = ExportCache.getVersion(ExportCache.class, "no-such-artifact");
+
+    // then
+    assertThat(version, startsWith("no-such-artifact:unknown@"));
+    assertThat(version, not(equalTo("no-such-artifact:unknown@0")));
+  }
+
+  private static TremaExportContext context(String baseName, String language) {
+    TremaExportContext context = new TremaExportContext();
+    context.setType(ExportType.PROPERTIES);
+    context.setBaseName(baseName);
+    context.setLanguages(new String[]{language});
+    return context;
+  }
+
+  private static File write(File file, String content) throws IOException {
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+}
@@ -6,10 +6,15 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import static com.netcetera.trema.maven.TestUtils.isExistingFile;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -178,4 +183,80 @@ class ExportJsonMojoTest {
     mojo.execute();
   }
 
+  @Test
+  void shouldWriteContentHashedFilesAndManifest() throws Exception {
+    // given
+    File exportDir = new File("target/classes/hashed");
+    deleteFiles(exportDir);
+    final ExportJsonMojo mojo = new ExportJsonMojo();
+    mojo.setTremaFile(tremaFilePath);
+    mojo.setBasename("target/classes/hashed/test");
+    mojo.setLanguages(new String[]{"en", "de"});
+    mojo.setHashFileNames(true);
+
+    // when
+    mojo.execute();
+
+    // then
+    assertThat(new File(exportDir, "test_de.json"), not(isExistingFile()));
+    assertThat(new File(exportDir, "test.manifest.json"), isExistingFile());
+    String[] hashedFiles = exportDir.list((dir, name) -> name.matches("test_(de|en)\\.[0-9a-f]{8}\\.json"));
+    assertThat(hashedFiles, arrayWithSize(2));
+
+    String manifest = new String(Files.readAllBytes(new File(exportDir, "test.manifest.json").toPath()),
+        StandardCharsets.UTF_8);
+    for (String hashedFile : hashedFiles) {
+      assertThat(manifest, containsString("\"" + hashedFile + "\""));
+    }
+  }
+
+  @Test
+  void shouldWriteKeyHashManifestOnlyWhenChanged() throws Exception {
+    // given
+    final ExportJsonMojo mojo = new ExportJsonMojo();
+    mojo.setTremaFile(tremaFilePath);
+    mojo.setBasename("target/classes/key-hashes/test");
+    mojo.setLanguages(new String[]{"en", "de"});
+    mojo.setKeyHashManifest(true);
+    File manifest = new File("target/classes/key-hashes/test.keys.json");
+    manifest.delete();
+
+    // when
+    mojo.execute();
+    manifest.setLastModified(1000L);
+    mojo.execute();
+
+    // then
+    String content = new String(Files.readAllBytes(manifest.toPath()), StandardCharsets.UTF_8);
+    String hash = Digests.sha256Hex("Test (de)".getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    assertThat(content, containsString("\"test.simple\" : \"" + hash + "\""));
+    assertThat(manifest.lastModified(), equalTo(1000L));
+  }
+
+  @Test
+  void shouldWriteIdenticalFilesOnEveryRun() throws Exception {
+    // given
+    final ExportJsonMojo mojo = new ExportJsonMojo();
+    mojo.setTremaFile(tremaFilePath);
+    mojo.setBasename("target/classes/reproducible-json/text");
+    mojo.setLanguages(new String[]{"de", "en"});
+
+    // when / then
+    ExportMojoTestUtils.assertReproducible(mojo, "target/classes/reproducible-json/text_de.json",
+        "target/classes/reproducible-json/text_en.json");
+    String content = new String(Files.readAllBytes(new File("target/classes/reproducible-json/text_de.json").toPath()),
+        StandardCharsets.UTF_8);
+    assertThat(content, containsString("\"test.simple\" : \"Test (de)\""));
+    assertThat(content, not(containsString("\r")));
+  }
+
+  private static void deleteFiles(File dir) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+  }
+
 }
@@ -0,0 +1,211 @@
+package com.netcetera.trema.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static com.netcetera.trema.maven.TestUtils.isExistingFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link ExportMessageTablesMojo}.
+ */
+class ExportMessageTablesMojoTest {
+
+  private static final String OUTPUT_DIRECTORY = "target/generated-test-sources/trema-tables";
+
+  @Test
+  void shouldGenerateCompilableMessageTables() throws Exception {
+    // given
+    final ExportMessageTablesMojo mojo = new ExportMessageTablesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setOutputDirectory(OUTPUT_DIRECTORY);
+    mojo.setClassName("com.example.Messages");
+    mojo.setLanguages(new String[]{"de", "en"});
+
+    // when
+    mojo.execute();
+
+    // then
+    File keySource = new File(OUTPUT_DIRECTORY + "/com/example/Messages.java");
+    File tableSource = new File(OUTPUT_DIRECTORY + "/com/example/Messages_de.java");
+    assertThat(keySource, isExistingFile());
+    assertThat(tableSource, isExistingFile());
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    File classes = new File("target/generated-test-classes/trema-tables");
+    classes.mkdirs();
+    int result = compiler.run(null, null, null, "-d", classes.getPath(),
+        keySource.getPath(), tableSource.getPath());
+    assertThat(result, equalTo(0));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()})) {
+      Class<?> keys = loader.loadClass("com.example.Messages");
+      Class<?> table = loader.loadClass("com.example.Messages_de");
+      int index = keys.getField("TEST_UMLAUTE").getInt(null);
+      Method indexOf = keys.getMethod("indexOf", String.class);
+      assertThat(indexOf.invoke(null, "test.umlaute"), equalTo(index));
+      assertThat(indexOf.invoke(null, "test.unknown"), equalTo(-1));
+      assertThat(table.getMethod("get", int.class).invoke(null, index), equalTo("ÄöÜ[@"));
+      assertThat(table.getMethod("get", String.class).invoke(null, "test.simple"), equalTo("Test (de)"));
+    }
+  }
+
+  @Test
+  void shouldNotUseFieldNamesOfGeneratedClassesForConstants() throws Exception {
+    // given
+    File tremaFile = writeTremaFile("target/trema-tables-reserved/text.trm", "keys", "seeds", "size", "messages");
+    String outputDirectory = "target/generated-test-sources/trema-tables-reserved";
+    final ExportMessageTablesMojo mojo = new ExportMessageTablesMojo();
+    mojo.setTremaFile(tremaFile.getPath());
+    mojo.setOutputDirectory(outputDirectory);
+    mojo.setClassName("com.example.Reserved");
+    mojo.setLanguages(new String[]{"en"});
+
+    // when
+    mojo.execute();
+
+    // then
+    File classes = new File("target/generated-test-classes/trema-tables-reserved");
+    classes.mkdirs();
+    int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(),
+        outputDirectory + "/com/example/Reserved.java", outputDirectory + "/com/example/Reserved_en.java");
+    assertThat(result, equalTo(0));
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()})) {
+      Class<?> keys = loader.loadClass("com.example.Reserved");
+      Method indexOf = keys.getMethod("indexOf", String.class);
+      assertThat(keys.getField("KEYS_2").getInt(null), equalTo(indexOf.invoke(null, "keys")));
+      assertThat(keys.getField("SEEDS_2").getInt(null), equalTo(indexOf.invoke(null, "seeds")));
+      assertThat(keys.getField("SIZE_2").getInt(null), equalTo(indexOf.invoke(null, "size")));
+      assertThat(keys.getField("SIZE").getInt(null), equalTo(4));
+    }
+  }
+
+  @Test
+  void shouldGenerateCompilableConstantsForKeysWithoutLetters() throws Exception {
+    // given
+    File tremaFile = writeTremaFile("target/trema-tables-symbols/text.trm", "...", "\u6ce8\u6587", "1st");
+    String outputDirectory = "target/generated-test-sources/trema-tables-symbols";
+    final ExportMessageTablesMojo mojo = new ExportMessageTablesMojo();
+    mojo.setTremaFile(tremaFile.getPath());
+    mojo.setOutputDirectory(outputDirectory);
+    mojo.setClassName("com.example.Symbols");
+    mojo.setLanguages(new String[]{"en"});
+
+    // when
+    mojo.execute();
+
+    // then
+    File classes = new File("target/generated-test-classes/trema-tables-symbols");
+    classes.mkdirs();
+    int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(),
+        outputDirectory + "/com/example/Symbols.java", outputDirectory + "/com/example/Symbols_en.java");
+    assertThat(result, equalTo(0));
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()})) {
+      Class<?> keys = loader.loadClass("com.example.Symbols");
+      Method indexOf = keys.getMethod("indexOf", String.class);
+      assertThat(keys.getField("KEY").getInt(null), equalTo(indexOf.invoke(null, "...")));
+      assertThat(keys.getField("KEY_2").getInt(null), equalTo(indexOf.invoke(null, "\u6ce8\u6587")));
+      assertThat(keys.getField("KEY_1ST").getInt(null), equalTo(indexOf.invoke(null, "1st")));
+    }
+  }
+
+  @Test
+  void shouldGenerateCompilableKeyClassBeyondConstantPoolLimit() throws Exception {
+    // given
+    String[] manyKeys = new String[40000];
+    for (int i = 0; i < manyKeys.length; i++) {
+      manyKeys[i] = "module" + (i % 10) + ".text" + i;
+    }
+    File tremaFile = writeTremaFile("target/trema-tables-many/text.trm", manyKeys);
+    String outputDirectory = "target/generated-test-sources/trema-tables-many";
+    final ExportMessageTablesMojo mojo = new ExportMessageTablesMojo();
+    mojo.setTremaFile(tremaFile.getPath());
+    mojo.setOutputDirectory(outputDirectory);
+    mojo.setClassName("com.example.Many");
+    mojo.setLanguages(new String[]{"en"});
+
+    // when
+    mojo.execute();
+
+    // then
+    File classes = new File("target/generated-test-classes/trema-tables-many");
+    classes.mkdirs();
+    int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(),
+        outputDirectory + "/com/example/Many.java", outputDirectory + "/com/example/Many_en.java");
+    assertThat(result, equalTo(0));
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()})) {
+      Class<?> keys = loader.loadClass("com.example.Many");
+      Method indexOf = keys.getMethod("indexOf", String.class);
+      for (String key : new String[]{"module0.text0", "module9.text39999"}) {
+        Field constant = keys.getField(MessageTablesWriter.toConstantName(key));
+        constant.setAccessible(true);
+        assertThat(constant.getInt(null), equalTo(indexOf.invoke(null, key)));
+      }
+      assertThat(keys.getField("SIZE").getInt(null), equalTo(manyKeys.length));
+    }
+  }
+
+  @Test
+  void shouldThrowForLanguageNotValidInClassName() {
+    // given
+    final ExportMessageTablesMojo mojo = new ExportMessageTablesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setOutputDirectory(OUTPUT_DIRECTORY);
+    mojo.setClassName("com.example.Messages");
+    mojo.setLanguages(new String[]{"de-CH"});
+
+    // when / then
+    assertThrows(MojoExecutionException.class, mojo::execute);
+  }
+
+  @Test
+  void shouldDeriveConstantNames() {
+    // when / then
+    assertThat(MessageTablesWriter.toConstantName("checkout.payButton"), equalTo("CHECKOUT_PAY_BUTTON"));
+    assertThat(MessageTablesWriter.toConstantName("1st-step"), equalTo("KEY_1ST_STEP"));
+    assertThat(MessageTablesWriter.toConstantName("a..b_"), equalTo("A_B"));
+    assertThat(MessageTablesWriter.toConstantName("..."), equalTo("KEY"));
+    assertThat(MessageTablesWriter.toConstantName("\u6ce8\u6587"), equalTo("KEY"));
+  }
+
+  @Test
+  void shouldWriteIdenticalSourcesOnEveryRun() throws Exception {
+    // given
+    final ExportMessageTablesMojo mojo = new ExportMessageTablesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setOutputDirectory("target/generated-test-sources/trema-reproducible");
+    mojo.setClassName("com.example.Messages");
+    mojo.setLanguages(new String[]{"de", "en"});
+
+    // when / then
+    ExportMojoTestUtils.assertReproducible(mojo,
+        "target/generated-test-sources/trema-reproducible/com/example/Messages.java",
+        "target/generated-test-sources/trema-reproducible/com/example/Messages_de.java",
+        "target/generated-test-sources/trema-reproducible/com/example/Messages_en.java");
+  }
+
+  private static File writeTremaFile(String path, String... keys) throws Exception {
+    File tremaFile = new File(path);
+    tremaFile.getParentFile().mkdirs();
+    StringBuilder trema = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<trema masterLang=\"en\">\n");
+    for (String key : keys) {
+      trema.append("  <text key=\"").append(key).append("\">\n    <context />\n")
+          .append("    <value lang=\"en\" status=\"verified\">").append(key).append(" (en)</value>\n  </text>\n");
+    }
+    Files.write(tremaFile.toPath(), trema.append("</trema>\n").toString().getBytes(StandardCharsets.UTF_8));
+    return tremaFile;
+  }
+}
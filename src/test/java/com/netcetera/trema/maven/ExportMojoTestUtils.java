@@ -4,9 +4,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
 
@@ -60,4 +63,21 @@ public class ExportMojoTestUtils {
     }
   }
 
+  /**
+   * Executes a mojo twice, deleting the files in between, and asserts that
+   * both runs write byte for byte identical files.
+   */
+  static void assertReproducible(AbstractExportMojo mojo, String... fileNames) throws Exception {
+    mojo.execute();
+    List<byte[]> first = new ArrayList<byte[]>();
+    for (String fileName : fileNames) {
+      first.add(Files.readAllBytes(Paths.get(fileName)));
+      Files.delete(Paths.get(fileName));
+    }
+    mojo.execute();
+    for (int i = 0; i < fileNames.length; i++) {
+      assertArrayEquals(first.get(i), Files.readAllBytes(Paths.get(fileNames[i])), fileNames[i]);
+    }
+  }
+
 }
@@ -1,18 +1,35 @@
 package com.netcetera.trema.maven;
 
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Locale;
+import java.util.Properties;
 import java.util.ResourceBundle;
 
 import static com.netcetera.trema.maven.ExportMojoTestUtils.BASENAME;
 import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static com.netcetera.trema.maven.TestUtils.deleteRecursively;
 import static com.netcetera.trema.maven.TestUtils.isExistingFile;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Unit test for the property file export mojo ({@link ExportPropertiesMojo}).
@@ -180,4 +197,324 @@ class ExportPropertiesMojoTest {
     mojo.setDefaultlanguage("de");
     mojo.execute();
   }
+
+  @Test
+  void shouldExportShardsWithIndex() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/sharded/text");
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setShards(new String[]{"test.*"});
+
+    // when
+    mojo.execute();
+
+    // then
+    assertThat(new File("target/classes/sharded/text_test_de.properties"), isExistingFile());
+    assertThat(new File("target/classes/sharded/text_common_de.properties"), isExistingFile());
+    assertThat(new File("target/classes/sharded/text.shards.json"), isExistingFile());
+    ResourceBundle bundle = ResourceBundle.getBundle("sharded.text_test", Locale.GERMAN);
+    assertThat(bundle.getString("test.simple"), equalTo("Test (de)"));
+  }
+
+  @Test
+  void shouldThrowForInvalidShard() {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(BASENAME);
+    mojo.setShards(new String[]{"test"});
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::execute);
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Invalid configuration: Invalid shard: test (expected <prefix>.*)"));
+  }
+
+  @Test
+  void shouldExportOnlySelectedKeys() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/selected/text");
+    mojo.setLanguages(new String[]{"de"});
+    mojo.setIncludeKeys(new String[]{"test.*"});
+    mojo.setExcludeKeys(new String[]{"test.umlaute"});
+
+    // when
+    mojo.execute();
+
+    // then
+    ResourceBundle bundle = ResourceBundle.getBundle("selected.text", Locale.GERMAN);
+    assertThat(bundle.keySet(), contains("test.simple"));
+  }
+
+  @Test
+  void shouldThrowForInvalidKeyPattern() {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(BASENAME);
+    mojo.setExcludeKeys(new String[]{"*.internal"});
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::execute);
+
+    // then
+    assertThat(ex.getMessage(),
+        equalTo("Invalid configuration: Invalid key pattern: *.internal (expected <key> or <prefix>*)"));
+  }
+
+  @Test
+  void shouldExportOnlyKeysReferencedInSources() throws Exception {
+    // given
+    File sources = new File("target/referenced-sources");
+    Files.createDirectories(sources.toPath());
+    Files.write(new File(sources, "Texts.java").toPath(),
+        "String text = bundle.getString(\"test.simple\");".getBytes(StandardCharsets.UTF_8));
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/referenced/text");
+    mojo.setLanguages(new String[]{"de"});
+    mojo.setKeySourceRoots(new String[]{sources.getPath()});
+
+    // when
+    mojo.execute();
+
+    // then
+    ResourceBundle bundle = ResourceBundle.getBundle("referenced.text", Locale.GERMAN);
+    assertThat(bundle.keySet(), contains("test.simple"));
+  }
+
+  @Test
+  void shouldResolveFallbacksIntoCompleteFiles() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/fallback/text");
+    mojo.setLanguages(new String[]{"fr", "de_CH"});
+    mojo.setResolveFallbacks(true);
+
+    // when
+    mojo.execute();
+
+    // then
+    Properties french = new Properties();
+    try (InputStream in = new FileInputStream("target/classes/fallback/text_fr.properties")) {
+      french.load(in);
+    }
+    assertThat(french.getProperty("test.simple"), equalTo("Test (en)"));
+    Properties swissGerman = new Properties();
+    try (InputStream in = new FileInputStream("target/classes/fallback/text_de_CH.properties")) {
+      swissGerman.load(in);
+    }
+    assertThat(swissGerman.getProperty("test.simple"), equalTo("Test (de)"));
+  }
+
+  @Test
+  void shouldOmitTextsInheritedFromDefaultFile() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/delta/text");
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setDefaultlanguage("en");
+    mojo.setDeltaBundles(true);
+
+    // when
+    mojo.execute();
+
+    // then
+    Properties english = new Properties();
+    try (InputStream in = new FileInputStream("target/classes/delta/text_en.properties")) {
+      english.load(in);
+    }
+    assertThat(english.isEmpty(), equalTo(true));
+    ResourceBundle bundle = ResourceBundle.getBundle("delta.text", Locale.ENGLISH);
+    assertThat(bundle.getString("test.simple"), equalTo("Test (en)"));
+  }
+
+  @Test
+  void shouldThrowForDeltaBundlesWithResolvedFallbacks() {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(BASENAME);
+    mojo.setResolveFallbacks(true);
+    mojo.setDeltaBundles(true);
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::execute);
+
+    // then
+    assertThat(ex.getMessage(),
+        equalTo("Invalid configuration: resolveFallbacks and deltaBundles can not be combined"));
+  }
+
+  @Test
+  void shouldWriteUtf8Properties() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/utf8/text");
+    mojo.setLanguages(new String[]{"de"});
+    mojo.setEncoding("UTF-8");
+
+    // when
+    mojo.execute();
+
+    // then
+    byte[] content = Files.readAllBytes(Paths.get("target/classes/utf8/text_de.properties"));
+    assertThat(new String(content, StandardCharsets.UTF_8), containsString("test.umlaute=ÄöÜ[@"));
+    Properties properties = new Properties();
+    try (Reader in = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+      properties.load(in);
+    }
+    assertThat(properties.getProperty("test.simple"), equalTo("Test (de)"));
+  }
+
+  @Test
+  void shouldThrowForUnsupportedEncoding() {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(BASENAME);
+    mojo.setEncoding("UTF-16");
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::execute);
+
+    // then
+    assertThat(ex.getMessage(),
+        equalTo("Invalid configuration: Unsupported properties encoding: UTF-16 (expected ISO-8859-1 or UTF-8)"));
+  }
+
+  @Test
+  void shouldWriteIdenticalFilesOnEveryRun() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/classes/reproducible/text");
+    mojo.setDefaultlanguage("en");
+
+    // when / then
+    ExportMojoTestUtils.assertReproducible(mojo, "target/classes/reproducible/text.properties",
+        "target/classes/reproducible/text_de.properties", "target/classes/reproducible/text_en.properties");
+    String content = new String(Files.readAllBytes(Paths.get("target/classes/reproducible/text_de.properties")),
+        StandardCharsets.ISO_8859_1);
+    assertThat(content, equalTo("test.simple=Test (de)\ntest.umlaute=\\u00C4\\u00F6\\u00DC[@\n"));
+  }
+
+  @Test
+  void shouldRestoreIdenticalExportFromCache() throws Exception {
+    // given
+    deleteRecursively(new File("target/trema-cache"));
+    final ExportPropertiesMojo first = cachingMojo("target/cached-a/text");
+    Log firstLog = Mockito.mock(Log.class);
+    first.setLog(firstLog);
+    first.execute();
+    final ExportPropertiesMojo second = cachingMojo("target/cached-b/text");
+    Log secondLog = Mockito.mock(Log.class);
+    second.setLog(secondLog);
+
+    // when
+    second.execute();
+
+    // then
+    verify(firstLog, never()).info(startsWith("Restored"));
+    verify(secondLog).info("Restored 2 properties files from the export cache.");
+    assertThat(new File("target/trema-cache").list().length, equalTo(1));
+    assertThat(Files.readAllBytes(Paths.get("target/cached-b/text_de.properties")),
+        equalTo(Files.readAllBytes(Paths.get("target/cached-a/text_de.properties"))));
+  }
+
+  @Test
+  void shouldThrowForInvalidExportCacheSize() {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(BASENAME);
+    mojo.setExportCache(true);
+    mojo.setExportCacheDirectory("target/trema-cache");
+    mojo.setExportCacheSize(0);
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::execute);
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Invalid configuration: exportCacheSize must be positive: 0"));
+  }
+
+  @Test
+  void shouldRewriteOnlyChangedLanguagesInIncrementalExport() throws Exception {
+    // given
+    Files.createDirectories(Paths.get("target/incremental"));
+    String trema = new String(Files.readAllBytes(Paths.get(TREMA_FILE)), StandardCharsets.ISO_8859_1);
+    Files.write(Paths.get("target/incremental/text.trm"), trema.getBytes(StandardCharsets.ISO_8859_1));
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile("target/incremental/text.trm");
+    mojo.setBasename("target/incremental/text");
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setDefaultlanguage("en");
+    mojo.setIncremental(true);
+    mojo.setIncrementalDirectory("target/incremental/fingerprints");
+    mojo.execute();
+    Files.write(Paths.get("target/incremental/text_en.properties"),
+        "marker=en\n".getBytes(StandardCharsets.ISO_8859_1));
+    Files.write(Paths.get("target/incremental/text.properties"),
+        "marker=default\n".getBytes(StandardCharsets.ISO_8859_1));
+    Files.write(Paths.get("target/incremental/text.trm"),
+        trema.replace("Test (de)", "Test (de) changed").getBytes(StandardCharsets.ISO_8859_1));
+
+    // when
+    mojo.execute();
+
+    // then
+    assertThat(load("target/incremental/text_de.properties").getProperty("test.simple"), equalTo("Test (de) changed"));
+    assertThat(load("target/incremental/text_en.properties").getProperty("marker"), equalTo("en"));
+    assertThat(load("target/incremental/text.properties").getProperty("marker"), equalTo("default"));
+  }
+
+  @Test
+  void shouldRewriteAllLanguagesAfterConfigurationChange() throws Exception {
+    // given
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename("target/incremental-configuration/text");
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setIncremental(true);
+    mojo.setIncrementalDirectory("target/incremental-configuration/fingerprints");
+    mojo.execute();
+    Files.write(Paths.get("target/incremental-configuration/text_en.properties"),
+        "marker=en\n".getBytes(StandardCharsets.ISO_8859_1));
+    mojo.setEncoding("UTF-8");
+
+    // when
+    mojo.execute();
+
+    // then
+    assertThat(load("target/incremental-configuration/text_en.properties").getProperty("test.simple"),
+        equalTo("Test (en)"));
+  }
+
+  private static Properties load(String fileName) throws Exception {
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(fileName)) {
+      properties.load(in);
+    }
+    return properties;
+  }
+
+  private static ExportPropertiesMojo cachingMojo(String basename) {
+    final ExportPropertiesMojo mojo = new ExportPropertiesMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(basename);
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setExportCache(true);
+    mojo.setExportCacheDirectory("target/trema-cache");
+    mojo.setExportCacheSize(16);
+    return mojo;
+  }
 }
@@ -0,0 +1,86 @@
+package com.netcetera.trema.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static com.netcetera.trema.maven.TestUtils.isExistingFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link ExportResourceBundleMojo}.
+ */
+class ExportResourceBundleMojoTest {
+
+  private static final String OUTPUT_DIRECTORY = "target/generated-test-sources/trema";
+
+  @Test
+  void shouldGenerateCompilableResourceBundles() throws Exception {
+    // given
+    final ExportResourceBundleMojo mojo = new ExportResourceBundleMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setOutputDirectory(OUTPUT_DIRECTORY);
+    mojo.setBundleName("com.example.Texts");
+    mojo.setLanguages(new String[]{"de", "en"});
+    mojo.setDefaultlanguage("en");
+
+    // when
+    mojo.execute();
+
+    // then
+    File source = new File(OUTPUT_DIRECTORY + "/com/example/Texts_de.java");
+    assertThat(source, isExistingFile());
+    assertThat(new File(OUTPUT_DIRECTORY + "/com/example/Texts.java"), isExistingFile());
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    File classes = new File("target/generated-test-classes/trema");
+    classes.mkdirs();
+    int result = compiler.run(null, null, null, "-d", classes.getPath(),
+        source.getPath(), OUTPUT_DIRECTORY + "/com/example/Texts.java");
+    assertThat(result, equalTo(0));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()})) {
+      ResourceBundle bundle = ResourceBundle.getBundle("com.example.Texts", Locale.GERMAN, loader);
+      assertThat(bundle.getString("test.simple"), equalTo("Test (de)"));
+      assertThat(bundle.getString("test.umlaute"), equalTo("ÄöÜ[@"));
+    }
+  }
+
+  @Test
+  void shouldThrowForInvalidBundleName() {
+    // given
+    final ExportResourceBundleMojo mojo = new ExportResourceBundleMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setOutputDirectory(OUTPUT_DIRECTORY);
+    mojo.setBundleName("com.example.my-texts");
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::execute);
+
+    // then
+    assertThat(ex.getMessage(), equalTo("bundleName must be a valid Java class name: com.example.my-texts"));
+  }
+
+  @Test
+  void shouldThrowForLanguageNotValidInClassName() {
+    // given
+    final ExportResourceBundleMojo mojo = new ExportResourceBundleMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setOutputDirectory(OUTPUT_DIRECTORY);
+    mojo.setBundleName("com.example.Texts");
+    mojo.setLanguages(new String[]{"de-CH"});
+
+    // when / then
+    assertThrows(MojoExecutionException.class, mojo::execute);
+  }
+}
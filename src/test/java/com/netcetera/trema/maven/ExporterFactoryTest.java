@@ -3,7 +3,6 @@ package com.netcetera.trema.maven;
 import com.netcetera.trema.core.api.IExporter;
 import com.netcetera.trema.core.exporting.AndroidExporter;
 import com.netcetera.trema.core.exporting.CSVExporter;
-import com.netcetera.trema.core.exporting.JsonExporter;
 import com.netcetera.trema.core.exporting.OutputStreamFactory;
 import com.netcetera.trema.core.exporting.PropertiesExporter;
 import com.netcetera.trema.core.exporting.XLSExporter;
@@ -59,7 +58,7 @@ class ExporterFactoryTest {
     IExporter exporter = factory.getExporter(ExportType.JSON, file, osFactory, null);
 
     // then
-    assertThat(exporter, instanceOf(JsonExporter.class));
+    assertThat(exporter, instanceOf(StreamingJsonExporter.class));
   }
 
   @Test
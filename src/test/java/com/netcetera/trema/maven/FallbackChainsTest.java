@@ -0,0 +1,83 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link FallbackChains}.
+ */
+class FallbackChainsTest {
+
+  @Test
+  void shouldFallBackToParentsDefaultAndMasterLanguage() {
+    // given
+    FallbackChains chains = new FallbackChains(Collections.emptyMap(), "fr", "en");
+
+    // when / then
+    assertThat(chains.getChain("de_CH_x"), contains("de_CH", "de", "fr", "en"));
+    assertThat(chains.getChain("de-CH"), contains("de", "fr", "en"));
+    assertThat(chains.getChain("en"), contains("fr"));
+  }
+
+  @Test
+  void shouldUseConfiguredChain() {
+    // given
+    FallbackChains chains = new FallbackChains(FallbackChains.parse(new String[]{"de_CH:fr_CH,de"}), null, "en");
+
+    // when / then
+    assertThat(chains.getChain("de_CH"), contains("fr_CH", "de", "en"));
+  }
+
+  @Test
+  void shouldThrowForInvalidChain() {
+    // when / then
+    assertThrows(IllegalArgumentException.class, () -> FallbackChains.parse(new String[]{"de_CH"}));
+    assertThrows(IllegalArgumentException.class, () -> FallbackChains.parse(new String[]{"de_CH:de,"}));
+  }
+
+  @Test
+  void shouldFillMissingTextsFromFirstFallbackWithExportedStatus() {
+    // given
+    FallbackChains chains = new FallbackChains(Collections.emptyMap(), null, "en");
+    ITextNode complete = node("a", "de_CH", "Grüezi", Status.VERIFIED);
+    ITextNode missing = node("b", "de", "Hallo", Status.INITIAL);
+    IValueNode english = value("en", "Hello", Status.VERIFIED);
+    Mockito.when(missing.getValueNode("en")).thenReturn(english);
+
+    // when
+    ITextNode[] resolved = chains.resolve(new ITextNode[]{complete, missing}, "de_CH",
+        new Status[]{Status.VERIFIED});
+
+    // then
+    assertThat(resolved[0], sameInstance(complete));
+    assertThat(resolved[1].getKey(), equalTo("b"));
+    assertThat(resolved[1].getValueNode("de_CH").getValue(), equalTo("Hello"));
+  }
+
+  private static ITextNode node(String key, String language, String value, Status status) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    Mockito.when(node.getKey()).thenReturn(key);
+    IValueNode valueNode = value(language, value, status);
+    Mockito.when(node.getValueNode(language)).thenReturn(valueNode);
+    return node;
+  }
+
+  private static IValueNode value(String language, String value, Status status) {
+    IValueNode valueNode = Mockito.mock(IValueNode.class);
+    Mockito.when(valueNode.getLanguage()).thenReturn(language);
+    Mockito.when(valueNode.getValue()).thenReturn(value);
+    Mockito.when(valueNode.getStatus()).thenReturn(status);
+    return valueNode;
+  }
+}
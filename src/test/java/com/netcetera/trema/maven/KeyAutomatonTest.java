@@ -0,0 +1,40 @@
+package com.netcetera.trema.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test for {@link KeyAutomaton}.
+ */
+class KeyAutomatonTest {
+
+  private static final String[] KEYS = {"b", "a.b", "a.b.c", "title", "home.title"};
+
+  @Test
+  void shouldFindOverlappingKeys() {
+    // given
+    BitSet found = new BitSet();
+
+    // when
+    new KeyAutomaton(KEYS).find("t(\"a.b\"); t('b'); <p>{{ 'home.title' | translate }}</p>", found);
+
+    // then
+    assertThat(found.toString(), equalTo("{0, 1, 4}"));
+  }
+
+  @Test
+  void shouldIgnoreKeysWithinLongerKeys() {
+    // given
+    BitSet found = new BitSet();
+
+    // when
+    new KeyAutomaton(KEYS).find("getString(\"a.b.c\") + subtitle + home.title.short + a.b_x", found);
+
+    // then
+    assertThat(found.toString(), equalTo("{2}"));
+  }
+}
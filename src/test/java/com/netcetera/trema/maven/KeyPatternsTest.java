@@ -0,0 +1,86 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.api.ITextNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link KeyPatterns}.
+ */
+class KeyPatternsTest {
+
+  @Test
+  void shouldMatchIncludedPrefixesAndKeys() {
+    // given
+    KeyPatterns patterns = new KeyPatterns(new String[]{"mobile.*", "common.ok"}, null);
+
+    // when / then
+    assertThat(patterns.matches("mobile.title"), is(true));
+    assertThat(patterns.matches("mobile."), is(true));
+    assertThat(patterns.matches("mobile"), is(false));
+    assertThat(patterns.matches("common.ok"), is(true));
+    assertThat(patterns.matches("common.ok.label"), is(false));
+    assertThat(patterns.matches("common.cancel"), is(false));
+    assertThat(patterns.matches("web.title"), is(false));
+  }
+
+  @Test
+  void shouldLetExcludesTakePrecedence() {
+    // given
+    KeyPatterns patterns = new KeyPatterns(new String[]{"mobile.*"}, new String[]{"mobile.debug.*", "mobile.beta"});
+
+    // when / then
+    assertThat(patterns.matches("mobile.title"), is(true));
+    assertThat(patterns.matches("mobile.debug.log"), is(false));
+    assertThat(patterns.matches("mobile.beta"), is(false));
+    assertThat(patterns.matches("mobile.beta.title"), is(true));
+  }
+
+  @Test
+  void shouldIncludeAllKeysNotExcluded() {
+    // given
+    KeyPatterns patterns = new KeyPatterns(null, new String[]{"internal.*"});
+    ITextNode[] nodes = {node("internal.id"), node("home.title"), node("internal"), node("home.text")};
+
+    // when
+    ITextNode[] selected = patterns.select(nodes);
+
+    // then
+    assertThat(selected, arrayWithSize(3));
+    assertThat(selected[0].getKey(), equalTo("home.title"));
+    assertThat(selected[1].getKey(), equalTo("internal"));
+    assertThat(selected[2].getKey(), equalTo("home.text"));
+  }
+
+  @Test
+  void shouldMatchAllKeysWithSingleWildcard() {
+    // given
+    KeyPatterns patterns = new KeyPatterns(new String[]{"*"}, new String[]{"*"});
+
+    // when / then
+    assertThat(new KeyPatterns(new String[]{"*"}, null).matches("any.key"), is(true));
+    assertThat(patterns.matches("any.key"), is(false));
+  }
+
+  @Test
+  void shouldThrowForWildcardInsideKey() {
+    // given / when
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> new KeyPatterns(new String[]{"mobile.*.title"}, null));
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Invalid key pattern: mobile.*.title (expected <key> or <prefix>*)"));
+  }
+
+  private static ITextNode node(String key) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    Mockito.when(node.getKey()).thenReturn(key);
+    return node;
+  }
+}
@@ -0,0 +1,101 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.api.ITextNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link KeyPrefixShards}.
+ */
+class KeyPrefixShardsTest {
+
+  @Test
+  void shouldUseLongestMatchingPrefix() {
+    // given
+    KeyPrefixShards shards = new KeyPrefixShards(new String[]{"checkout.*", "checkout.payment.*"});
+
+    // when / then
+    assertThat(shards.getShard("checkout.title"), equalTo("checkout"));
+    assertThat(shards.getShard("checkout.payment.card"), equalTo("checkout_payment"));
+    assertThat(shards.getShard("checkoutx"), equalTo(KeyPrefixShards.COMMON_SHARD));
+    assertThat(shards.getPrefix("checkout_payment"), equalTo("checkout.payment."));
+    assertThat(shards.getPrefix(KeyPrefixShards.COMMON_SHARD), nullValue());
+  }
+
+  @Test
+  void shouldPartitionIntoAllShards() {
+    // given
+    KeyPrefixShards shards = new KeyPrefixShards(new String[]{"admin.*", "checkout.*"});
+    ITextNode[] nodes = {node("checkout.title"), node("home.title"), node("checkout.total")};
+
+    // when
+    Map<String, ITextNode[]> partition = shards.partition(nodes);
+
+    // then
+    assertThat(partition.keySet(), contains("admin", "checkout", "common"));
+    assertThat(partition.get("admin"), arrayWithSize(0));
+    assertThat(partition.get("checkout"), arrayWithSize(2));
+    assertThat(partition.get("common")[0].getKey(), equalTo("home.title"));
+  }
+
+  @Test
+  void shouldThrowForDuplicateShard() {
+    // given / when
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> new KeyPrefixShards(new String[]{"admin.*", " admin.* "}));
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Duplicate shard: admin"));
+  }
+
+  @Test
+  void shouldReplaceDotsInShardNames() {
+    // given
+    KeyPrefixShards shards = new KeyPrefixShards(new String[]{"app.home.*"});
+    ITextNode[] nodes = {node("app.home.title"), node("app.title")};
+
+    // when
+    Map<String, ITextNode[]> partition = shards.partition(nodes);
+
+    // then
+    assertThat(partition.keySet(), contains("app_home", "common"));
+    assertThat(partition.get("app_home")[0].getKey(), equalTo("app.home.title"));
+    assertThat(shards.getPrefix("app_home"), equalTo("app.home."));
+  }
+
+  @Test
+  void shouldThrowForInvalidCharacterInShardName() {
+    // given / when
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> new KeyPrefixShards(new String[]{"app/home.*"}));
+
+    // then
+    assertThat(ex.getMessage(),
+        equalTo("Invalid shard: app/home.* (expected letters, digits, '.', '_' or '-' before .*)"));
+  }
+
+  @Test
+  void shouldThrowForShardsWithSameName() {
+    // given / when
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> new KeyPrefixShards(new String[]{"app.home.*", "app_home.*"}));
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Duplicate shard: app_home"));
+  }
+
+  private static ITextNode node(String key) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    Mockito.when(node.getKey()).thenReturn(key);
+    return node;
+  }
+}
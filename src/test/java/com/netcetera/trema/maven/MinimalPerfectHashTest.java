@@ -0,0 +1,70 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.exporting.ExportException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link MinimalPerfectHash}.
+ */
+class MinimalPerfectHashTest {
+
+  @Test
+  void shouldMapKeysToDistinctSlots() throws ExportException {
+    // given
+    String[] keys = new String[5000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = "module" + (i % 17) + ".text." + i;
+    }
+
+    // when
+    MinimalPerfectHash hash = new MinimalPerfectHash(keys);
+
+    // then
+    Set<Integer> slots = new HashSet<>();
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(hash.lookup(keys[i]), equalTo(hash.getSlot(i)));
+      slots.add(hash.getSlot(i));
+    }
+    assertThat(slots.size(), equalTo(keys.length));
+  }
+
+  @Test
+  void shouldMapKeysToDistinctSlotsForPowerOfTwoSizes() throws ExportException {
+    // given
+    String[] keys = {"keys", "seeds", "size", "messages"};
+
+    // when
+    MinimalPerfectHash hash = new MinimalPerfectHash(keys);
+
+    // then
+    Set<Integer> slots = new HashSet<>();
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(hash.lookup(keys[i]), equalTo(hash.getSlot(i)));
+      slots.add(hash.getSlot(i));
+    }
+    assertThat(slots.size(), equalTo(keys.length));
+  }
+
+  @Test
+  void shouldFailWhenNoSeedPlacesABucket() {
+    // given
+    String[] keys = new String[5000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = "text." + i;
+    }
+
+    // when
+    ExportException e = assertThrows(ExportException.class, () -> new MinimalPerfectHash(keys, 1));
+
+    // then
+    assertThat(e.getMessage(), startsWith("Could not build a perfect hash of 5000 keys: no seed up to 1"));
+  }
+}
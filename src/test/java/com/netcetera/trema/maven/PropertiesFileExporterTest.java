@@ -0,0 +1,49 @@
+package com.netcetera.trema.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test for {@link PropertiesFileExporter}.
+ */
+class PropertiesFileExporterTest {
+
+  @Test
+  void shouldEscapeOnlySpecialCharactersInUtf8() throws Exception {
+    // given
+    String key = "a key:with=special#chars!";
+    String value = " leading space, \\ tab\t\n\r\f, \u0001 and \ud800 unpaired, 日本語 😀";
+    StringWriter writer = new StringWriter();
+
+    // when
+    PropertiesFileExporter.writeEscaped(writer, key, true, true);
+    writer.write('=');
+    PropertiesFileExporter.writeEscaped(writer, value, false, true);
+
+    // then
+    assertThat(writer.toString(), equalTo("a\\ key\\:with\\=special\\#chars\\!="
+        + "\\ leading space, \\\\ tab\\t\\n\\r\\f, \\u0001 and \\uD800 unpaired, 日本語 😀"));
+    Properties properties = new Properties();
+    properties.load(new StringReader(writer.toString()));
+    assertThat(properties.getProperty(key), equalTo(value));
+  }
+
+  @Test
+  void shouldEscapeNonAsciiCharactersInIso88591() throws Exception {
+    // given
+    String value = "ÄöÜ 日本語";
+    StringWriter writer = new StringWriter();
+
+    // when
+    PropertiesFileExporter.writeEscaped(writer, value, false, false);
+
+    // then
+    assertThat(writer.toString(), equalTo("\\u00C4\\u00F6\\u00DC \\u65E5\\u672C\\u8A9E"));
+  }
+}
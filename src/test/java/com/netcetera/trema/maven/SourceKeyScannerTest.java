@@ -0,0 +1,116 @@
+package com.netcetera.trema.maven;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+/**
+ * Test for {@link SourceKeyScanner}.
+ */
+class SourceKeyScannerTest {
+
+  private static final File ROOT = new File("target/source-key-scanner-test");
+  private static final File SOURCES = new File(ROOT, "src");
+  private static final File CACHE = new File(ROOT, "cache.properties");
+  private static final String[] KEYS = {"home.title", "home.title.short", "checkout.pay", "unused"};
+
+  private final Log log = Mockito.mock(Log.class);
+
+  @BeforeEach
+  void setUp() throws IOException {
+    if (ROOT.exists()) {
+      try (Stream<Path> paths = Files.walk(ROOT.toPath())) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+    write("java/Home.java", "title = bundle.getString(\"home.title.short\");");
+    write("web/checkout.ts", "this.label = translate('checkout.pay');");
+    write("web/README.md", "home.title");
+  }
+
+  @Test
+  void shouldFindKeysReferencedInSourceFiles() throws Exception {
+    // given
+    SourceKeyScanner scanner = new SourceKeyScanner(Collections.singletonList(SOURCES),
+        Arrays.asList("java", "ts"), CACHE);
+
+    // when
+    Set<String> keys = scanner.scan(KEYS, log);
+
+    // then
+    assertThat(keys, contains("checkout.pay", "home.title.short"));
+  }
+
+  @Test
+  void shouldScanOnlyChangedFilesAgain() throws Exception {
+    // given
+    SourceKeyScanner scanner = new SourceKeyScanner(Collections.singletonList(SOURCES),
+        Arrays.asList("java", "ts"), CACHE);
+    scanner.scan(KEYS, log);
+    File home = write("java/Home.java", "title = bundle.getString(\"home.title\");");
+    home.setLastModified(home.lastModified() + 2000);
+
+    // when
+    Set<String> keys = scanner.scan(KEYS, log);
+
+    // then
+    assertThat(keys, contains("checkout.pay", "home.title"));
+    Mockito.verify(log).debug("Read 1 of 2 source files, found 2 of 4 keys.");
+  }
+
+  @Test
+  void shouldSearchUnchangedFilesForAddedKeys() throws Exception {
+    // given
+    SourceKeyScanner scanner = new SourceKeyScanner(Collections.singletonList(SOURCES),
+        Arrays.asList("java", "ts"), CACHE);
+    scanner.scan(new String[]{"home.title", "home.title.short", "unused"}, log);
+
+    // when
+    Set<String> keys = scanner.scan(KEYS, log);
+
+    // then
+    assertThat(keys, contains("checkout.pay", "home.title.short"));
+    Mockito.verify(log).debug("Read 2 of 2 source files, found 2 of 4 keys.");
+  }
+
+  @Test
+  void shouldDropRemovedKeysWithoutReadingFiles() throws Exception {
+    // given
+    SourceKeyScanner scanner = new SourceKeyScanner(Collections.singletonList(SOURCES),
+        Arrays.asList("java", "ts"), CACHE);
+    scanner.scan(KEYS, log);
+
+    // when
+    Set<String> keys = scanner.scan(new String[]{"home.title", "home.title.short", "unused"}, log);
+
+    // then
+    assertThat(keys, contains("home.title.short"));
+    Mockito.verify(log).debug("Read 0 of 2 source files, found 1 of 3 keys.");
+    assertThat(scanner.scan(KEYS, log), contains("checkout.pay", "home.title.short"));
+  }
+
+  private static File write(String name, String content) throws IOException {
+    File file = new File(SOURCES, name);
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
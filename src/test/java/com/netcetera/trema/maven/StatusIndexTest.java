@@ -0,0 +1,63 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test for {@link StatusIndex}.
+ */
+class StatusIndexTest {
+
+  private final ITextNode[] nodes = {
+    node("a", value("de", Status.VERIFIED), value("en", Status.INITIAL)),
+    node("b", value("de", Status.INITIAL), value("en", Status.TRANSLATED)),
+    node("c", value("en", Status.VERIFIED)),
+    node("d", value("de", Status.TRANSLATED), value("en", Status.VERIFIED))
+  };
+
+  @Test
+  void shouldSelectNodesWithExportedStatusInOrder() {
+    // given
+    StatusIndex index = new StatusIndex(nodes);
+
+    // when
+    ITextNode[] selected = index.select("de", new Status[]{Status.TRANSLATED, Status.VERIFIED});
+
+    // then
+    assertThat(selected, arrayWithSize(2));
+    assertThat(selected[0].getKey(), equalTo("a"));
+    assertThat(selected[1].getKey(), equalTo("d"));
+  }
+
+  @Test
+  void shouldSelectAllNodesWithValueWithoutStatus() {
+    // given
+    StatusIndex index = new StatusIndex(nodes);
+
+    // when / then
+    assertThat(index.get("de", null).toString(), equalTo("{0, 1, 3}"));
+    assertThat(index.get("en", new Status[]{Status.VERIFIED}).toString(), equalTo("{2, 3}"));
+    assertThat(index.get("fr", null).isEmpty(), equalTo(true));
+  }
+
+  private static ITextNode node(String key, IValueNode... values) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    Mockito.when(node.getKey()).thenReturn(key);
+    Mockito.when(node.getValueNodes()).thenReturn(values);
+    return node;
+  }
+
+  private static IValueNode value(String language, Status status) {
+    IValueNode value = Mockito.mock(IValueNode.class);
+    Mockito.when(value.getLanguage()).thenReturn(language);
+    Mockito.when(value.getStatus()).thenReturn(status);
+    return value;
+  }
+}
@@ -0,0 +1,91 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.Status;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.api.IValueNode;
+import com.netcetera.trema.core.exporting.ExportException;
+import com.netcetera.trema.core.exporting.OutputStreamFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link StreamingJsonExporter}.
+ */
+class StreamingJsonExporterTest {
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final OutputStreamFactory osFactory = file -> out;
+
+  @Test
+  void shouldWriteNestedMinifiedJson() throws Exception {
+    // given
+    StreamingJsonExporter exporter = new StreamingJsonExporter(new File("test.json"), osFactory, true, true);
+    ITextNode[] nodes = {
+        node("d", "x\"y"), node("a.c", "2"), node("a.b.e", "1"), node("a-b", "3"), node("f", null)};
+
+    // when
+    exporter.export(nodes, "de", "de", null);
+
+    // then
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+        equalTo("{\"a\":{\"b\":{\"e\":\"1\"},\"c\":\"2\"},\"a-b\":\"3\",\"d\":\"x\\\"y\"}"));
+  }
+
+  @Test
+  void shouldWriteFlatPrettyJson() throws Exception {
+    // given
+    StreamingJsonExporter exporter = new StreamingJsonExporter(new File("test.json"), osFactory, false, false);
+
+    // when
+    exporter.export(new ITextNode[]{node("b", "2"), node("a.b", "1")}, "de", "de", null);
+
+    // then
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+        equalTo("{\n  \"a.b\" : \"1\",\n  \"b\" : \"2\"\n}\n"));
+  }
+
+  @Test
+  void shouldSkipValuesWithOtherStatus() throws Exception {
+    // given
+    StreamingJsonExporter exporter = new StreamingJsonExporter(new File("test.json"), osFactory, true, true);
+
+    // when
+    exporter.export(new ITextNode[]{node("a", "1")}, "de", "de", new Status[]{Status.INITIAL});
+
+    // then
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), equalTo("{}"));
+  }
+
+  @Test
+  void shouldThrowForKeysThatCannotBeNested() {
+    // given
+    StreamingJsonExporter exporter = new StreamingJsonExporter(new File("test.json"), osFactory, true, false);
+    ITextNode[] nodes = {node("a.b", "1"), node("a", "2")};
+
+    // when
+    ExportException ex = assertThrows(ExportException.class, () -> exporter.export(nodes, "de", "de", null));
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Key 'a.b' conflicts with another key when nesting on '.'"));
+  }
+
+  private static ITextNode node(String key, String value) {
+    ITextNode node = Mockito.mock(ITextNode.class);
+    Mockito.when(node.getKey()).thenReturn(key);
+    if (value != null) {
+      IValueNode valueNode = Mockito.mock(IValueNode.class);
+      Mockito.when(valueNode.getValue()).thenReturn(value);
+      Mockito.when(valueNode.getStatus()).thenReturn(Status.VERIFIED);
+      Mockito.when(node.getValueNode("de")).thenReturn(valueNode);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,88 @@
+package com.netcetera.trema.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link StringArena}.
+ */
+class StringArenaTest {
+
+  @Test
+  void shouldStoreEqualStringsOnce() throws Exception {
+    // given
+    StringArena arena = new StringArena();
+
+    // when
+    int first = arena.add("Cancel");
+    int second = arena.add(new String("Cancel"));
+    int other = arena.add("Abbrechen");
+
+    // then
+    assertThat(second, equalTo(first));
+    assertThat(other, equalTo(first + 1));
+    assertThat(arena.size(), equalTo(2));
+  }
+
+  @Test
+  void shouldDecodeLatin1AndUnicodeStrings() throws Exception {
+    // given
+    StringArena arena = new StringArena();
+    char[] chars = new char[2 * 1024 * 1024];
+    Arrays.fill(chars, 'é');
+    String large = new String(chars);
+    int latin1 = arena.add("Grüße");
+    int unicode = arena.add("你好 😀");
+    int empty = arena.add("");
+    int largeId = arena.add(large);
+
+    // when
+    arena.freeze();
+
+    // then
+    assertThat(arena.get(latin1), equalTo("Grüße"));
+    assertThat(arena.get(unicode), equalTo("你好 😀"));
+    assertThat(arena.get(empty), equalTo(""));
+    assertThat(arena.get(largeId), equalTo(large));
+  }
+
+  @Test
+  void shouldDecodeMappedStrings() throws Exception {
+    // given
+    StringArena arena = new StringArena(new File("target/trema-values"));
+    char[] chars = new char[20 * 1024 * 1024];
+    Arrays.fill(chars, 'x');
+    String large = new String(chars);
+    int latin1 = arena.add("Grüße");
+    int largeId = arena.add(large);
+    int unicode = arena.add("你好 😀");
+
+    // when
+    arena.freeze();
+
+    // then
+    assertThat(arena.get(latin1), equalTo("Grüße"));
+    assertThat(arena.get(largeId), equalTo(large));
+    assertThat(arena.get(unicode), equalTo("你好 😀"));
+    assertThat(arena.getMappedBytes(), greaterThan((long) large.length()));
+    assertThat(arena.getBytes(), lessThan(1024L));
+  }
+
+  @Test
+  void shouldNotAddToFrozenArena() throws Exception {
+    // given
+    StringArena arena = new StringArena();
+    arena.freeze();
+
+    // when / then
+    assertThrows(IllegalStateException.class, () -> arena.add("text"));
+  }
+}
@@ -5,6 +5,13 @@ import org.hamcrest.Matcher;
 import org.hamcrest.TypeSafeMatcher;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Test utilities.
@@ -38,4 +45,23 @@ public final class TestUtils {
       }
     };
   }
+
+  /**
+   * Deletes a file or a directory with all its content, if it exists.
+   *
+   * @param file the file or directory
+   * @throws IOException if a file could not be deleted
+   */
+  public static void deleteRecursively(File file) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    List<Path> paths;
+    try (Stream<Path> walk = Files.walk(file.toPath())) {
+      paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      Files.delete(path);
+    }
+  }
 }
@@ -0,0 +1,157 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.XMLDatabase;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Test for {@link TranslationServer}.
+ */
+class TranslationServerTest {
+
+  private TranslationServer server;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    TremaExportContext context = new TremaExportContext();
+    context.setType(ExportType.JSON);
+    context.setBaseName("text");
+    context.setDefaultLanguage("en");
+    server = new TranslationServer(new InetSocketAddress("localhost", 0), "text", context,
+        Mockito.mock(Log.class));
+    server.start(parse(new String(Files.readAllBytes(Paths.get(TREMA_FILE)), StandardCharsets.ISO_8859_1)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  void shouldServeLanguageFileWithEtag() throws Exception {
+    // given
+    HttpURLConnection connection = open("/text_de.properties");
+
+    // when
+    int status = connection.getResponseCode();
+
+    // then
+    assertThat(status, equalTo(200));
+    assertThat(connection.getHeaderField("ETag"), startsWith("\""));
+    assertThat(connection.getHeaderField("Cache-Control"), equalTo("no-cache"));
+    assertThat(load(connection.getInputStream()).getProperty("test.simple"), equalTo("Test (de)"));
+  }
+
+  @Test
+  void shouldAnswerNotModifiedForMatchingEtag() throws Exception {
+    // given
+    String etag = open("/text.json").getHeaderField("ETag");
+    HttpURLConnection connection = open("/text.json");
+    connection.setRequestProperty("If-None-Match", etag);
+
+    // when
+    int status = connection.getResponseCode();
+
+    // then
+    assertThat(status, equalTo(304));
+    assertThat(connection.getHeaderField("ETag"), equalTo(etag));
+  }
+
+  @Test
+  void shouldServeCompressedContentWithOwnEtag() throws Exception {
+    // given
+    HttpURLConnection plain = open("/text_en.properties");
+    HttpURLConnection connection = open("/text_en.properties");
+    connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+
+    // when
+    int status = connection.getResponseCode();
+
+    // then
+    assertThat(status, equalTo(200));
+    assertThat(plain.getHeaderField("Content-Encoding"), nullValue());
+    assertThat(connection.getHeaderField("Content-Encoding"), equalTo("gzip"));
+    assertThat(connection.getHeaderField("ETag"), not(equalTo(plain.getHeaderField("ETag"))));
+    assertThat(read(new GZIPInputStream(connection.getInputStream())), equalTo(read(plain.getInputStream())));
+  }
+
+  @Test
+  void shouldServeChangedTextsAfterUpdate() throws Exception {
+    // given
+    String etag = open("/text_de.properties").getHeaderField("ETag");
+    String trema = new String(Files.readAllBytes(Paths.get(TREMA_FILE)), StandardCharsets.ISO_8859_1);
+    server.update(parse(trema.replace("Test (de)", "Test (de) changed")));
+    HttpURLConnection connection = open("/text_de.properties");
+    connection.setRequestProperty("If-None-Match", etag);
+
+    // when
+    int status = connection.getResponseCode();
+
+    // then
+    assertThat(status, equalTo(200));
+    assertThat(connection.getHeaderField("ETag"), not(equalTo(etag)));
+    assertThat(load(connection.getInputStream()).getProperty("test.simple"), equalTo("Test (de) changed"));
+  }
+
+  @Test
+  void shouldAnswerNotFoundForUnknownFiles() throws Exception {
+    assertThat(open("/text_fr.json").getResponseCode(), equalTo(404));
+    assertThat(open("/other_de.json").getResponseCode(), equalTo(404));
+    assertThat(open("/text_de.xml").getResponseCode(), equalTo(404));
+  }
+
+  private HttpURLConnection open(String path) throws Exception {
+    return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+  }
+
+  private static CompactDatabase parse(String trema) throws Exception {
+    XMLDatabase db = new XMLDatabase();
+    try (InputStream in = new ByteArrayInputStream(trema.getBytes(StandardCharsets.ISO_8859_1))) {
+      db.build(in, false);
+    }
+    return CompactDatabase.of(db, null);
+  }
+
+  private static Properties load(InputStream in) throws Exception {
+    Properties properties = new Properties();
+    try {
+      properties.load(in);
+    } finally {
+      in.close();
+    }
+    return properties;
+  }
+
+  private static String read(InputStream in) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    in.close();
+    return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
@@ -87,4 +88,28 @@ class TremaExportContextTest {
     // then
     assertThat(context.getFilters(), arrayWithSize(3));
   }
+
+  @Test
+  void shouldNotProjectLanguagesIfAllAreExported() {
+    // given / when
+    context.setDefaultLanguage("en");
+
+    // then
+    assertThat(context.getLanguageProjection(), nullValue());
+  }
+
+  @Test
+  void shouldProjectExportedDefaultAndFallbackLanguages() {
+    // given
+    context.setLanguages(new String[]{"de_CH", "fr_CH"});
+    context.setDefaultLanguage("en");
+    context.setResolveFallbacks(true);
+    context.setFallbackChains(new String[]{"fr_CH:fr,it"});
+
+    // when
+    LanguageProjection projection = context.getLanguageProjection();
+
+    // then
+    assertThat(projection.getLanguages(), contains("de", "de_CH", "en", "fr", "fr_CH", "it"));
+  }
 }
@@ -5,7 +5,6 @@ import com.netcetera.trema.core.XMLDatabase;
 import com.netcetera.trema.core.api.IExportFilter;
 import com.netcetera.trema.core.api.ITextNode;
 import com.netcetera.trema.core.exporting.ExportException;
-import com.netcetera.trema.core.exporting.JsonExporter;
 import com.netcetera.trema.core.exporting.OutputStreamFactory;
 import org.apache.maven.plugin.logging.Log;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,7 +13,18 @@ import org.mockito.Mockito;
 
 import java.io.File;
 import java.io.IOException;
-
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.netcetera.trema.maven.TestUtils.isExistingFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
@@ -32,7 +42,7 @@ class TremaExportTest {
 
   private TremaExport tremaExport;
   private TremaExportContext context;
-  private JsonExporter exporter;
+  private StreamingJsonExporter exporter;
 
   @BeforeEach
   void setUp() throws Exception {
@@ -60,7 +70,7 @@ class TremaExportTest {
             + "</text>"
             + "</trema>", false
     );
-    exporter = Mockito.mock(JsonExporter.class);
+    exporter = Mockito.mock(StreamingJsonExporter.class);
     factory = Mockito.mock(ExporterFactory.class);
     context = new TremaExportContext();
     context.setType(ExportType.JSON);
@@ -73,6 +83,7 @@ class TremaExportTest {
 
     tremaExport = new TremaExport(context, Mockito.mock(Log.class));
     tremaExport.setExporterFactory(factory);
+    tremaExport.setStatistics(DatabaseStatistics.compute(db.getTextNodes()));
   }
 
   @Test
@@ -111,4 +122,49 @@ class TremaExportTest {
     verify(exporter).export(nodes, db.getMasterLanguage(), "de", new Status[]{Status.INITIAL});
     verifyNoMoreInteractions(factory, exporter);
   }
+
+  @Test
+  void shouldReportWrittenFilesAsOutputs() throws Exception {
+    // given
+    TremaExportContext propertiesContext = new TremaExportContext();
+    propertiesContext.setType(ExportType.PROPERTIES);
+    propertiesContext.setXmlPathName("src/test/resources/text.trm");
+    propertiesContext.setBaseName("target/classes/outputs/text");
+    propertiesContext.setLanguages(new String[]{"de", "en"});
+    propertiesContext.setDefaultLanguage("en");
+    propertiesContext.setContentHashFileNames(true);
+    TremaExport export = new TremaExport(propertiesContext, Mockito.mock(Log.class));
+
+    // when
+    export.execute();
+
+    // then
+    assertThat(export.getOutputFiles(), hasSize(4));
+    assertThat(export.getOutputFiles(), hasItem(new File("target/classes/outputs/text.manifest.json")));
+    for (File file : export.getOutputFiles()) {
+      assertThat(file, isExistingFile());
+    }
+    assertThat(export.getOutputFiles(), not(hasItem(new File("target/classes/outputs/text_de.properties"))));
+  }
+
+  @Test
+  void shouldWriteIdenticalCsvFilesOnEveryRun() throws Exception {
+    // given
+    TremaExportContext csvContext = new TremaExportContext();
+    csvContext.setType(ExportType.CSV);
+    csvContext.setXmlPathName("src/test/resources/text.trm");
+    csvContext.setBaseName("target/classes/reproducible-csv/text");
+    csvContext.setLanguages(new String[]{"de", "en"});
+    Path file = Paths.get("target/classes/reproducible-csv/text_de.csv");
+    new TremaExport(csvContext, Mockito.mock(Log.class)).execute();
+    byte[] first = Files.readAllBytes(file);
+    Files.delete(file);
+
+    // when
+    new TremaExport(csvContext, Mockito.mock(Log.class)).execute();
+
+    // then
+    assertArrayEquals(first, Files.readAllBytes(file));
+    assertThat(new String(first, StandardCharsets.UTF_8), not(containsString("\r")));
+  }
 }
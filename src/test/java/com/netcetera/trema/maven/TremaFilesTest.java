@@ -0,0 +1,169 @@
+package com.netcetera.trema.maven;
+
+import com.netcetera.trema.core.XMLDatabase;
+import com.netcetera.trema.core.api.ITextNode;
+import com.netcetera.trema.core.exporting.ExportException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link TremaFiles}.
+ */
+class TremaFilesTest {
+
+  private static final File ROOT = new File("target/trema-files-test");
+
+  @BeforeEach
+  void setUp() throws IOException {
+    if (ROOT.exists()) {
+      try (Stream<Path> paths = Files.walk(ROOT.toPath())) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  void shouldResolveGlobPattern() throws Exception {
+    // given
+    File a = write("texts/a.trm", "en", text("a.key"));
+    File b = write("texts/b.trm", "en", text("b.key"));
+    write("texts/c.txt", "en", text("c.key"));
+    write("texts/sub/d.trm", "en", text("d.key"));
+
+    // when
+    List<File> files = TremaFiles.resolve(ROOT, "texts/*.trm");
+
+    // then
+    assertThat(files, contains(a, b));
+  }
+
+  @Test
+  void shouldMergeFilesInOrder() throws Exception {
+    // given
+    File mobile = write("mobile.trm", "en", text("mobile.title"), text("mobile.back"));
+    File web = write("web.trm", "en", text("web.title"));
+
+    // when
+    XMLDatabase db = TremaFiles.parse(Arrays.asList(web, mobile));
+
+    // then
+    List<String> keys = new ArrayList<>();
+    for (ITextNode node : db.getTextNodes()) {
+      keys.add(node.getKey());
+    }
+    assertThat(keys, contains("web.title", "mobile.title", "mobile.back"));
+    assertThat(db.getMasterLanguage(), equalTo("en"));
+  }
+
+  @Test
+  void shouldReportDuplicateKeys() throws Exception {
+    // given
+    File mobile = write("mobile.trm", "en", text("shared.title"), text("mobile.back"));
+    File web = write("web.trm", "en", text("web.title"), text("shared.title"));
+
+    // when
+    ExportException ex = assertThrows(ExportException.class,
+        () -> TremaFiles.parse(Arrays.asList(mobile, web)));
+
+    // then
+    assertThat(ex.getMessage(),
+        equalTo("Duplicate keys in Trema files: shared.title in " + mobile + " and " + web));
+  }
+
+  @Test
+  void shouldReportDifferentMasterLanguages() throws Exception {
+    // given
+    File mobile = write("mobile.trm", "en", text("mobile.title"));
+    File web = write("web.trm", "de", text("web.title"));
+
+    // when
+    ExportException ex = assertThrows(ExportException.class,
+        () -> TremaFiles.parse(Arrays.asList(mobile, web)));
+
+    // then
+    assertThat(ex.getMessage(),
+        equalTo("Master language de of " + web + " differs from master language en of " + mobile));
+  }
+
+  @Test
+  void shouldParseProjectedLanguages() throws Exception {
+    // given
+    File file = write("texts.trm", "en", text("title", "de", "fr", "it"));
+
+    // when
+    CompactDatabase compactDb = TremaFiles.parse(Collections.singletonList(file),
+        new LanguageProjection(Collections.singleton("it")), null);
+
+    // then
+    XMLDatabase xmlDb = compactDb.toXMLDatabase(null);
+    assertThat(xmlDb.getTextNodes()[0].getValueNodes(), arrayWithSize(2));
+    assertThat(xmlDb.getTextNodes()[0].getValueNode("en").getValue(), equalTo("title (en)"));
+    assertThat(xmlDb.getTextNodes()[0].getValueNode("it").getValue(), equalTo("title (it)"));
+    assertThat(compactDb.getStatistics().getLanguages(), arrayContaining("en", "it"));
+  }
+
+  @Test
+  void shouldReportLineOfParseErrorInProjectedFile() throws Exception {
+    // given
+    File file = write("broken.trm", "en", text("title", "de"), "  <text key=\"broken\">\n");
+
+    // when
+    IOException ex = assertThrows(IOException.class,
+        () -> TremaFiles.parse(file, new LanguageProjection(Collections.singleton("fr"))));
+
+    // then
+    assertThat(ex.getMessage(), startsWith("Parse error in XML file " + file + " on line 9: "));
+  }
+
+  private static String text(String key, String... languages) {
+    StringBuilder text = new StringBuilder(text(key));
+    for (String language : languages) {
+      text.insert(text.indexOf("  </text>"), "    <value lang=\"" + language + "\" status=\"verified\">"
+          + key + " (" + language + ")</value>\n");
+    }
+    return text.toString();
+  }
+
+  private static String text(String key) {
+    return "  <text key=\"" + key + "\">\n"
+        + "    <context />\n"
+        + "    <value lang=\"en\" status=\"verified\">" + key + " (en)</value>\n"
+        + "  </text>\n";
+  }
+
+  private static File write(String name, String masterLanguage, String... texts) throws IOException {
+    StringBuilder trema = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<trema masterLang=\"" + masterLanguage + "\">\n");
+    for (String text : texts) {
+      trema.append(text);
+    }
+    trema.append("</trema>\n");
+    File file = new File(ROOT, name);
+    Files.createDirectories(file.getParentFile().toPath());
+    Files.write(file.toPath(), trema.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
@@ -0,0 +1,131 @@
+package com.netcetera.trema.maven;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Test for {@link TremaWatcher}.
+ */
+class TremaWatcherTest {
+
+  private static final long DEBOUNCE_MILLIS = 300;
+
+  private final File watchedFile = new File("target/trema-watcher/text.trm");
+  private final File otherFile = new File("target/trema-watcher/other.trm");
+  private final BlockingQueue<Set<File>> changes = new LinkedBlockingQueue<>();
+  private Thread thread;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    TestUtils.deleteRecursively(watchedFile.getParentFile());
+    Files.createDirectories(watchedFile.getParentFile().toPath());
+    write(watchedFile, "initial");
+    TremaWatcher watcher = new TremaWatcher(Collections.singleton(watchedFile), DEBOUNCE_MILLIS);
+    thread = new Thread(() -> {
+      try {
+        watcher.watch(changes::add);
+      } catch (Exception e) {
+        // interrupted at the end of the test
+      }
+    });
+    thread.start();
+    // the watcher registers asynchronously, write until it reports a change
+    Set<File> first = null;
+    for (int i = 0; i < 20 && first == null; i++) {
+      write(watchedFile, "warm up " + i);
+      first = changes.poll(3 * DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    assertThat(first, contains(watchedFile));
+    Thread.sleep(2 * DEBOUNCE_MILLIS);
+    changes.clear();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    thread.interrupt();
+    thread.join(10000);
+  }
+
+  @Test
+  void shouldReportBurstOfWritesOnce() throws Exception {
+    // when
+    for (int i = 0; i < 10; i++) {
+      write(watchedFile, "burst " + i);
+      Thread.sleep(DEBOUNCE_MILLIS / 10);
+    }
+
+    // then
+    assertThat(changes.poll(10, TimeUnit.SECONDS), contains(watchedFile));
+    assertThat(changes.poll(3 * DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS), nullValue());
+  }
+
+  @Test
+  void shouldReportFileReplacedByRename() throws Exception {
+    // given
+    Path temporary = Paths.get("target/trema-watcher/text.trm.tmp");
+
+    // when
+    Files.write(temporary, "replaced".getBytes(StandardCharsets.UTF_8));
+    Files.move(temporary, watchedFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+
+    // then
+    assertThat(changes.poll(10, TimeUnit.SECONDS), contains(watchedFile));
+    assertThat(changes.poll(3 * DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS), nullValue());
+  }
+
+  @Test
+  void shouldIgnoreOtherFilesOfDirectory() throws Exception {
+    // when
+    write(otherFile, "other");
+
+    // then
+    assertThat(changes.poll(3 * DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS), nullValue());
+  }
+
+  @Test
+  void shouldReportAllFilesOfDirectoryOnOverflow() {
+    // given
+    TremaWatcher watcher = new TremaWatcher(Arrays.asList(watchedFile, otherFile), DEBOUNCE_MILLIS);
+    WatchEvent<?> overflow = Mockito.mock(WatchEvent.class);
+    Mockito.doReturn(StandardWatchEventKinds.OVERFLOW).when(overflow).kind();
+    WatchKey key = Mockito.mock(WatchKey.class);
+    Mockito.doReturn(watchedFile.toPath().toAbsolutePath().getParent()).when(key).watchable();
+    Mockito.doReturn(Collections.singletonList(overflow)).when(key).pollEvents();
+    Set<File> changedFiles = new LinkedHashSet<>();
+
+    // when
+    watcher.collectChanges(key, changedFiles);
+
+    // then
+    assertThat(changedFiles, contains(watchedFile, otherFile));
+    Mockito.verify(key).reset();
+  }
+
+  private static void write(File file, String content) throws Exception {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,188 @@
+package com.netcetera.trema.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Properties;
+
+import static com.netcetera.trema.maven.ExportMojoTestUtils.TREMA_FILE;
+import static com.netcetera.trema.maven.TestUtils.isExistingFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link WatchMojo}.
+ */
+class WatchMojoTest {
+
+  private static final String WATCHED_FILE = "target/watch/text.trm";
+
+  private WatchMojo mojo;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    Files.createDirectories(Paths.get("target/watch"));
+    Files.copy(Paths.get(TREMA_FILE), Paths.get(WATCHED_FILE), StandardCopyOption.REPLACE_EXISTING);
+    mojo = new WatchMojo();
+    mojo.setTremaFile(WATCHED_FILE);
+    mojo.setBasename("target/watch/text");
+    mojo.setFormats(new String[]{"properties", "binary"});
+  }
+
+  @Test
+  void shouldExportOnlyChangedLanguages() throws Exception {
+    // given
+    mojo.start();
+    assertThat(new File("target/watch/text_en.properties"), isExistingFile());
+    Files.delete(Paths.get("target/watch/text_de.properties"));
+    Files.delete(Paths.get("target/watch/text_en.properties"));
+    String trema = new String(Files.readAllBytes(Paths.get(WATCHED_FILE)), StandardCharsets.ISO_8859_1);
+    Files.write(Paths.get(WATCHED_FILE),
+        trema.replace("Test (de)", "Test (de) changed").getBytes(StandardCharsets.ISO_8859_1));
+
+    // when
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+
+    // then
+    assertThat(load("target/watch/text_de.properties").getProperty("test.simple"), equalTo("Test (de) changed"));
+    assertThat(new File("target/watch/text_en.properties"), not(isExistingFile()));
+  }
+
+  @Test
+  void shouldExportDefaultFileAfterChangeOfDefaultLanguage() throws Exception {
+    // given
+    mojo.setLanguages(new String[]{"de"});
+    mojo.setDefaultlanguage("en");
+    mojo.start();
+    Files.delete(Paths.get("target/watch/text_de.properties"));
+    String trema = new String(Files.readAllBytes(Paths.get(WATCHED_FILE)), StandardCharsets.ISO_8859_1);
+    Files.write(Paths.get(WATCHED_FILE),
+        trema.replace("Test (en)", "Test (en) changed").getBytes(StandardCharsets.ISO_8859_1));
+
+    // when
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+
+    // then
+    assertThat(load("target/watch/text.properties").getProperty("test.simple"), equalTo("Test (en) changed"));
+    assertThat(new File("target/watch/text_de.properties"), not(isExistingFile()));
+    assertThat(new File("target/watch/text_en.properties"), not(isExistingFile()));
+  }
+
+  @Test
+  void shouldKeepValuesOfDefaultLanguageAfterChangeOfOtherLanguage() throws Exception {
+    // given
+    mojo.setDefaultlanguage("en");
+    mojo.start();
+    String trema = new String(Files.readAllBytes(Paths.get(WATCHED_FILE)), StandardCharsets.ISO_8859_1);
+    Files.write(Paths.get(WATCHED_FILE),
+        trema.replace("Test (de)", "Test (de) changed").getBytes(StandardCharsets.ISO_8859_1));
+
+    // when
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+
+    // then
+    assertThat(load("target/watch/text_de.properties").getProperty("test.simple"), equalTo("Test (de) changed"));
+    assertThat(load("target/watch/text.properties").getProperty("test.simple"), equalTo("Test (en)"));
+  }
+
+  @Test
+  void shouldKeepAllLanguagesInKeyHashManifest() throws Exception {
+    // given
+    mojo.setKeyHashManifest(true);
+    mojo.start();
+    String trema = new String(Files.readAllBytes(Paths.get(WATCHED_FILE)), StandardCharsets.ISO_8859_1);
+    Files.write(Paths.get(WATCHED_FILE),
+        trema.replace("Test (de)", "Test (de) changed").getBytes(StandardCharsets.ISO_8859_1));
+
+    // when
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+
+    // then
+    String manifest = new String(Files.readAllBytes(Paths.get("target/watch/text.keys.json")), StandardCharsets.UTF_8);
+    assertThat(manifest, containsString("\"test.simple\" : \"" + hash("Test (de) changed") + "\""));
+    assertThat(manifest, containsString("\"test.simple\" : \"" + hash("Test (en)") + "\""));
+  }
+
+  @Test
+  void shouldExportChangedTextsWithMappedValues() throws Exception {
+    // given
+    mojo.setValueStorage("mapped");
+    mojo.setValueStorageDirectory("target/watch/values");
+    mojo.start();
+    String trema = new String(Files.readAllBytes(Paths.get(WATCHED_FILE)), StandardCharsets.ISO_8859_1);
+    Files.write(Paths.get(WATCHED_FILE),
+        trema.replace("Test (de)", "Test (de) changed").getBytes(StandardCharsets.ISO_8859_1));
+
+    // when
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+
+    // then
+    assertThat(load("target/watch/text_de.properties").getProperty("test.simple"), equalTo("Test (de) changed"));
+    assertThat(load("target/watch/text_en.properties").getProperty("test.simple"), equalTo("Test (en)"));
+  }
+
+  @Test
+  void shouldThrowForInvalidValueStorage() {
+    // given
+    mojo.setValueStorage("disk");
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::start);
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Invalid configuration: Invalid valueStorage: disk (expected heap or mapped)"));
+  }
+
+  @Test
+  void shouldKeepWatchingAfterParseError() throws Exception {
+    // given
+    mojo.start();
+    Files.write(Paths.get(WATCHED_FILE), "<trema".getBytes(StandardCharsets.ISO_8859_1));
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+    Files.copy(Paths.get(TREMA_FILE), Paths.get(WATCHED_FILE), StandardCopyOption.REPLACE_EXISTING);
+    Files.delete(Paths.get("target/watch/text_de.properties"));
+
+    // when
+    mojo.filesChanged(Collections.singleton(new File(WATCHED_FILE)));
+
+    // then
+    assertThat(new File("target/watch/text_de.properties"), not(isExistingFile()));
+    assertThat(load("target/watch/text_en.properties").getProperty("test.simple"), equalTo("Test (en)"));
+  }
+
+  @Test
+  void shouldThrowForInvalidFormat() {
+    // given
+    mojo.setFormats(new String[]{"android"});
+
+    // when
+    MojoExecutionException ex = assertThrows(MojoExecutionException.class, mojo::start);
+
+    // then
+    assertThat(ex.getMessage(), equalTo("Invalid format: android (expected json, properties or binary)"));
+  }
+
+  private static Properties load(String fileName) throws Exception {
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(fileName)) {
+      properties.load(in);
+    }
+    return properties;
+  }
+
+  private static String hash(String value) {
+    return Digests.sha256Hex(value.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+  }
+}
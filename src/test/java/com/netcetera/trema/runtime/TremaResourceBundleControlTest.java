@@ -0,0 +1,105 @@
+package com.netcetera.trema.runtime;
+
+import com.netcetera.trema.maven.ExportBinaryMojo;
+import com.netcetera.trema.maven.ExportJsonMojo;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Test for {@link TremaResourceBundleControl} with files exported by the plugin.
+ */
+class TremaResourceBundleControlTest {
+
+  private static final String TREMA_FILE = "src/test/resources/text.trm";
+  private static final File ROOT = new File("target/classes/control");
+
+  @Test
+  void shouldLoadJsonExport() throws Exception {
+    // given
+    exportJson("json/text", false);
+
+    // when / then
+    assertBundle("json/text", Collections.singletonList(TremaResourceBundleControl.FORMAT_JSON));
+  }
+
+  @Test
+  void shouldLoadNestedJsonExport() throws Exception {
+    // given
+    exportJson("nested/text", true);
+
+    // when / then
+    assertBundle("nested/text", Collections.singletonList(TremaResourceBundleControl.FORMAT_JSON));
+  }
+
+  @Test
+  void shouldLoadBinaryExport() throws Exception {
+    // given
+    final ExportBinaryMojo mojo = new ExportBinaryMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(ROOT + "/binary/text");
+    mojo.setLanguages(new String[]{"de"});
+    mojo.setDefaultlanguage("en");
+    mojo.execute();
+
+    // when / then
+    assertBundle("binary/text", TremaResourceBundleControl.FORMAT_DEFAULT);
+  }
+
+  @Test
+  void shouldShareCatalogsBetweenClassLoaders() throws Exception {
+    // given
+    exportJson("shared/text", false);
+    TremaResourceBundleControl control = new TremaResourceBundleControl();
+
+    // when
+    ResourceBundle first;
+    ResourceBundle second;
+    try (URLClassLoader loader1 = newLoader(); URLClassLoader loader2 = newLoader()) {
+      first = ResourceBundle.getBundle("shared/text", Locale.GERMAN, loader1, control);
+      second = ResourceBundle.getBundle("shared/text", Locale.GERMAN, loader2, control);
+    }
+
+    // then
+    assertThat(second.getString("test.umlaute"), sameInstance(first.getString("test.umlaute")));
+  }
+
+  private static void exportJson(String basename, boolean nested) throws Exception {
+    final ExportJsonMojo mojo = new ExportJsonMojo();
+    mojo.setTremaFile(TREMA_FILE);
+    mojo.setBasename(ROOT + "/" + basename);
+    mojo.setLanguages(new String[]{"de"});
+    mojo.setDefaultlanguage("en");
+    mojo.setNested(nested);
+    mojo.execute();
+  }
+
+  private static void assertBundle(String baseName, List<String> formats) throws Exception {
+    try (URLClassLoader loader = newLoader()) {
+      ResourceBundle bundle = ResourceBundle.getBundle(baseName, new Locale("de", "CH"), loader,
+          new TremaResourceBundleControl(formats));
+      assertThat(bundle.getString("test.simple"), equalTo("Test (de)"));
+      assertThat(bundle.getString("test.umlaute"), equalTo("ÄöÜ[@"));
+      assertThat(Collections.list(bundle.getKeys()), containsInAnyOrder("test.simple", "test.umlaute"));
+
+      ResourceBundle root = ResourceBundle.getBundle(baseName, Locale.ROOT, loader,
+          new TremaResourceBundleControl(formats));
+      assertThat(root.getString("test.simple"), equalTo("Test (en)"));
+    }
+  }
+
+  private static URLClassLoader newLoader() throws Exception {
+    return new URLClassLoader(new URL[]{ROOT.toURI().toURL()}, null);
+  }
+}
@@ -0,0 +1,274 @@
+package com.netcetera.trema.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Reader of the binary message catalogs written by the exportBinary goal.
+ * The catalog is used in place: a mapped file stays in the page cache shared
+ * by all processes reading it, and looking up a key neither allocates nor
+ * decodes anything but the returned value.
+ *
+ * <p>Layout, all ints big endian:
+ *
+ * <pre>
+ * header   magic, version, entry count, bloom filter words, bloom filter hashes, payload length
+ * bloom    long[bloom filter words]
+ * entries  per entry: key offset, key length, value offset, value length (in bytes, relative to payload)
+ * payload  UTF-8 encoded keys and values
+ * </pre>
+ *
+ * The entries are sorted by the code points of the keys, which is the byte
+ * order of the UTF-8 encoded keys. Instances are immutable and thread safe.
+ */
+public final class BinaryCatalog implements Catalog {
+
+  static final int MAGIC = 0x54524d43;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 24;
+  static final int ENTRY_SIZE = 16;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int bloomBits;
+  private final int bloomHashes;
+  private final int entriesStart;
+  private final int payloadStart;
+
+
+  /**
+   * Creates a reader for a catalog in a buffer. The content of the buffer
+   * between its position and limit must not be modified afterwards.
+   *
+   * @param buffer the buffer holding the catalog
+   * @throws IOException if the buffer does not hold a valid catalog
+   */
+  public BinaryCatalog(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.slice();
+    if (this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a trema binary catalog");
+    }
+    if (this.buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported trema binary catalog version " + this.buffer.getInt(4));
+    }
+    size = this.buffer.getInt(8);
+    int bloomWords = this.buffer.getInt(12);
+    bloomHashes = this.buffer.getInt(16);
+    int payloadLength = this.buffer.getInt(20);
+    bloomBits = bloomWords * 64;
+    entriesStart = HEADER_SIZE + bloomWords * 8;
+    payloadStart = entriesStart + size * ENTRY_SIZE;
+    if (size < 0 || bloomWords <= 0 || payloadStart < entriesStart
+        || (long) payloadStart + payloadLength != this.buffer.limit()) {
+      throw new IOException("Corrupt trema binary catalog");
+    }
+  }
+
+  /**
+   * Maps a catalog file read-only into memory.
+   *
+   * @param file the catalog file
+   * @return the catalog
+   * @throws IOException if the file could not be mapped or is not a catalog
+   */
+  public static BinaryCatalog map(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      return new BinaryCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } finally {
+      // the mapping stays valid after closing the channel
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the number of entries
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Looks up the index of a key.
+   *
+   * @param key the key
+   * @return the index or -1 if the catalog does not contain the key
+   */
+  @Override
+  public int indexOf(String key) {
+    if (!mightContain(key)) {
+      return -1;
+    }
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int entry = entriesStart + middle * ENTRY_SIZE;
+      int cmp = compare(key, payloadStart + buffer.getInt(entry), buffer.getInt(entry + 4));
+      if (cmp > 0) {
+        low = middle + 1;
+      } else if (cmp < 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks whether the catalog contains a key.
+   *
+   * @param key the key
+   * @return <code>true</code> if the catalog contains the key
+   */
+  public boolean containsKey(String key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key the key
+   * @return the value or <code>null</code> if the catalog does not contain the key
+   */
+  public String get(String key) {
+    int index = indexOf(key);
+    return index < 0 ? null : getValue(index);
+  }
+
+  /**
+   * Gets the key of an entry.
+   *
+   * @param index the index of the entry, 0 to size - 1
+   * @return the key
+   */
+  @Override
+  public String getKey(int index) {
+    int entry = entriesStart + checkIndex(index) * ENTRY_SIZE;
+    return decode(payloadStart + buffer.getInt(entry), buffer.getInt(entry + 4));
+  }
+
+  /**
+   * Gets the value of an entry.
+   *
+   * @param index the index of the entry, 0 to size - 1
+   * @return the value
+   */
+  @Override
+  public String getValue(int index) {
+    int entry = entriesStart + checkIndex(index) * ENTRY_SIZE;
+    return decode(payloadStart + buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+    return index;
+  }
+
+  private boolean mightContain(String key) {
+    int h1 = hash(key);
+    int h2 = secondHash(h1);
+    for (int i = 0; i < bloomHashes; i++) {
+      int bit = ((h1 + i * h2) & 0x7fffffff) % bloomBits;
+      if ((buffer.getLong(HEADER_SIZE + (bit >>> 6) * 8) & (1L << (bit & 63))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compares a key with the UTF-8 encoded key of an entry by code points.
+   */
+  private int compare(String key, int offset, int length) {
+    int i = 0;
+    int position = offset;
+    int end = offset + length;
+    while (i < key.length() && position < end) {
+      int codePoint = key.codePointAt(i);
+      i += Character.charCount(codePoint);
+      int b = buffer.get(position) & 0xff;
+      int stored;
+      if (b < 0x80) {
+        stored = b;
+        position++;
+      } else if (b < 0xe0) {
+        stored = (b & 0x1f) << 6 | buffer.get(position + 1) & 0x3f;
+        position += 2;
+      } else if (b < 0xf0) {
+        stored = (b & 0x0f) << 12 | (buffer.get(position + 1) & 0x3f) << 6 | buffer.get(position + 2) & 0x3f;
+        position += 3;
+      } else {
+        stored = (b & 0x07) << 18 | (buffer.get(position + 1) & 0x3f) << 12
+            | (buffer.get(position + 2) & 0x3f) << 6 | buffer.get(position + 3) & 0x3f;
+        position += 4;
+      }
+      if (codePoint != stored) {
+        return codePoint - stored;
+      }
+    }
+    if (i < key.length()) {
+      return 1;
+    }
+    return position < end ? -1 : 0;
+  }
+
+  private String decode(int offset, int length) {
+    char[] chars = new char[length];
+    int count = 0;
+    int position = offset;
+    int end = offset + length;
+    while (position < end) {
+      int b = buffer.get(position) & 0xff;
+      if (b < 0x80) {
+        chars[count++] = (char) b;
+        position++;
+      } else if (b < 0xe0) {
+        chars[count++] = (char) ((b & 0x1f) << 6 | buffer.get(position + 1) & 0x3f);
+        position += 2;
+      } else if (b < 0xf0) {
+        chars[count++] = (char) ((b & 0x0f) << 12 | (buffer.get(position + 1) & 0x3f) << 6
+            | buffer.get(position + 2) & 0x3f);
+        position += 3;
+      } else {
+        int codePoint = (b & 0x07) << 18 | (buffer.get(position + 1) & 0x3f) << 12
+            | (buffer.get(position + 2) & 0x3f) << 6 | buffer.get(position + 3) & 0x3f;
+        count += Character.toChars(codePoint, chars, count);
+        position += 4;
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  /**
+   * First hash of the bloom filter, 32 bit FNV-1a over the UTF-16 chars.
+   */
+  static int hash(String key) {
+    int h = 0x811c9dc5;
+    for (int i = 0; i < key.length(); i++) {
+      h ^= key.charAt(i);
+      h *= 0x01000193;
+    }
+    return h;
+  }
+
+  /**
+   * Second hash of the bloom filter, derived from the first one.
+   */
+  static int secondHash(int hash) {
+    int h = hash * 0x85ebca6b;
+    h ^= h >>> 13;
+    return h | 1;
+  }
+}
@@ -0,0 +1,143 @@
+package com.netcetera.trema.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Writes binary message catalogs in the format read by {@link BinaryCatalog}.
+ * Equal values are stored only once.
+ */
+public final class BinaryCatalogWriter {
+
+  /** Orders strings by code points, the order of their UTF-8 encoding. */
+  static final Comparator<String> CODE_POINT_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String a, String b) {
+      int i = 0;
+      int j = 0;
+      while (i < a.length() && j < b.length()) {
+        int ca = a.codePointAt(i);
+        int cb = b.codePointAt(j);
+        if (ca != cb) {
+          return ca - cb;
+        }
+        i += Character.charCount(ca);
+        j += Character.charCount(cb);
+      }
+      return (a.length() - i) - (b.length() - j);
+    }
+  };
+
+  /** Bloom filter bits per entry, about 1% false positives with 7 hashes. */
+  private static final int BLOOM_BITS_PER_ENTRY = 10;
+  private static final int BLOOM_HASHES = 7;
+
+  private final Map<String, String> entries = new TreeMap<String, String>(CODE_POINT_ORDER);
+
+
+  /**
+   * Adds an entry, replacing an earlier entry with the same key.
+   *
+   * @param key the key
+   * @param value the value
+   */
+  public void put(String key, String value) {
+    if (key == null || value == null) {
+      throw new IllegalArgumentException("Key and value must not be null");
+    }
+    entries.put(key, value);
+  }
+
+  /**
+   * Writes the catalog of all added entries.
+   *
+   * @param outputStream the stream to write to, is not closed
+   * @throws IOException if writing fails
+   */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    int size = entries.size();
+    int bloomWords = Math.max(1, (size * BLOOM_BITS_PER_ENTRY + 63) / 64);
+    long[] bloom = new long[bloomWords];
+    int[] table = new int[size * 4];
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    Map<String, int[]> valueLocations = new HashMap<String, int[]>();
+    int index = 0;
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      int[] keyLocation = append(payload, entry.getKey());
+      int[] valueLocation = valueLocations.get(entry.getValue());
+      if (valueLocation == null) {
+        valueLocation = append(payload, entry.getValue());
+        valueLocations.put(entry.getValue(), valueLocation);
+      }
+      table[index * 4] = keyLocation[0];
+      table[index * 4 + 1] = keyLocation[1];
+      table[index * 4 + 2] = valueLocation[0];
+      table[index * 4 + 3] = valueLocation[1];
+      addToBloom(bloom, entry.getKey());
+      index++;
+    }
+
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(BinaryCatalog.MAGIC);
+    out.writeInt(BinaryCatalog.VERSION);
+    out.writeInt(size);
+    out.writeInt(bloomWords);
+    out.writeInt(BLOOM_HASHES);
+    out.writeInt(payload.size());
+    for (long word : bloom) {
+      out.writeLong(word);
+    }
+    for (int value : table) {
+      out.writeInt(value);
+    }
+    payload.writeTo(out);
+    out.flush();
+  }
+
+  private static void addToBloom(long[] bloom, String key) {
+    int bits = bloom.length * 64;
+    int h1 = BinaryCatalog.hash(key);
+    int h2 = BinaryCatalog.secondHash(h1);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = ((h1 + i * h2) & 0x7fffffff) % bits;
+      bloom[bit >>> 6] |= 1L << (bit & 63);
+    }
+  }
+
+  /**
+   * Appends the UTF-8 encoding of a string. Unpaired surrogates are encoded
+   * like any other char so that every string survives the round trip.
+   *
+   * @return offset and length of the encoded string
+   */
+  private static int[] append(ByteArrayOutputStream payload, String text) {
+    int offset = payload.size();
+    for (int i = 0; i < text.length();) {
+      int c = text.codePointAt(i);
+      i += Character.charCount(c);
+      if (c < 0x80) {
+        payload.write(c);
+      } else if (c < 0x800) {
+        payload.write(0xc0 | c >> 6);
+        payload.write(0x80 | c & 0x3f);
+      } else if (c < 0x10000) {
+        payload.write(0xe0 | c >> 12);
+        payload.write(0x80 | c >> 6 & 0x3f);
+        payload.write(0x80 | c & 0x3f);
+      } else {
+        payload.write(0xf0 | c >> 18);
+        payload.write(0x80 | c >> 12 & 0x3f);
+        payload.write(0x80 | c >> 6 & 0x3f);
+        payload.write(0x80 | c & 0x3f);
+      }
+    }
+    return new int[] {offset, payload.size() - offset};
+  }
+}
@@ -0,0 +1,39 @@
+package com.netcetera.trema.runtime;
+
+
+/**
+ * Read access to the entries of an exported message catalog by index.
+ */
+interface Catalog {
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the number of entries
+   */
+  int size();
+
+  /**
+   * Looks up the index of a key.
+   *
+   * @param key the key
+   * @return the index or -1 if the catalog does not contain the key
+   */
+  int indexOf(String key);
+
+  /**
+   * Gets the key of an entry.
+   *
+   * @param index the index of the entry, 0 to size - 1
+   * @return the key
+   */
+  String getKey(int index);
+
+  /**
+   * Gets the value of an entry.
+   *
+   * @param index the index of the entry, 0 to size - 1
+   * @return the value
+   */
+  String getValue(int index);
+}
@@ -0,0 +1,53 @@
+package com.netcetera.trema.runtime;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+
+/**
+ * Resource bundle backed by an exported message catalog.
+ */
+final class CatalogResourceBundle extends ResourceBundle {
+
+  private final Catalog catalog;
+
+
+  /**
+   * Constructor.
+   *
+   * @param catalog the catalog holding the texts
+   */
+  CatalogResourceBundle(Catalog catalog) {
+    this.catalog = catalog;
+  }
+
+  @Override
+  protected Object handleGetObject(String key) {
+    if (key == null) {
+      throw new NullPointerException();
+    }
+    int index = catalog.indexOf(key);
+    return index < 0 ? null : catalog.getValue(index);
+  }
+
+  @Override
+  protected Set<String> handleKeySet() {
+    Set<String> keys = new LinkedHashSet<String>(catalog.size() * 4 / 3 + 1);
+    for (int i = 0; i < catalog.size(); i++) {
+      keys.add(catalog.getKey(i));
+    }
+    return keys;
+  }
+
+  @Override
+  public Enumeration<String> getKeys() {
+    Set<String> keys = handleKeySet();
+    if (parent != null) {
+      keys.addAll(Collections.list(parent.getKeys()));
+    }
+    return Collections.enumeration(keys);
+  }
+}
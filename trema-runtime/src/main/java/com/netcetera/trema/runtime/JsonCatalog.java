@@ -0,0 +1,250 @@
+package com.netcetera.trema.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Message catalog read from a JSON export, flat or nested. Parsing only
+ * records where each value is located in the JSON text, a value is unescaped
+ * the first time it is requested. Members of nested objects get the names of
+ * the enclosing objects joined with '.' as key.
+ */
+final class JsonCatalog implements Catalog {
+
+  private final String source;
+  private final String[] keys;
+  private final int[] valueStarts;
+  private final int[] valueEnds;
+  private final String[] values;
+  private final Map<String, Integer> indexes;
+
+
+  private JsonCatalog(String source, List<String> keys, List<int[]> valueSpans) {
+    this.source = source;
+    this.keys = keys.toArray(new String[keys.size()]);
+    valueStarts = new int[keys.size()];
+    valueEnds = new int[keys.size()];
+    values = new String[keys.size()];
+    indexes = new HashMap<String, Integer>(keys.size() * 4 / 3 + 1);
+    for (int i = 0; i < this.keys.length; i++) {
+      valueStarts[i] = valueSpans.get(i)[0];
+      valueEnds[i] = valueSpans.get(i)[1];
+      indexes.put(this.keys[i], i);
+    }
+  }
+
+  /**
+   * Parses a JSON object with string values or nested objects.
+   *
+   * @param source the JSON text
+   * @return the catalog
+   * @throws IOException if the text is not such a JSON object
+   */
+  static JsonCatalog parse(String source) throws IOException {
+    Parser parser = new Parser(source);
+    parser.parse();
+    return new JsonCatalog(source, parser.keys, parser.valueSpans);
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public int indexOf(String key) {
+    Integer index = indexes.get(key);
+    return index == null ? -1 : index;
+  }
+
+  @Override
+  public String getKey(int index) {
+    return keys[index];
+  }
+
+  @Override
+  public String getValue(int index) {
+    // racy but safe: strings are immutable and decoding is idempotent
+    String value = values[index];
+    if (value == null) {
+      value = unescape(source, valueStarts[index], valueEnds[index]);
+      values[index] = value;
+    }
+    return value;
+  }
+
+  private static String unescape(String source, int start, int end) {
+    int backslash = source.indexOf('\\', start);
+    if (backslash < 0 || backslash >= end) {
+      return source.substring(start, end);
+    }
+    StringBuilder value = new StringBuilder(end - start);
+    value.append(source, start, backslash);
+    for (int i = backslash; i < end; i++) {
+      char c = source.charAt(i);
+      if (c != '\\') {
+        value.append(c);
+        continue;
+      }
+      c = source.charAt(++i);
+      switch (c) {
+        case 'b':
+          value.append('\b');
+          break;
+        case 'f':
+          value.append('\f');
+          break;
+        case 'n':
+          value.append('\n');
+          break;
+        case 'r':
+          value.append('\r');
+          break;
+        case 't':
+          value.append('\t');
+          break;
+        case 'u':
+          value.append((char) Integer.parseInt(source.substring(i + 1, i + 5), 16));
+          i += 4;
+          break;
+        default:
+          value.append(c);
+      }
+    }
+    return value.toString();
+  }
+
+  /**
+   * Scans the JSON text for the keys and value locations.
+   */
+  private static final class Parser {
+
+    private final String source;
+    private final List<String> keys = new ArrayList<String>();
+    private final List<int[]> valueSpans = new ArrayList<int[]>();
+    private int position;
+
+    Parser(String source) {
+      this.source = source;
+    }
+
+    void parse() throws IOException {
+      if (source.startsWith("\ufeff")) {
+        position = 1;
+      }
+      skipWhitespace();
+      parseObject("");
+      skipWhitespace();
+      if (position < source.length()) {
+        throw error("Unexpected content");
+      }
+    }
+
+    private void parseObject(String prefix) throws IOException {
+      expect('{');
+      skipWhitespace();
+      if (peek() == '}') {
+        position++;
+        return;
+      }
+      while (true) {
+        skipWhitespace();
+        int nameStart = position + 1;
+        int nameEnd = skipString();
+        String name = unescape(source, nameStart, nameEnd);
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+        char c = peek();
+        if (c == '"') {
+          int valueStart = position + 1;
+          int valueEnd = skipString();
+          keys.add(prefix + name);
+          valueSpans.add(new int[] {valueStart, valueEnd});
+        } else if (c == '{') {
+          parseObject(prefix + name + ".");
+        } else {
+          throw error("Expected string or object");
+        }
+        skipWhitespace();
+        char next = peek();
+        position++;
+        if (next == '}') {
+          return;
+        }
+        if (next != ',') {
+          position--;
+          throw error("Expected ',' or '}'");
+        }
+      }
+    }
+
+    /**
+     * Skips a string starting at the current position.
+     *
+     * @return the position of the closing quote
+     */
+    private int skipString() throws IOException {
+      expect('"');
+      while (position < source.length()) {
+        char c = source.charAt(position);
+        if (c == '"') {
+          position++;
+          return position - 1;
+        }
+        if (c == '\\') {
+          if (position + 1 < source.length() && source.charAt(position + 1) == 'u') {
+            if (position + 6 > source.length()) {
+              break;
+            }
+            checkHex(position + 2, position + 6);
+            position += 6;
+          } else {
+            position += 2;
+          }
+        } else {
+          position++;
+        }
+      }
+      throw error("Unterminated string");
+    }
+
+    private void checkHex(int start, int end) throws IOException {
+      for (int i = start; i < end; i++) {
+        if (Character.digit(source.charAt(i), 16) < 0) {
+          position = i;
+          throw error("Invalid unicode escape");
+        }
+      }
+    }
+
+    private void expect(char c) throws IOException {
+      if (peek() != c) {
+        throw error("Expected '" + c + "'");
+      }
+      position++;
+    }
+
+    private char peek() {
+      return position < source.length() ? source.charAt(position) : '\0';
+    }
+
+    private void skipWhitespace() {
+      while (position < source.length()) {
+        char c = source.charAt(position);
+        if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+          return;
+        }
+        position++;
+      }
+    }
+
+    private IOException error(String message) {
+      return new IOException(message + " at offset " + position + " of JSON catalog");
+    }
+  }
+}
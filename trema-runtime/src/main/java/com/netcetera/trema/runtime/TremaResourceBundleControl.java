@@ -0,0 +1,178 @@
+package com.netcetera.trema.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Loads resource bundles directly from the binary catalogs and JSON files
+ * written by the exportBinary and exportJson goals, without converting them
+ * to properties:
+ *
+ * <pre>
+ * ResourceBundle bundle = ResourceBundle.getBundle("texts/text", locale, new TremaResourceBundleControl());
+ * </pre>
+ *
+ * looks up texts/text_de.bin and then texts/text_de.json on the class path,
+ * falling back to the less specific locales and texts/text.bin or
+ * texts/text.json like for properties files. Binary catalogs in the file
+ * system are memory mapped, JSON values are unescaped on first access.
+ *
+ * <p>The loaded catalogs are cached by bundle name (base name and locale),
+ * format and location, shared by all class loaders and controls, so a
+ * catalog used by several applications in one JVM is held once. The cache
+ * only refers to them weakly: how long a catalog and its mapped file are
+ * kept is up to the cache of ResourceBundle, which holds the bundles.
+ * Applications in named modules on Java 9 and later can implement
+ * <code>java.util.spi.ResourceBundleProvider</code> by calling
+ * {@link #newBundle(String, Locale, String, ClassLoader, boolean)} for each
+ * candidate locale.
+ */
+public class TremaResourceBundleControl extends ResourceBundle.Control {
+
+  /** Format of the binary catalogs written by the exportBinary goal. */
+  public static final String FORMAT_BINARY = "trema.binary";
+
+  /** Format of the JSON files written by the exportJson goal. */
+  public static final String FORMAT_JSON = "trema.json";
+
+  /** Binary catalogs first, then JSON files. */
+  public static final List<String> FORMAT_DEFAULT =
+      Collections.unmodifiableList(Arrays.asList(FORMAT_BINARY, FORMAT_JSON));
+
+  private static final ConcurrentMap<String, CatalogReference> CACHE =
+      new ConcurrentHashMap<String, CatalogReference>();
+  private static final ReferenceQueue<Catalog> RELEASED = new ReferenceQueue<Catalog>();
+
+  private final List<String> formats;
+
+
+  /**
+   * Creates a control loading binary catalogs and JSON files.
+   */
+  public TremaResourceBundleControl() {
+    this(FORMAT_DEFAULT);
+  }
+
+  /**
+   * Creates a control loading the given formats.
+   *
+   * @param formats {@link #FORMAT_BINARY} and/or {@link #FORMAT_JSON}, in lookup order
+   */
+  public TremaResourceBundleControl(List<String> formats) {
+    for (String format : formats) {
+      if (!FORMAT_BINARY.equals(format) && !FORMAT_JSON.equals(format)) {
+        throw new IllegalArgumentException("Unsupported format: " + format);
+      }
+    }
+    this.formats = Collections.unmodifiableList(formats);
+  }
+
+  /**
+   * Removes all catalogs from the shared cache. Bundles already loaded keep
+   * their catalogs.
+   */
+  public static void clearCache() {
+    CACHE.clear();
+  }
+
+  @Override
+  public List<String> getFormats(String baseName) {
+    if (baseName == null) {
+      throw new NullPointerException();
+    }
+    return formats;
+  }
+
+  @Override
+  public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader,
+      boolean reload) throws IOException {
+    boolean binary = FORMAT_BINARY.equals(format);
+    if (!binary && !FORMAT_JSON.equals(format)) {
+      return null;
+    }
+    String bundleName = toBundleName(baseName, locale);
+    URL url = loader.getResource(toResourceName(bundleName, binary ? "bin" : "json"));
+    if (url == null) {
+      return null;
+    }
+    removeReleased();
+    String cacheKey = bundleName + '|' + format + '|' + url.toExternalForm();
+    CatalogReference reference = reload ? null : CACHE.get(cacheKey);
+    Catalog catalog = reference == null ? null : reference.get();
+    if (catalog == null) {
+      catalog = binary ? loadBinary(url, reload) : JsonCatalog.parse(
+          new String(read(url, reload), StandardCharsets.UTF_8));
+      CACHE.put(cacheKey, new CatalogReference(cacheKey, catalog));
+    }
+    return new CatalogResourceBundle(catalog);
+  }
+
+  /**
+   * Removes the entries of the catalogs no longer used by any bundle.
+   */
+  private static void removeReleased() {
+    for (Reference<? extends Catalog> released = RELEASED.poll(); released != null; released = RELEASED.poll()) {
+      CACHE.remove(((CatalogReference) released).cacheKey, released);
+    }
+  }
+
+  private static Catalog loadBinary(URL url, boolean reload) throws IOException {
+    if ("file".equals(url.getProtocol())) {
+      try {
+        return BinaryCatalog.map(new File(url.toURI()));
+      } catch (URISyntaxException e) {
+        // fall back to reading the content
+      }
+    }
+    return new BinaryCatalog(ByteBuffer.wrap(read(url, reload)));
+  }
+
+  private static byte[] read(URL url, boolean reload) throws IOException {
+    URLConnection connection = url.openConnection();
+    if (reload) {
+      connection.setUseCaches(false);
+    }
+    InputStream inputStream = connection.getInputStream();
+    try {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int count = inputStream.read(buffer); count >= 0; count = inputStream.read(buffer)) {
+        content.write(buffer, 0, count);
+      }
+      return content.toByteArray();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * Weak reference to a cached catalog, knowing its cache entry.
+   */
+  private static final class CatalogReference extends WeakReference<Catalog> {
+
+    private final String cacheKey;
+
+    CatalogReference(String cacheKey, Catalog catalog) {
+      super(catalog, RELEASED);
+      this.cacheKey = cacheKey;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.netcetera.trema.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test for {@link BinaryCatalog} and {@link BinaryCatalogWriter}.
+ */
+class BinaryCatalogTest {
+
+  @Test
+  void shouldFindAllKeysInCodePointOrder() throws Exception {
+    // given
+    BinaryCatalogWriter writer = new BinaryCatalogWriter();
+    for (int i = 0; i < 1000; i++) {
+      writer.put("key." + i, "value " + (i % 10));
+    }
+    writer.put("\ud83d\ude00.emoji", "\ud83d\ude00");
+    writer.put("\uffee.halfwidth", "ä€");
+    writer.put("lone.\ud800", "surrogate \udc00");
+
+    // when
+    BinaryCatalog catalog = read(writer);
+
+    // then
+    assertThat(catalog.size(), equalTo(1003));
+    for (int i = 0; i < 1000; i++) {
+      assertThat(catalog.get("key." + i), equalTo("value " + (i % 10)));
+    }
+    assertThat(catalog.get("\ud83d\ude00.emoji"), equalTo("\ud83d\ude00"));
+    assertThat(catalog.get("\uffee.halfwidth"), equalTo("ä€"));
+    assertThat(catalog.get("lone.\ud800"), equalTo("surrogate \udc00"));
+    assertThat(catalog.getKey(catalog.size() - 1), equalTo("\ud83d\ude00.emoji"));
+    assertThat(catalog.get("key.1000"), nullValue());
+    assertThat(catalog.get("key."), nullValue());
+    assertThat(catalog.indexOf(""), equalTo(-1));
+  }
+
+  @Test
+  void shouldReadEmptyCatalog() throws Exception {
+    // when
+    BinaryCatalog catalog = read(new BinaryCatalogWriter());
+
+    // then
+    assertThat(catalog.size(), equalTo(0));
+    assertThat(catalog.get("any"), nullValue());
+  }
+
+  @Test
+  void shouldRejectOtherContent() {
+    // when / then
+    assertThrows(IOException.class, () -> new BinaryCatalog(ByteBuffer.wrap(new byte[32])));
+  }
+
+  private static BinaryCatalog read(BinaryCatalogWriter writer) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.writeTo(out);
+    return new BinaryCatalog(ByteBuffer.wrap(out.toByteArray()));
+  }
+}